@@ -10,7 +10,12 @@ CREATE TABLE IF NOT EXISTS user_settings (
                                              search_query VARCHAR(255) NOT NULL DEFAULT 'Python разработчик',
     days INTEGER NOT NULL DEFAULT 1,
     exclude_keywords VARCHAR(1000) DEFAULT '',
+    min_salary INTEGER,
+    salary_currency VARCHAR(3),
     telegram_notify BOOLEAN DEFAULT false,
+    notify_mode VARCHAR(10) NOT NULL DEFAULT 'INSTANT',
+    quiet_hours_start INTEGER,
+    quiet_hours_end INTEGER,
     auto_update_enabled BOOLEAN DEFAULT false,
     auto_update_interval INTEGER DEFAULT 30,
     theme VARCHAR(50) DEFAULT 'light',
@@ -34,21 +39,154 @@ CREATE TABLE IF NOT EXISTS user_countries (
     FOREIGN KEY (telegram_id) REFERENCES user_settings(telegram_id) ON DELETE CASCADE
     );
 
--- Таблица вакансий
+-- Таблица вакансий: секционирование по месяцам по loaded_at.
+-- Уникальные ключи секционированной таблицы обязаны включать ключ секционирования,
+-- поэтому уникальность (user_telegram_id, id) держит несекционированная таблица vacancy_keys (ниже).
+-- Секционирование нужно для удаления старых месяцев целиком, а не для отсечения секций при чтении:
+-- пользовательские выборки не ограничены по loaded_at и проходят по индексу каждой хранимой секции
+-- (их не больше app.retention.partition-months + months-ahead).
+-- Старую несекционированную таблицу переводит migrate-vacancies-partitioned.sql.
 CREATE TABLE IF NOT EXISTS vacancies (
-                                         id VARCHAR(255) PRIMARY KEY,
+                                         id VARCHAR(255) NOT NULL,
     user_telegram_id BIGINT NOT NULL,
     title VARCHAR(500) NOT NULL,
     employer VARCHAR(255),
     city VARCHAR(100),
     schedule VARCHAR(50),
     salary VARCHAR(100),
+    salary_from INTEGER,
+    salary_to INTEGER,
+    salary_currency VARCHAR(3),
+    salary_gross BOOLEAN,
     url VARCHAR(500),
     status VARCHAR(20) NOT NULL DEFAULT 'NEW',
     published_at TIMESTAMP,
-    loaded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+    loaded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_to_telegram BOOLEAN DEFAULT false,
+    -- Отпечаток содержимого вакансии: при повторной загрузке строка перезаписывается, только если он изменился
+    content_hash BIGINT,
+    -- SimHash-подпись названия, работодателя и описания: по ней склеиваются почти-дубли
+    simhash BIGINT,
+    -- Полнотекстовый поиск по сохранённым вакансиям: русская и английская морфология,
+    -- вес A — название, B — работодатель, C — город
+    search_vector tsvector GENERATED ALWAYS AS (
+        setweight(to_tsvector('russian', coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('russian', coalesce(employer, '')), 'B') ||
+        setweight(to_tsvector('english', coalesce(employer, '')), 'B') ||
+        setweight(to_tsvector('russian', coalesce(city, '')), 'C')
+    ) STORED,
+    PRIMARY KEY (user_telegram_id, id, loaded_at)
+    ) PARTITION BY RANGE (loaded_at);
+
+-- Страховочная секция для строк вне созданных диапазонов (в норме пустая)
+CREATE TABLE IF NOT EXISTS vacancies_default PARTITION OF vacancies DEFAULT;
+
+-- Секции на текущий и два следующих месяца; дальше их создаёт VacancyRetentionService
+DO $$
+DECLARE
+    month_start DATE;
+BEGIN
+    FOR i IN 0..2 LOOP
+        month_start := (date_trunc('month', CURRENT_DATE) + make_interval(months => i))::date;
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF vacancies FOR VALUES FROM (%L) TO (%L)',
+                       'vacancies_p' || to_char(month_start, 'YYYY_MM'),
+                       month_start, (month_start + INTERVAL '1 month')::date);
+    END LOOP;
+END $$;
+
+-- Ключи вакансий: уникальность (user_telegram_id, id) для секционированной vacancies.
+-- Заполняется триггерами: вставка вакансии с уже занятым ключом завершается unique_violation,
+-- как при обычном первичном ключе. Ключевые столбцы вакансии после вставки не меняются.
+CREATE TABLE IF NOT EXISTS vacancy_keys (
+                                            user_telegram_id BIGINT NOT NULL,
+                                            id VARCHAR(255) NOT NULL,
+    loaded_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_telegram_id, id)
     );
 
+-- Удаление секции vacancies чистит ключи по диапазону loaded_at
+CREATE INDEX IF NOT EXISTS idx_vacancy_keys_loaded_at ON vacancy_keys(loaded_at);
+
+CREATE OR REPLACE FUNCTION vacancy_keys_on_insert()
+RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO vacancy_keys (user_telegram_id, id, loaded_at) VALUES (NEW.user_telegram_id, NEW.id, NEW.loaded_at);
+RETURN NULL;
+END;
+$$ language 'plpgsql';
+
+CREATE OR REPLACE FUNCTION vacancy_keys_on_delete()
+RETURNS TRIGGER AS $$
+BEGIN
+    DELETE FROM vacancy_keys WHERE user_telegram_id = OLD.user_telegram_id AND id = OLD.id;
+RETURN NULL;
+END;
+$$ language 'plpgsql';
+
+CREATE OR REPLACE TRIGGER vacancies_keys_insert
+    AFTER INSERT ON vacancies
+                         FOR EACH ROW
+                         EXECUTE FUNCTION vacancy_keys_on_insert();
+
+CREATE OR REPLACE TRIGGER vacancies_keys_delete
+    AFTER DELETE ON vacancies
+                         FOR EACH ROW
+                         EXECUTE FUNCTION vacancy_keys_on_delete();
+
+-- Установки, где vacancies уже заполнена до появления vacancy_keys
+INSERT INTO vacancy_keys (user_telegram_id, id, loaded_at)
+SELECT user_telegram_id, id, min(loaded_at) FROM vacancies GROUP BY user_telegram_id, id
+    ON CONFLICT (user_telegram_id, id) DO NOTHING;
+
+-- Приостановка приёма вакансий на время массового удаления (VacancyBulkDeleteService):
+-- paused_until продлевается после каждой порции, пауза упавшего узла истекает сама.
+-- Рядом хранится состояние последней задачи удаления пользователя — прогресс виден с любого узла
+CREATE TABLE IF NOT EXISTS vacancy_ingestion_pauses (
+                                                        telegram_id BIGINT PRIMARY KEY,
+                                                        paused_until TIMESTAMPTZ NOT NULL,
+                                                        job_id VARCHAR(36) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    total BIGINT NOT NULL DEFAULT -1,
+    deleted BIGINT NOT NULL DEFAULT 0,
+    error TEXT,
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP
+    );
+
+-- Курсы валют HH.ru (справочник /dictionaries): rate — сколько единиц валюты в одном рубле
+CREATE TABLE IF NOT EXISTS currency_rates (
+                                              code VARCHAR(3) PRIMARY KEY,
+    name VARCHAR(100),
+    rate DOUBLE PRECISION NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+    );
+
+INSERT INTO currency_rates (code, name, rate)
+VALUES ('RUR', 'Рубли', 1.0)
+    ON CONFLICT (code) DO NOTHING;
+
+-- Справочники HH.ru: регионы (/areas, kind = 'area') и словари (/dictionaries, kind — имя словаря)
+CREATE TABLE IF NOT EXISTS hhru_reference (
+                                              kind VARCHAR(20) NOT NULL,
+    code VARCHAR(50) NOT NULL,
+    parent_code VARCHAR(50),
+    name VARCHAR(255) NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (kind, code)
+    );
+
+-- Счётчики вакансий пользователя (поддерживаются приложением инкрементально, периодически сверяются)
+CREATE TABLE IF NOT EXISTS user_vacancy_counters (
+                                                     telegram_id BIGINT PRIMARY KEY,
+                                                     new_count BIGINT NOT NULL DEFAULT 0,
+                                                     viewed_count BIGINT NOT NULL DEFAULT 0,
+                                                     hidden_count BIGINT NOT NULL DEFAULT 0,
+                                                     unsent_count BIGINT NOT NULL DEFAULT 0,
+                                                     digest_window_start TIMESTAMP,
+                                                     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Индексы для оптимизации производительности
 CREATE INDEX IF NOT EXISTS idx_user_settings_telegram_id ON user_settings(telegram_id);
 CREATE INDEX IF NOT EXISTS idx_user_work_types_telegram_id ON user_work_types(telegram_id);
@@ -57,6 +195,10 @@ CREATE INDEX IF NOT EXISTS idx_vacancies_user_telegram_id ON vacancies(user_tele
 CREATE INDEX IF NOT EXISTS idx_vacancies_status ON vacancies(status);
 CREATE INDEX IF NOT EXISTS idx_vacancies_published_at ON vacancies(published_at);
 CREATE INDEX IF NOT EXISTS idx_vacancies_loaded_at ON vacancies(loaded_at);
+CREATE INDEX IF NOT EXISTS idx_vacancies_status_loaded_at ON vacancies(status, loaded_at);
+-- Фильтр по зарплате сравнивает COALESCE(salary_to, salary_from) с порогом, пересчитанным в валюту вакансии
+CREATE INDEX IF NOT EXISTS idx_vacancies_user_salary ON vacancies(user_telegram_id, salary_currency, COALESCE(salary_to, salary_from));
+CREATE INDEX IF NOT EXISTS idx_vacancies_search ON vacancies USING GIN (search_vector);
 
 -- Функция для автоматического обновления updated_at
 CREATE OR REPLACE FUNCTION update_updated_at_column()
@@ -0,0 +1,72 @@
+-- Перевод существующей установки на секционированную таблицу vacancies.
+-- init.sql создаёт таблицы через CREATE TABLE IF NOT EXISTS и старую несекционированную vacancies
+-- не трогает; приложение с такой таблицей не стартует (см. VacancyRetentionService).
+--
+-- Запуск из корня репозитория (скрипт подключает init.sql), приложение на время миграции остановлено:
+--   psql -v ON_ERROR_STOP=1 -d vacancy_service -f migrate-vacancies-partitioned.sql
+-- Всё выполняется в одной транзакции; на уже секционированной таблице скрипт ничего не меняет.
+
+BEGIN;
+
+DO $$
+DECLARE
+    idx RECORD;
+BEGIN
+    IF to_regclass('vacancies') IS NULL
+        OR EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'vacancies'::regclass) THEN
+        RAISE NOTICE 'Таблица vacancies уже секционирована или отсутствует — переносить нечего';
+        RETURN;
+    END IF;
+
+    ALTER TABLE vacancies RENAME TO vacancies_unpartitioned;
+    -- Имена индексов общие на схему: без переименования CREATE INDEX IF NOT EXISTS из init.sql
+    -- молча пропустит индексы новой таблицы
+    FOR idx IN SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+               WHERE i.indrelid = 'vacancies_unpartitioned'::regclass LOOP
+        EXECUTE format('ALTER INDEX %I RENAME TO %I', idx.relname, left(idx.relname, 48) || '_unpartitioned');
+    END LOOP;
+END $$;
+
+\ir init.sql
+
+DO $$
+DECLARE
+    month_start DATE;
+    copied_columns TEXT;
+BEGIN
+    IF to_regclass('vacancies_unpartitioned') IS NULL THEN
+        RETURN;
+    END IF;
+
+    -- Секции на все месяцы старых данных, иначе строки осядут в vacancies_default.
+    -- Месяцы старше app.retention.partition-months удалит первый же запуск VacancyRetentionService.
+    FOR month_start IN
+        SELECT generate_series(date_trunc('month', min(loaded_at)), date_trunc('month', CURRENT_DATE),
+                               INTERVAL '1 month')::date
+        FROM vacancies_unpartitioned
+    LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF vacancies FOR VALUES FROM (%L) TO (%L)',
+                       'vacancies_p' || to_char(month_start, 'YYYY_MM'),
+                       month_start, (month_start + INTERVAL '1 month')::date);
+    END LOOP;
+
+    -- Переносятся общие столбцы: в старой схеме нет salary_from/to, content_hash, simhash,
+    -- search_vector вычисляется сам. vacancy_keys заполняют триггеры новой таблицы.
+    SELECT string_agg(quote_ident(n.column_name), ', ' ORDER BY n.ordinal_position)
+    INTO copied_columns
+    FROM information_schema.columns n
+    JOIN information_schema.columns o
+      ON o.table_schema = n.table_schema AND o.table_name = 'vacancies_unpartitioned'
+     AND o.column_name = n.column_name
+    WHERE n.table_schema = current_schema() AND n.table_name = 'vacancies' AND n.is_generated = 'NEVER';
+
+    EXECUTE format('INSERT INTO vacancies (%s) SELECT %s FROM vacancies_unpartitioned',
+                   copied_columns, copied_columns);
+    RAISE NOTICE 'Перенесено вакансий: %', (SELECT count(*) FROM vacancies);
+
+    DROP TABLE vacancies_unpartitioned;
+END $$;
+
+-- Счётчики пересчитает плановая сверка VacancyCounterService после запуска приложения
+
+COMMIT;
@@ -1,27 +1,41 @@
 package com.mkisten.vacancybackend.client;
 
 import com.mkisten.vacancybackend.dto.*;
-import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.Map;
 
+/**
+ * Клиент auth-сервиса. Все вызовы идут через DependencyGuard (breaker + bulkhead),
+ * идемпотентные GET профиля, статуса подписки и валидации токена — с hedging.
+ */
 @Service
-@RequiredArgsConstructor
 public class AuthServiceClient {
     @Value("${auth.service.url}")
     private String authUrl;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+    private final DependencyGuard guard;
+
+    public AuthServiceClient(DependencyGuards guards,
+                             @Value("${auth.service.connect-timeout-ms:3000}") int connectTimeoutMs,
+                             @Value("${auth.service.read-timeout-ms:5000}") int readTimeoutMs) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.guard = guards.auth();
+    }
 
     // Получение токена по Telegram ID
     public TokenResponse getTokenByTelegramId(Long telegramId) {
         String url = authUrl + "/api/auth/token?telegramId=" + telegramId;
-        ResponseEntity<TokenResponse> resp = restTemplate.postForEntity(
-                url, null, TokenResponse.class);
+        ResponseEntity<TokenResponse> resp = guard.call(() -> restTemplate.postForEntity(
+                url, null, TokenResponse.class));
         return resp.getBody();
     }
 
@@ -30,8 +44,8 @@ public class AuthServiceClient {
         HttpHeaders headers = new HttpHeaders();
         headers.setBearerAuth(token);
         HttpEntity<?> entity = new HttpEntity<>(headers);
-        ResponseEntity<AuthResponse> response = restTemplate.exchange(
-                authUrl + "/api/auth/validate", HttpMethod.GET, entity, AuthResponse.class);
+        ResponseEntity<AuthResponse> response = guard.callHedged(() -> restTemplate.exchange(
+                authUrl + "/api/auth/validate", HttpMethod.GET, entity, AuthResponse.class));
         return response.getBody() != null && response.getBody().isValid();
     }
 
@@ -40,9 +54,9 @@ public class AuthServiceClient {
         HttpHeaders headers = new HttpHeaders();
         headers.setBearerAuth(token);
         HttpEntity<?> entity = new HttpEntity<>(headers);
-        ResponseEntity<ProfileResponse> resp = restTemplate.exchange(
+        ResponseEntity<ProfileResponse> resp = guard.callHedged(() -> restTemplate.exchange(
                 authUrl + "/api/auth/me", HttpMethod.GET, entity, ProfileResponse.class
-        );
+        ));
         return resp.getBody();
     }
 
@@ -52,17 +66,17 @@ public class AuthServiceClient {
         headers.setBearerAuth(token);
         headers.setContentType(MediaType.APPLICATION_JSON);
         HttpEntity<ProfileResponse> entity = new HttpEntity<>(updateDto, headers);
-        ResponseEntity<ProfileResponse> resp = restTemplate.exchange(
+        ResponseEntity<ProfileResponse> resp = guard.call(() -> restTemplate.exchange(
                 authUrl + "/api/auth/profile", HttpMethod.PUT, entity, ProfileResponse.class
-        );
+        ));
         return resp.getBody();
     }
 
     // Telegram auth: создать сессию
     public SessionStatusResponse createSession(CreateSessionRequest req) {
-        ResponseEntity<SessionStatusResponse> resp = restTemplate.postForEntity(
+        ResponseEntity<SessionStatusResponse> resp = guard.call(() -> restTemplate.postForEntity(
                 authUrl + "/api/telegram-auth/create-session", req, SessionStatusResponse.class
-        );
+        ));
         return resp.getBody();
     }
 
@@ -72,7 +86,8 @@ public class AuthServiceClient {
         if (deviceId != null && !deviceId.isBlank()) {
             url += "?deviceId=" + deviceId;
         }
-        ResponseEntity<SessionStatusResponse> resp = restTemplate.getForEntity(url, SessionStatusResponse.class);
+        String statusUrl = url;
+        ResponseEntity<SessionStatusResponse> resp = guard.call(() -> restTemplate.getForEntity(statusUrl, SessionStatusResponse.class));
         return resp.getBody();
     }
 
@@ -81,9 +96,9 @@ public class AuthServiceClient {
         HttpHeaders headers = new HttpHeaders();
         headers.setBearerAuth(token);
         HttpEntity<?> entity = new HttpEntity<>(headers);
-        ResponseEntity<SubscriptionStatusResponse> resp = restTemplate.exchange(
+        ResponseEntity<SubscriptionStatusResponse> resp = guard.callHedged(() -> restTemplate.exchange(
                 authUrl + "/api/subscription/status", HttpMethod.GET, entity, SubscriptionStatusResponse.class
-        );
+        ));
         return resp.getBody();
     }
 
@@ -96,8 +111,8 @@ public class AuthServiceClient {
 
         HttpEntity<Map<String, String>> request = new HttpEntity<>(body, headers);
 
-        restTemplate.postForEntity(
-                authUrl + "/api/bot/notify", request, Void.class);
+        guard.run(() -> restTemplate.postForEntity(
+                authUrl + "/api/bot/notify", request, Void.class));
     }
 
     public TokenResponse refreshToken(String token) {
@@ -106,10 +121,10 @@ public class AuthServiceClient {
         headers.setContentType(MediaType.APPLICATION_JSON);
 
         HttpEntity<?> entity = new HttpEntity<>(headers);
-        ResponseEntity<TokenResponse> response = restTemplate.exchange(
+        ResponseEntity<TokenResponse> response = guard.call(() -> restTemplate.exchange(
                 authUrl + "/api/auth/refresh", // Укажите сюда ваш endpoint refresh на сервисе авторизации!
                 HttpMethod.POST, entity, TokenResponse.class
-        );
+        ));
         return response.getBody();
     }
 }
@@ -0,0 +1,130 @@
+package com.mkisten.vacancybackend.client;
+
+import java.util.Arrays;
+
+/**
+ * Circuit breaker по доле ошибок в скользящем окне последних вызовов.
+ * CLOSED — вызовы идут; при доле ошибок не ниже порога (и не меньше minimumCalls вызовов в окне)
+ * переходит в OPEN — вызовы отклоняются openMillis; затем HALF_OPEN — пропускается до halfOpenProbes
+ * пробных вызовов: все успешны — CLOSED, любая ошибка — снова OPEN.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openMillis;
+    private final int halfOpenProbes;
+
+    // Кольцевой буфер исходов последних вызовов: true — ошибка
+    private final boolean[] outcomes;
+    private int position;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openMillis, int halfOpenProbes) {
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMillis = openMillis;
+        this.halfOpenProbes = halfOpenProbes;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    /** Можно ли выполнить вызов; в HALF_OPEN занимает один из пробных слотов */
+    public synchronized boolean tryAcquirePermission(long now) {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now - openedAt < openMillis) return false;
+                state = State.HALF_OPEN;
+                probesStarted = 0;
+                probesSucceeded = 0;
+                // fall through
+            default:
+                if (probesStarted >= halfOpenProbes) return false;
+                probesStarted++;
+                return true;
+        }
+    }
+
+    /** Открыт ли breaker без права на пробный вызов — планировщикам незачем начинать цикл */
+    public synchronized boolean isRejecting(long now) {
+        return state == State.OPEN && now - openedAt < openMillis
+                || state == State.HALF_OPEN && probesStarted >= halfOpenProbes;
+    }
+
+    /** @return true, если вызов перевёл breaker в другое состояние */
+    public synchronized boolean onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++probesSucceeded >= halfOpenProbes) {
+                reset(State.CLOSED);
+                return true;
+            }
+            return false;
+        }
+        record(false);
+        return false;
+    }
+
+    /** @return true, если вызов перевёл breaker в состояние OPEN */
+    public synchronized boolean onFailure(long now) {
+        if (state == State.HALF_OPEN) {
+            open(now);
+            return true;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded >= minimumCalls
+                && failures * 100.0 / recorded >= failureRateThreshold) {
+            open(now);
+            return true;
+        }
+        return false;
+    }
+
+    /** Вызов не дошёл до сервиса (отказ bulkhead) — пробный слот возвращается */
+    public synchronized void onNotExecuted() {
+        if (state == State.HALF_OPEN && probesStarted > 0) {
+            probesStarted--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == windowSize) {
+            if (outcomes[position]) failures--;
+        } else {
+            recorded++;
+        }
+        outcomes[position] = failure;
+        if (failure) failures++;
+        position = (position + 1) % windowSize;
+    }
+
+    private void open(long now) {
+        reset(State.OPEN);
+        openedAt = now;
+    }
+
+    private void reset(State newState) {
+        state = newState;
+        position = 0;
+        recorded = 0;
+        failures = 0;
+        probesStarted = 0;
+        probesSucceeded = 0;
+        Arrays.fill(outcomes, false);
+    }
+}
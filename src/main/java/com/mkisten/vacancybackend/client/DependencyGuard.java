@@ -0,0 +1,228 @@
+package com.mkisten.vacancybackend.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Защита вызовов одного внешнего сервиса: circuit breaker, bulkhead (не больше maxConcurrent
+ * одновременных вызовов, ожидание свободного места не дольше maxWaitMillis) и hedging для
+ * идемпотентных GET — если ответ не пришёл за hedgeDelayMillis, параллельно отправляется
+ * второй такой же запрос и берётся первый успешный ответ. Второй запрос отправляется, только
+ * если в bulkhead есть свободное место без ожидания, — под нагрузкой hedging её не удваивает.
+ *
+ * Ошибками сервиса считаются сетевые сбои, таймауты, 5xx и 429; прочие ответы 4xx — нет
+ * (сервис работает, ошибка в запросе). При открытом breaker и переполненном bulkhead
+ * вызов сразу завершается DependencyUnavailableException.
+ */
+@Slf4j
+public class DependencyGuard {
+
+    public record Settings(int windowSize, int minimumCalls, double failureRateThreshold, long openMillis,
+                           int halfOpenProbes, int maxConcurrent, long maxWaitMillis, long hedgeDelayMillis) {
+    }
+
+    private final String name;
+    private final CircuitBreaker breaker;
+    private final Semaphore permits;
+    private final long maxWaitMillis;
+    private final long hedgeDelayMillis;
+    private final ThreadPoolExecutor executor;
+
+    private final Counter rejectedOpen;
+    private final Counter rejectedBulkhead;
+    private final Counter hedges;
+    private final Counter hedgeWins;
+
+    public DependencyGuard(String name, Settings settings, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.breaker = new CircuitBreaker(settings.windowSize(), settings.minimumCalls(),
+                settings.failureRateThreshold(), settings.openMillis(), settings.halfOpenProbes());
+        this.permits = new Semaphore(settings.maxConcurrent(), true);
+        this.maxWaitMillis = settings.maxWaitMillis();
+        this.hedgeDelayMillis = settings.hedgeDelayMillis();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Число задач ограничено разрешениями bulkhead, поэтому очередь фактически не растёт
+        this.executor = new ThreadPoolExecutor(settings.maxConcurrent(), settings.maxConcurrent(),
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, name + "-call-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+
+        rejectedOpen = Counter.builder("dependency.calls.rejected")
+                .tag("dependency", name).tag("reason", "circuit_open")
+                .register(meterRegistry);
+        rejectedBulkhead = Counter.builder("dependency.calls.rejected")
+                .tag("dependency", name).tag("reason", "bulkhead_full")
+                .register(meterRegistry);
+        hedges = Counter.builder("dependency.calls.hedged")
+                .tag("dependency", name)
+                .description("Отправленные повторные (hedged) запросы")
+                .register(meterRegistry);
+        hedgeWins = Counter.builder("dependency.calls.hedge_wins")
+                .tag("dependency", name)
+                .description("Повторный запрос ответил раньше исходного")
+                .register(meterRegistry);
+        Gauge.builder("dependency.circuit.state", breaker, b -> b.getState().ordinal())
+                .tag("dependency", name)
+                .description("0 — CLOSED, 1 — OPEN, 2 — HALF_OPEN")
+                .register(meterRegistry);
+        Gauge.builder("dependency.calls.in_flight", permits, p -> settings.maxConcurrent() - p.availablePermits())
+                .tag("dependency", name)
+                .register(meterRegistry);
+    }
+
+    /** false — breaker открыт и пробный вызов пока не положен: начинать цикл обращений бессмысленно */
+    public boolean isAvailable() {
+        return !breaker.isRejecting(System.currentTimeMillis());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Вызов в текущем потоке под breaker и bulkhead */
+    public <T> T call(Supplier<T> action) {
+        acquirePermission();
+        acquirePermit();
+        try {
+            T result = action.get();
+            onSuccess();
+            return result;
+        } catch (RuntimeException e) {
+            onError(e);
+            throw e;
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void run(Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /** Вызов идемпотентного запроса с hedging; при hedgeDelayMillis = 0 — как {@link #call} */
+    public <T> T callHedged(Supplier<T> action) {
+        if (hedgeDelayMillis <= 0) {
+            return call(action);
+        }
+        acquirePermission();
+        acquirePermit();
+        CompletableFuture<T> primary = submit(action);
+        try {
+            T result;
+            try {
+                result = primary.get(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException slow) {
+                CompletableFuture<T> hedge = permits.tryAcquire() ? submit(action) : null;
+                if (hedge != null) {
+                    hedges.increment();
+                }
+                result = hedge != null ? firstSuccessful(primary, hedge).get() : primary.get();
+            }
+            onSuccess();
+            return result;
+        } catch (ExecutionException e) {
+            RuntimeException cause = e.getCause() instanceof RuntimeException runtime
+                    ? runtime : new IllegalStateException(e.getCause());
+            onError(cause);
+            throw cause;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            breaker.onNotExecuted();
+            throw new IllegalStateException("Прерван вызов " + name, e);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> action) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return action.get();
+                } finally {
+                    permits.release();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> primary, CompletableFuture<T> hedge) {
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(2);
+        BiConsumer<Boolean, CompletableFuture<T>> listen = (isHedge, attempt) -> attempt.whenComplete((value, error) -> {
+            if (error == null) {
+                if (winner.complete(value) && isHedge) hedgeWins.increment();
+            } else if (remaining.decrementAndGet() == 0) {
+                winner.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            }
+        });
+        listen.accept(false, primary);
+        listen.accept(true, hedge);
+        return winner;
+    }
+
+    private void acquirePermission() {
+        if (!breaker.tryAcquirePermission(System.currentTimeMillis())) {
+            rejectedOpen.increment();
+            throw new DependencyUnavailableException(name + ": circuit breaker открыт");
+        }
+    }
+
+    private void acquirePermit() {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            breaker.onNotExecuted();
+            rejectedBulkhead.increment();
+            throw new DependencyUnavailableException(name + ": превышен лимит параллельных вызовов");
+        }
+    }
+
+    private void onSuccess() {
+        if (breaker.onSuccess()) {
+            log.info("Circuit breaker {} закрыт — сервис снова отвечает", name);
+        }
+    }
+
+    private void onError(RuntimeException e) {
+        if (!isFailure(e)) {
+            onSuccess();
+            return;
+        }
+        if (breaker.onFailure(System.currentTimeMillis())) {
+            log.warn("Circuit breaker {} открыт: {}", name, e.getMessage());
+        }
+    }
+
+    private static boolean isFailure(RuntimeException e) {
+        if (e instanceof HttpStatusCodeException status) {
+            return status.getStatusCode().is5xxServerError() || status.getStatusCode().value() == 429;
+        }
+        return true;
+    }
+}
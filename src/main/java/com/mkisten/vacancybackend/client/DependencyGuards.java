@@ -0,0 +1,54 @@
+package com.mkisten.vacancybackend.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Защита вызовов внешних сервисов (DependencyGuard) — отдельная для HH.ru и для auth-сервиса,
+ * чтобы деградация одного не занимала потоки и не открывала breaker другого.
+ * Настройки — app.resilience.&lt;сервис&gt;.*.
+ */
+@Component
+public class DependencyGuards {
+
+    public static final String HHRU = "hhru";
+    public static final String AUTH = "auth";
+
+    private final DependencyGuard hhru;
+    private final DependencyGuard auth;
+
+    public DependencyGuards(Environment environment, MeterRegistry meterRegistry) {
+        this.hhru = new DependencyGuard(HHRU, settings(environment, HHRU, 16, 500, 1500, 30_000), meterRegistry);
+        this.auth = new DependencyGuard(AUTH, settings(environment, AUTH, 32, 200, 400, 15_000), meterRegistry);
+    }
+
+    public DependencyGuard hhru() {
+        return hhru;
+    }
+
+    public DependencyGuard auth() {
+        return auth;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hhru.shutdown();
+        auth.shutdown();
+    }
+
+    private static DependencyGuard.Settings settings(Environment env, String name, int maxConcurrent,
+                                                     long maxWaitMillis, long hedgeDelayMillis, long openMillis) {
+        String prefix = "app.resilience." + name + ".";
+        return new DependencyGuard.Settings(
+                env.getProperty(prefix + "window-size", Integer.class, 20),
+                env.getProperty(prefix + "minimum-calls", Integer.class, 10),
+                env.getProperty(prefix + "failure-rate-threshold", Double.class, 50.0),
+                env.getProperty(prefix + "open-ms", Long.class, openMillis),
+                env.getProperty(prefix + "half-open-probes", Integer.class, 2),
+                env.getProperty(prefix + "max-concurrent", Integer.class, maxConcurrent),
+                env.getProperty(prefix + "max-wait-ms", Long.class, maxWaitMillis),
+                env.getProperty(prefix + "hedge-delay-ms", Long.class, hedgeDelayMillis));
+    }
+}
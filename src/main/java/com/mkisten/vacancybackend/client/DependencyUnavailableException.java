@@ -0,0 +1,12 @@
+package com.mkisten.vacancybackend.client;
+
+/**
+ * Вызов внешнего сервиса не выполнялся: открыт circuit breaker или исчерпан лимит
+ * параллельных вызовов (DependencyGuard). Вызывающий код получает отказ сразу, без ожидания таймаута.
+ */
+public class DependencyUnavailableException extends RuntimeException {
+
+    public DependencyUnavailableException(String message) {
+        super(message);
+    }
+}
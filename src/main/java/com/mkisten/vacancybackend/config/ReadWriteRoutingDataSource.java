@@ -0,0 +1,66 @@
+package com.mkisten.vacancybackend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Выбор БД для соединения: readOnly-транзакции идут на реплику, всё остальное — на основную.
+ * На основную уходят и чтения, если реплика нездорова (ReplicaHealthMonitor) или пользователь
+ * только что сам что-то записал (ReadYourWritesTracker). Если реплика не выдала соединение,
+ * чтение выполняется на основной БД.
+ * Должен стоять за LazyConnectionDataSourceProxy: тогда соединение берётся при первом запросе,
+ * когда признак readOnly транзакции уже выставлен.
+ */
+class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaHealthMonitor healthMonitor;
+    private final ReadYourWritesTracker tracker;
+    private final Counter primaryReads;
+    private final Counter replicaReads;
+    private final Counter fallbacks;
+
+    ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaHealthMonitor healthMonitor,
+                               ReadYourWritesTracker tracker, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.healthMonitor = healthMonitor;
+        this.tracker = tracker;
+        this.primaryReads = meterRegistry.counter("vacancy.datasource.reads", "target", "primary");
+        this.replicaReads = meterRegistry.counter("vacancy.datasource.reads", "target", "replica");
+        this.fallbacks = meterRegistry.counter("vacancy.datasource.replica.fallbacks");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            tracker.markWriteOnCommit();
+            return primary.getConnection();
+        }
+        if (!healthMonitor.isHealthy() || tracker.isSticky()) {
+            primaryReads.increment();
+            return primary.getConnection();
+        }
+        try {
+            Connection connection = replica.getConnection();
+            replicaReads.increment();
+            return connection;
+        } catch (SQLException e) {
+            healthMonitor.markUnhealthy(e);
+            fallbacks.increment();
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+}
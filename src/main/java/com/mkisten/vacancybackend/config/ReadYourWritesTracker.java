@@ -0,0 +1,95 @@
+package com.mkisten.vacancybackend.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-your-writes для чтения с реплики: пользователь, только что изменивший данные,
+ * в течение app.datasource.replica.sticky-seconds читает с основной БД — реплика могла
+ * ещё не догнать его запись.
+ * Привязка действует только в рамках HTTP-запроса: фильтр ReadYourWritesFilter открывает её
+ * (beginRequest) и снимает по окончании (clear), а пользователь запоминается при разборе токена
+ * (bindUser). Вне запроса — в планировщиках и потоках конвейера — bindUser ничего не делает,
+ * и пулы потоков не остаются привязанными к последнему пользователю.
+ * Запись отмечается при фиксации не-readOnly транзакции, взявшей соединение основной БД.
+ * Записи вне запроса (сброс буфера статусов, сохранение конвейером) отмечает их код — markWritten.
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    private final ThreadLocal<RequestScope> currentRequest = new ThreadLocal<>();
+
+    @Value("${app.datasource.replica.sticky-seconds:10}")
+    private long stickySeconds;
+
+    private Cache<Long, Boolean> recentWriters;
+
+    @PostConstruct
+    void init() {
+        recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(stickySeconds, TimeUnit.SECONDS)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    void beginRequest() {
+        currentRequest.set(new RequestScope());
+    }
+
+    /** Запомнить пользователя текущего запроса; вне запроса — ничего */
+    public void bindUser(Long telegramId) {
+        RequestScope scope = currentRequest.get();
+        if (scope != null) {
+            scope.telegramId = telegramId;
+        }
+    }
+
+    void clear() {
+        currentRequest.remove();
+    }
+
+    /**
+     * Текущая транзакция пишет — после её фиксации чтения пользователя ненадолго уходят на основную БД.
+     * Без транзакции (автокоммит JdbcTemplate) запись не отмечается.
+     */
+    void markWriteOnCommit() {
+        Long telegramId = currentUser();
+        if (telegramId == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markWritten(telegramId);
+            }
+        });
+    }
+
+    /** Отметить зафиксированную запись пользователя, сделанную вне HTTP-запроса; вызывать после фиксации */
+    public void markWritten(Long telegramId) {
+        if (telegramId != null) {
+            recentWriters.put(telegramId, Boolean.TRUE);
+        }
+    }
+
+    boolean isSticky() {
+        Long telegramId = currentUser();
+        return telegramId != null && recentWriters.getIfPresent(telegramId) != null;
+    }
+
+    private Long currentUser() {
+        RequestScope scope = currentRequest.get();
+        return scope != null ? scope.telegramId : null;
+    }
+
+    private static final class RequestScope {
+        private Long telegramId;
+    }
+}
@@ -0,0 +1,74 @@
+package com.mkisten.vacancybackend.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Периодическая проверка реплики: доступна ли она и насколько отстаёт от основной БД.
+ * Отставание считается по времени последней применённой транзакции; если всё полученное
+ * уже применено (на основной нет записи), реплика считается догнавшей.
+ * Пока реплика недоступна или отстаёт больше app.datasource.replica.max-lag-seconds,
+ * все чтения идут на основную БД.
+ */
+@Slf4j
+public class ReplicaHealthMonitor {
+
+    private static final String LAG_SQL =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0" +
+            " ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final JdbcTemplate replicaJdbc;
+    private final double maxLagSeconds;
+
+    private volatile boolean healthy;
+    private volatile double lagSeconds = -1;
+
+    public ReplicaHealthMonitor(DataSource replica, double maxLagSeconds, MeterRegistry meterRegistry) {
+        this.replicaJdbc = new JdbcTemplate(replica);
+        this.replicaJdbc.setQueryTimeout(2);
+        this.maxLagSeconds = maxLagSeconds;
+        Gauge.builder("vacancy.datasource.replica.lag_seconds", this, m -> m.lagSeconds)
+                .description("Отставание реплики; -1 — реплика недоступна")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("vacancy.datasource.replica.healthy", this, m -> m.healthy ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.check-interval-ms:5000}")
+    public void check() {
+        boolean wasHealthy = healthy;
+        try {
+            Double lag = replicaJdbc.queryForObject(LAG_SQL, Double.class);
+            lagSeconds = lag != null ? lag : 0;
+            healthy = lagSeconds <= maxLagSeconds;
+            if (!healthy && wasHealthy) {
+                log.warn("Реплика отстаёт на {} с (допустимо {} с) — чтения переключены на основную БД",
+                        lagSeconds, maxLagSeconds);
+            }
+        } catch (Exception e) {
+            markUnhealthy(e);
+        }
+        if (healthy && !wasHealthy) {
+            log.info("Replica is healthy (lag {} s), routing read-only transactions to it", lagSeconds);
+        }
+    }
+
+    /** Реплика не выдала соединение — не ждать следующей проверки */
+    void markUnhealthy(Exception cause) {
+        if (healthy) {
+            log.warn("Реплика недоступна — чтения переключены на основную БД: {}", cause.getMessage());
+        }
+        healthy = false;
+        lagSeconds = -1;
+    }
+
+    boolean isHealthy() {
+        return healthy;
+    }
+}
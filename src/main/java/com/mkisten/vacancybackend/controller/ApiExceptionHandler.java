@@ -0,0 +1,29 @@
+package com.mkisten.vacancybackend.controller;
+
+import com.mkisten.vacancybackend.client.DependencyUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * Ошибки, общие для всех контроллеров. Контроллеры пропускают DependencyUnavailableException
+ * мимо своих catch-блоков: недоступность HH.ru или auth-сервиса (открыт circuit breaker, исчерпан
+ * лимит параллельных вызовов) отдаётся клиенту как 503, а не как пустой результат или 500.
+ */
+@Slf4j
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    @ExceptionHandler(DependencyUnavailableException.class)
+    public ResponseEntity<Map<String, String>> dependencyUnavailable(DependencyUnavailableException e) {
+        log.warn("Запрос отклонён: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of(
+                "error", "Сервис временно недоступен",
+                "message", e.getMessage()
+        ));
+    }
+}
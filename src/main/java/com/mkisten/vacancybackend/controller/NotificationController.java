@@ -1,5 +1,6 @@
 package com.mkisten.vacancybackend.controller;
 
+import com.mkisten.vacancybackend.client.DependencyUnavailableException;
 import com.mkisten.vacancybackend.service.TelegramNotificationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -27,6 +28,8 @@ public class NotificationController {
             String token = authorization.replace("Bearer ", "");
             telegramService.sendTestNotification(token);
             return ResponseEntity.ok(Map.of("message", "Test notification sent successfully"));
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error sending test notification: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body(Map.of(
@@ -53,6 +56,8 @@ public class NotificationController {
                     "message", "Custom notification sent successfully",
                     "messageLength", String.valueOf(message.length())
             ));
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error sending custom notification: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body(Map.of(
@@ -76,6 +81,8 @@ public class NotificationController {
             String token = authorization.replace("Bearer ", "");
             telegramService.sendErrorNotification(token, errorMessage);
             return ResponseEntity.ok(Map.of("message", "Error notification sent successfully"));
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error sending error notification: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body(Map.of(
@@ -1,6 +1,7 @@
 package com.mkisten.vacancybackend.controller;
 
 import com.mkisten.vacancybackend.client.AuthServiceClient;
+import com.mkisten.vacancybackend.client.DependencyUnavailableException;
 import com.mkisten.vacancybackend.dto.ProfileResponse;
 import com.mkisten.vacancybackend.dto.SubscriptionStatusResponse;
 import com.mkisten.vacancybackend.service.UserSettingsService;
@@ -36,6 +37,8 @@ public class SessionController {
                     "user", profile,
                     "subscription", subscription
             ));
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Failed to get session info: {}", e.getMessage());
             return ResponseEntity.badRequest().body(Map.of(
@@ -1,5 +1,6 @@
 package com.mkisten.vacancybackend.controller;
 
+import com.mkisten.vacancybackend.client.DependencyUnavailableException;
 import com.mkisten.vacancybackend.entity.UserSettings;
 import com.mkisten.vacancybackend.service.UserSettingsService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -27,6 +28,8 @@ public class UserSettingsController {
             String token = authorization.replace("Bearer ", "");
             UserSettings settings = settingsService.getSettings(token);
             return ResponseEntity.ok(settings);
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error getting settings: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
@@ -42,6 +45,8 @@ public class UserSettingsController {
             String token = authorization.replace("Bearer ", "");
             UserSettings updated = settingsService.updateSettings(token, settings);
             return ResponseEntity.ok(updated);
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error updating settings: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
@@ -70,6 +75,8 @@ public class UserSettingsController {
                     "enabled", enabled.toString(),
                     "intervalMinutes", intervalMinutes.toString()
             ));
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error setting up auto-update: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body(Map.of(
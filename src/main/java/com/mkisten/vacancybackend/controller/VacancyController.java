@@ -1,16 +1,26 @@
 package com.mkisten.vacancybackend.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.mkisten.vacancybackend.client.AuthServiceClient;
+import com.mkisten.vacancybackend.client.DependencyUnavailableException;
+import com.mkisten.vacancybackend.dto.BulkDeleteJobResponse;
 import com.mkisten.vacancybackend.dto.SearchRequest;
 import com.mkisten.vacancybackend.dto.VacancyResponse;
+import com.mkisten.vacancybackend.dto.VacancySearchResponse;
 import com.mkisten.vacancybackend.entity.Vacancy;
 import com.mkisten.vacancybackend.entity.VacancyStatus;
-import com.mkisten.vacancybackend.service.UserSettingsService;
+import com.mkisten.vacancybackend.service.SearchAdmissionService;
+import com.mkisten.vacancybackend.service.VacancyBulkDeleteService;
+import com.mkisten.vacancybackend.service.VacancyBulkImportService;
+import com.mkisten.vacancybackend.service.VacancyLocalSearchService;
 import com.mkisten.vacancybackend.service.VacancyService;
 import com.mkisten.vacancybackend.service.VacancySmartService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -27,7 +37,11 @@ public class VacancyController {
 
     private final VacancyService vacancyService;
     private final VacancySmartService vacancySmartService;
-    private final UserSettingsService userSettingsService;
+    private final AuthServiceClient authServiceClient;
+    private final SearchAdmissionService searchAdmissionService;
+    private final VacancyBulkDeleteService bulkDeleteService;
+    private final VacancyLocalSearchService localSearchService;
+    private final VacancyBulkImportService bulkImportService;
 
     @Operation(summary = "Поиск вакансий с учетом пользовательских настроек")
     @PostMapping("/search")
@@ -36,18 +50,28 @@ public class VacancyController {
             @RequestBody SearchRequest request) {
         try {
             String token = authorization.replace("Bearer ", "");
-            Long userTelegramId = userSettingsService.getSettings(token).getTelegramId();
-            log.info("Search request: {}", request.getQuery());
 
-            // Выполняем поиск (функция включает сохранение и отправку)
-            List<Vacancy> foundVacancies = vacancySmartService.searchWithUserSettings(request, token, userTelegramId);
+            // Глобальный лимит — до любых обращений к auth-сервису, HH.ru и БД; квота — по пользователю
+            try (SearchAdmissionService.Admission admission =
+                         searchAdmissionService.admit(SearchAdmissionService.SEARCH, token)) {
+                if (!admission.isAdmitted()) {
+                    return tooManyRequests(admission);
+                }
+                Long userTelegramId = admission.getTelegramId();
+                log.info("Search request: {}", request.getQuery());
 
-            List<VacancyResponse> response = foundVacancies.stream()
-                    .map(VacancyResponse::new)
-                    .collect(Collectors.toList());
+                // Выполняем поиск (функция включает сохранение и отправку)
+                List<Vacancy> foundVacancies = vacancySmartService.searchWithUserSettings(request, token, userTelegramId);
 
-            log.info("Search completed. Found: {}", foundVacancies.size());
-            return ResponseEntity.ok(response);
+                List<VacancyResponse> response = foundVacancies.stream()
+                        .map(VacancyResponse::new)
+                        .collect(Collectors.toList());
+
+                log.info("Search completed. Found: {}", foundVacancies.size());
+                return ResponseEntity.ok(response);
+            }
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error searching vacancies: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
@@ -58,38 +82,75 @@ public class VacancyController {
     @GetMapping
     public ResponseEntity<List<VacancyResponse>> getUserVacancies(
             @RequestHeader("Authorization") String authorization,
-            @RequestParam(required = false) VacancyStatus status) {
+            @RequestParam(required = false) VacancyStatus status,
+            @RequestParam(required = false) Integer minSalary,
+            @RequestParam(required = false) String currency) {
         try {
             String token = authorization.replace("Bearer ", "");
-            List<Vacancy> vacancies = vacancyService.getUserVacancies(token, status);
+            List<Vacancy> vacancies = vacancyService.getUserVacancies(token, status, minSalary, currency);
             List<VacancyResponse> response = vacancies.stream()
                     .map(VacancyResponse::new)
                     .collect(Collectors.toList());
             return ResponseEntity.ok(response);
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error getting vacancies: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    @Operation(summary = "Полнотекстовый поиск по сохранённым вакансиям")
+    @GetMapping("/search-local")
+    public ResponseEntity<VacancySearchResponse> searchLocal(
+            @RequestHeader("Authorization") String authorization,
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            String token = authorization.replace("Bearer ", "");
+            return ResponseEntity.ok(localSearchService.search(token, q, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid local search request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (DependencyUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error searching stored vacancies: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @PostMapping("/batch")
     public ResponseEntity<Map<String, Object>> addVacanciesBatch(
             @RequestHeader("Authorization") String authorization,
             @RequestBody List<Vacancy> vacancies) {
         try {
             String token = authorization.replace("Bearer ", "");
-            log.info("Получен запрос на добавление {} вакансий", vacancies.size());
 
-            List<Vacancy> savedVacancies = vacancyService.saveVacancies(token, vacancies);
-            int addedCount = savedVacancies.size();
-            int skippedCount = vacancies.size() - addedCount;
+            try (SearchAdmissionService.Admission admission =
+                         searchAdmissionService.admit(SearchAdmissionService.BATCH, token)) {
+                if (!admission.isAdmitted()) {
+                    return tooManyRequests(admission);
+                }
+                log.info("Получен запрос на добавление {} вакансий", vacancies.size());
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("added", addedCount);
-            response.put("skipped", skippedCount);
-            response.put("totalProcessed", vacancies.size());
+                List<Vacancy> savedVacancies = vacancyService.saveVacancies(admission.getTelegramId(), vacancies);
+                int addedCount = savedVacancies.size();
+                int skippedCount = vacancies.size() - addedCount;
 
-            return ResponseEntity.ok(response);
+                Map<String, Object> response = new HashMap<>();
+                response.put("added", addedCount);
+                response.put("skipped", skippedCount);
+                response.put("totalProcessed", vacancies.size());
+
+                return ResponseEntity.ok(response);
+            }
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Ошибка при добавлении вакансий: {}", e.getMessage(), e);
             Map<String, Object> errorResponse = new HashMap<>();
@@ -99,6 +160,43 @@ public class VacancyController {
         }
     }
 
+    @Operation(summary = "Массовый импорт вакансий: тело разбирается потоково и загружается через COPY")
+    @PostMapping(value = "/batch", params = "mode=copy")
+    public ResponseEntity<Map<String, Object>> importVacanciesBatch(
+            @RequestHeader("Authorization") String authorization,
+            HttpServletRequest request) {
+        try {
+            String token = authorization.replace("Bearer ", "");
+
+            try (SearchAdmissionService.Admission admission =
+                         searchAdmissionService.admit(SearchAdmissionService.BATCH, token)) {
+                if (!admission.isAdmitted()) {
+                    return tooManyRequests(admission);
+                }
+                Long userTelegramId = admission.getTelegramId();
+                VacancyBulkImportService.ImportResult result =
+                        bulkImportService.importVacancies(userTelegramId, request.getInputStream());
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("added", result.added());
+                response.put("updated", result.updated());
+                response.put("skipped", result.skipped());
+                response.put("totalProcessed", result.totalProcessed());
+                return ResponseEntity.ok(response);
+            }
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (DependencyUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Ошибка импорта вакансий: {}", e.getMessage(), e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Ошибка при импорте вакансий");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
     @Operation(summary = "Пометить вакансию просмотренной")
     @PostMapping("/{vacancyId}/mark-viewed")
     public ResponseEntity<Void> markAsViewed(
@@ -108,6 +206,8 @@ public class VacancyController {
             String token = authorization.replace("Bearer ", "");
             vacancyService.markAsViewed(token, vacancyId);
             return ResponseEntity.ok().build();
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error marking vacancy as viewed: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
@@ -123,6 +223,8 @@ public class VacancyController {
             String token = authorization.replace("Bearer ", "");
             vacancyService.markMultipleAsViewed(token, vacancyIds);
             return ResponseEntity.ok().build();
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error marking multiple vacancies: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
@@ -138,12 +240,66 @@ public class VacancyController {
             String token = authorization.replace("Bearer ", "");
             vacancyService.deleteVacancy(token, vacancyId);
             return ResponseEntity.ok().build();
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error deleting vacancy: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    @Operation(summary = "Удалить несколько вакансий")
+    @PostMapping("/delete-multiple")
+    public ResponseEntity<Map<String, Object>> deleteMultipleVacancies(
+            @RequestHeader("Authorization") String authorization,
+            @RequestBody List<String> vacancyIds) {
+        try {
+            String token = authorization.replace("Bearer ", "");
+            int deleted = vacancyService.deleteVacancies(token, vacancyIds);
+            return ResponseEntity.ok(Map.of("deleted", deleted));
+        } catch (DependencyUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error deleting multiple vacancies: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @Operation(summary = "Удалить все вакансии (асинхронно, порциями)")
+    @DeleteMapping
+    public ResponseEntity<BulkDeleteJobResponse> deleteAllVacancies(
+            @RequestHeader("Authorization") String authorization) {
+        try {
+            String token = authorization.replace("Bearer ", "");
+            Long userTelegramId = authServiceClient.getCurrentUserProfile(token).getTelegramId();
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(bulkDeleteService.start(userTelegramId));
+        } catch (DependencyUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error starting bulk delete: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @Operation(summary = "Прогресс массового удаления вакансий")
+    @GetMapping("/delete-jobs/{jobId}")
+    public ResponseEntity<BulkDeleteJobResponse> getDeleteJob(
+            @RequestHeader("Authorization") String authorization,
+            @PathVariable String jobId) {
+        try {
+            String token = authorization.replace("Bearer ", "");
+            Long userTelegramId = authServiceClient.getCurrentUserProfile(token).getTelegramId();
+            return bulkDeleteService.getJob(userTelegramId, jobId)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (DependencyUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error getting bulk delete job: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @Operation(summary = "Получить количество новых вакансий")
     @GetMapping("/count/new")
     public ResponseEntity<Long> getNewVacanciesCount(
@@ -152,9 +308,17 @@ public class VacancyController {
             String token = authorization.replace("Bearer ", "");
             Long count = vacancyService.getNewVacanciesCount(token);
             return ResponseEntity.ok(count);
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error getting new vacancies count: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    private <T> ResponseEntity<T> tooManyRequests(SearchAdmissionService.Admission admission) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admission.getRetryAfterSeconds()))
+                .build();
+    }
 }
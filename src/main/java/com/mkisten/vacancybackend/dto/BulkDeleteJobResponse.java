@@ -0,0 +1,16 @@
+package com.mkisten.vacancybackend.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class BulkDeleteJobResponse {
+    private String jobId;
+    private String status;
+    private long deleted;
+    private long total;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
@@ -0,0 +1,57 @@
+package com.mkisten.vacancybackend.dto;
+
+import com.mkisten.vacancybackend.entity.Vacancy;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * Вакансия HH.ru, уже разобранная из JSON-ответа.
+ * Неизменяемая — один и тот же экземпляр разделяется между всеми пользователями,
+ * получившими общий результат поиска; на каждого пользователя создаётся своя копия через {@link #toVacancy(Long)}.
+ * matchText — название и работодатель, заранее нормализованные для фильтра стоп-слов.
+ * contentHash — отпечаток содержимого (VacancyFingerprint) для обнаружения изменений,
+ * simhash — подпись для склейки почти-дублей (VacancySimHash).
+ * publishedAt — время публикации как в ответе HH.ru (без смещения), publishedInstant — тот же момент
+ * с учётом смещения: по нему percolator ведёт водяные знаки лент.
+ */
+public record HHruVacancy(
+        String id,
+        String title,
+        String employer,
+        String city,
+        String schedule,
+        String scheduleId,
+        String salary,
+        Integer salaryFrom,
+        Integer salaryTo,
+        String salaryCurrency,
+        Boolean salaryGross,
+        LocalDateTime publishedAt,
+        Instant publishedInstant,
+        String url,
+        String matchText,
+        long contentHash,
+        long simhash
+) {
+
+    public Vacancy toVacancy(Long userTelegramId) {
+        Vacancy vacancy = new Vacancy();
+        vacancy.setId(id);
+        vacancy.setUserTelegramId(userTelegramId);
+        vacancy.setTitle(title);
+        vacancy.setEmployer(employer);
+        vacancy.setCity(city);
+        vacancy.setSchedule(schedule);
+        vacancy.setSalary(salary);
+        vacancy.setSalaryFrom(salaryFrom);
+        vacancy.setSalaryTo(salaryTo);
+        vacancy.setSalaryCurrency(salaryCurrency);
+        vacancy.setSalaryGross(salaryGross);
+        vacancy.setPublishedAt(publishedAt);
+        vacancy.setUrl(url);
+        vacancy.setContentHash(contentHash);
+        vacancy.setSimhash(simhash);
+        return vacancy;
+    }
+}
@@ -10,6 +10,8 @@ public class SearchRequest {
     private Set<String> workTypes;
     private Set<String> countries;
     private String excludeKeywords;
+    private Integer minSalary;
+    private String salaryCurrency;
     private Boolean telegramNotify = false;
     private Long telegramId;
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.mkisten.vacancybackend.dto;
+
+import com.mkisten.vacancybackend.entity.NotificationMode;
+import com.mkisten.vacancybackend.entity.UserSettings;
+
+import java.util.Set;
+
+/**
+ * Неизменяемый снимок настроек пользователя для поиска и цикла автообновления.
+ * Загружается вместе с коллекциями (UserSettingsSnapshotRepository) и не держит
+ * управляемых сущностей — поэтому его можно кешировать и разделять между потоками (UserSettingsCache).
+ */
+public record UserSettingsSnapshot(
+        Long telegramId,
+        String searchQuery,
+        Integer days,
+        String excludeKeywords,
+        Integer minSalary,
+        String salaryCurrency,
+        Set<String> workTypes,
+        Set<String> countries,
+        Boolean telegramNotify,
+        NotificationMode notifyMode,
+        Integer quietHoursStart,
+        Integer quietHoursEnd,
+        Integer autoUpdateInterval
+) {
+
+    public static UserSettingsSnapshot of(UserSettings settings) {
+        return new UserSettingsSnapshot(
+                settings.getTelegramId(),
+                settings.getSearchQuery(),
+                settings.getDays(),
+                settings.getExcludeKeywords(),
+                settings.getMinSalary(),
+                settings.getSalaryCurrency(),
+                Set.copyOf(settings.getWorkTypes()),
+                Set.copyOf(settings.getCountries()),
+                settings.getTelegramNotify(),
+                settings.getNotifyMode(),
+                settings.getQuietHoursStart(),
+                settings.getQuietHoursEnd(),
+                settings.getAutoUpdateInterval());
+    }
+
+    public SearchRequest toSearchRequest() {
+        SearchRequest request = new SearchRequest();
+        request.setQuery(searchQuery);
+        request.setDays(days);
+        request.setWorkTypes(workTypes);
+        request.setCountries(countries);
+        request.setExcludeKeywords(excludeKeywords);
+        request.setMinSalary(minSalary);
+        request.setSalaryCurrency(salaryCurrency);
+        request.setTelegramNotify(telegramNotify);
+        return request;
+    }
+}
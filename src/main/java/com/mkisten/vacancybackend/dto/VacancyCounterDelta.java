@@ -0,0 +1,41 @@
+package com.mkisten.vacancybackend.dto;
+
+import com.mkisten.vacancybackend.entity.VacancyStatus;
+import lombok.Getter;
+
+/**
+ * Изменение счётчиков вакансий пользователя, накопленное в результате массовой операции.
+ * affected — сколько строк реально затронуто операцией.
+ */
+@Getter
+public class VacancyCounterDelta {
+    private long newDelta;
+    private long viewedDelta;
+    private long hiddenDelta;
+    private long unsentDelta;
+    private long affected;
+
+    public void statusChanged(VacancyStatus from, VacancyStatus to, long count) {
+        addStatus(from, -count);
+        addStatus(to, count);
+        affected += count;
+    }
+
+    public void removed(VacancyStatus status, long count, long unsentCount) {
+        addStatus(status, -count);
+        unsentDelta -= unsentCount;
+        affected += count;
+    }
+
+    public boolean isEmpty() {
+        return newDelta == 0 && viewedDelta == 0 && hiddenDelta == 0 && unsentDelta == 0;
+    }
+
+    private void addStatus(VacancyStatus status, long count) {
+        switch (status) {
+            case NEW -> newDelta += count;
+            case VIEWED -> viewedDelta += count;
+            case HIDDEN -> hiddenDelta += count;
+        }
+    }
+}
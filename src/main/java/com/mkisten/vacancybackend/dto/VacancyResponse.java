@@ -14,6 +14,10 @@ public class VacancyResponse {
     private String city;
     private String schedule;
     private String salary;
+    private Integer salaryFrom;
+    private Integer salaryTo;
+    private String salaryCurrency;
+    private Boolean salaryGross;
     private String url;
     private VacancyStatus status;
     private LocalDateTime publishedAt;
@@ -27,6 +31,10 @@ public class VacancyResponse {
         this.city = vacancy.getCity();
         this.schedule = vacancy.getSchedule();
         this.salary = vacancy.getSalary();
+        this.salaryFrom = vacancy.getSalaryFrom();
+        this.salaryTo = vacancy.getSalaryTo();
+        this.salaryCurrency = vacancy.getSalaryCurrency();
+        this.salaryGross = vacancy.getSalaryGross();
         this.url = vacancy.getUrl();
         this.status = vacancy.getStatus();
         this.publishedAt = vacancy.getPublishedAt();
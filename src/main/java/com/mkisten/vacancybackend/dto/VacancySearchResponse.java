@@ -0,0 +1,13 @@
+package com.mkisten.vacancybackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class VacancySearchResponse {
+    private List<VacancyResponse> items;
+    private String nextCursor; // null — больше страниц нет
+}
@@ -0,0 +1,31 @@
+package com.mkisten.vacancybackend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Курс валюты из справочника HH.ru.
+ * rate — сколько единиц валюты в одном рубле (для RUR = 1), т.е. сумма в рублях = сумма / rate.
+ */
+@Entity
+@Table(name = "currency_rates")
+@Getter
+@Setter
+public class CurrencyRate {
+
+    @Id
+    @Column(name = "code", length = 3)
+    private String code;
+
+    @Column(name = "name", length = 100)
+    private String name;
+
+    @Column(name = "rate", nullable = false)
+    private Double rate;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,46 @@
+package com.mkisten.vacancybackend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Элемент справочника HH.ru: регион из /areas (kind = "area", parentCode — родительский регион)
+ * или значение словаря из /dictionaries (kind — имя словаря, например "schedule").
+ */
+@IdClass(HHruReferenceKey.class)
+@Entity
+@Table(name = "hhru_reference")
+@Getter
+@Setter
+@NoArgsConstructor
+public class HHruReference {
+
+    @Id
+    @Column(name = "kind", length = 20)
+    private String kind;
+
+    @Id
+    @Column(name = "code", length = 50)
+    private String code;
+
+    @Column(name = "parent_code", length = 50)
+    private String parentCode;
+
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public HHruReference(String kind, String code, String parentCode, String name, LocalDateTime updatedAt) {
+        this.kind = kind;
+        this.code = code;
+        this.parentCode = parentCode;
+        this.name = name;
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,45 @@
+package com.mkisten.vacancybackend.entity;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+public class HHruReferenceKey implements Serializable {
+    private String kind;
+    private String code;
+
+    public HHruReferenceKey() {}
+
+    public HHruReferenceKey(String kind, String code) {
+        this.kind = kind;
+        this.code = code;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        HHruReferenceKey that = (HHruReferenceKey) o;
+        return Objects.equals(kind, that.kind) && Objects.equals(code, that.code);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, code);
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+}
@@ -0,0 +1,6 @@
+package com.mkisten.vacancybackend.entity;
+
+/** Как часто пользователю приходят уведомления о новых вакансиях */
+public enum NotificationMode {
+    INSTANT, HOURLY, DAILY
+}
@@ -29,6 +29,12 @@ public class UserSettings {
     @Column(name = "exclude_keywords", length = 1000)
     private String excludeKeywords = "";
 
+    @Column(name = "min_salary")
+    private Integer minSalary;
+
+    @Column(name = "salary_currency", length = 3)
+    private String salaryCurrency;
+
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(
             name = "user_work_types",
@@ -48,6 +54,18 @@ public class UserSettings {
     @Column(name = "telegram_notify")
     private Boolean telegramNotify = false;
 
+    // Мгновенно или подборкой раз в час / день (TelegramDigestScheduler)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "notify_mode", nullable = false)
+    private NotificationMode notifyMode = NotificationMode.INSTANT;
+
+    // Тихие часы [start, end) по app.digest.zone; уведомления копятся и уходят после их окончания
+    @Column(name = "quiet_hours_start")
+    private Integer quietHoursStart;
+
+    @Column(name = "quiet_hours_end")
+    private Integer quietHoursEnd;
+
     @Column(name = "auto_update_enabled")
     private Boolean autoUpdateEnabled = false;
 
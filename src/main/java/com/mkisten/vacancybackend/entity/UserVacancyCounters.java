@@ -0,0 +1,41 @@
+package com.mkisten.vacancybackend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Счётчики вакансий пользователя, поддерживаемые инкрементально
+ * в тех же транзакциях, что и изменения в таблице vacancies.
+ */
+@Entity
+@Table(name = "user_vacancy_counters")
+@Getter
+@Setter
+public class UserVacancyCounters {
+
+    @Id
+    @Column(name = "telegram_id")
+    private Long telegramId;
+
+    @Column(name = "new_count", nullable = false)
+    private long newCount;
+
+    @Column(name = "viewed_count", nullable = false)
+    private long viewedCount;
+
+    @Column(name = "hidden_count", nullable = false)
+    private long hiddenCount;
+
+    @Column(name = "unsent_count", nullable = false)
+    private long unsentCount;
+
+    // Начало последнего окна подборки, за которое уже отправлено уведомление
+    @Column(name = "digest_window_start")
+    private LocalDateTime digestWindowStart;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
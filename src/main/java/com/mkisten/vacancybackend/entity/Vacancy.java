@@ -8,14 +8,16 @@ import java.time.LocalDateTime;
 
 @IdClass(VacancyKey.class)  // <-- ДОБАВЬ ЭТУ АННОТАЦИЮ!
 @Entity
+// Таблица секционирована по loaded_at (см. init.sql): первичный ключ в БД включает loaded_at,
+// а уникальность идентичности (id, user_telegram_id) держит таблица vacancy_keys
+// Запросы по пользователю loaded_at не ограничивают: секции не отсекаются, каждая читается по индексу
 @Table(name = "vacancies", indexes = {
         @Index(name = "idx_user_telegram_id", columnList = "user_telegram_id"),
         @Index(name = "idx_user_sent_to_telegram", columnList = "user_telegram_id,sent_to_telegram"),
-        @Index(name = "idx_published_at", columnList = "published_at")
-},
-        uniqueConstraints = {
-                @UniqueConstraint(name = "uniq_vacancy_user_id", columnNames = {"id", "user_telegram_id"})
-        })
+        @Index(name = "idx_published_at", columnList = "published_at"),
+        @Index(name = "idx_vacancies_status_loaded_at", columnList = "status,loaded_at")
+        // idx_vacancies_user_salary — индекс по выражению COALESCE(salary_to, salary_from), создаётся в init.sql
+})
 @Getter
 @Setter
 public class Vacancy {
@@ -41,7 +43,19 @@ public class Vacancy {
     private String schedule;
 
     @Column(name = "salary", length = 100)
-    private String salary;
+    private String salary; // строка для отображения
+
+    @Column(name = "salary_from")
+    private Integer salaryFrom;
+
+    @Column(name = "salary_to")
+    private Integer salaryTo;
+
+    @Column(name = "salary_currency", length = 3)
+    private String salaryCurrency;
+
+    @Column(name = "salary_gross")
+    private Boolean salaryGross;
 
     @Column(name = "url", length = 500)
     private String url;
@@ -53,12 +67,20 @@ public class Vacancy {
     @Column(name = "published_at")
     private LocalDateTime publishedAt;
 
-    @Column(name = "loaded_at")
+    @Column(name = "loaded_at", nullable = false)
     private LocalDateTime loadedAt;
 
     @Column(name = "sent_to_telegram")
     private Boolean sentToTelegram = false;
 
+    // Отпечаток содержимого (VacancyFingerprint) — для обнаружения изменений при повторной загрузке
+    @Column(name = "content_hash")
+    private Long contentHash;
+
+    // SimHash-подпись (VacancySimHash) — для склейки почти-дублей
+    @Column(name = "simhash")
+    private Long simhash;
+
     // Конструкторы
     public Vacancy() {}
 
@@ -0,0 +1,9 @@
+package com.mkisten.vacancybackend.repository;
+
+import com.mkisten.vacancybackend.entity.CurrencyRate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CurrencyRateRepository extends JpaRepository<CurrencyRate, String> {
+}
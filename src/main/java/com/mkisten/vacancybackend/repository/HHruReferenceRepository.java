@@ -0,0 +1,11 @@
+package com.mkisten.vacancybackend.repository;
+
+import com.mkisten.vacancybackend.entity.HHruReference;
+import com.mkisten.vacancybackend.entity.HHruReferenceKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface HHruReferenceRepository extends JpaRepository<HHruReference, HHruReferenceKey>,
+        HHruReferenceRepositoryCustom {
+}
@@ -0,0 +1,11 @@
+package com.mkisten.vacancybackend.repository;
+
+import com.mkisten.vacancybackend.entity.HHruReference;
+
+import java.util.List;
+
+public interface HHruReferenceRepositoryCustom {
+
+    /** Заменить все элементы справочника kind одной транзакцией (пакетная вставка) */
+    void replaceKind(String kind, List<HHruReference> items);
+}
@@ -0,0 +1,34 @@
+package com.mkisten.vacancybackend.repository;
+
+import com.mkisten.vacancybackend.entity.HHruReference;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class HHruReferenceRepositoryCustomImpl implements HHruReferenceRepositoryCustom {
+
+    private static final String DELETE_KIND_SQL = "DELETE FROM hhru_reference WHERE kind = ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO hhru_reference (kind, code, parent_code, name, updated_at) VALUES (?, ?, ?, ?, ?)";
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Несколько тысяч регионов: через saveAll это был бы SELECT + INSERT на каждую строку
+    @Override
+    @Transactional
+    public void replaceKind(String kind, List<HHruReference> items) {
+        jdbcTemplate.update(DELETE_KIND_SQL, kind);
+        jdbcTemplate.batchUpdate(INSERT_SQL, items, BATCH_SIZE, (ps, item) -> {
+            ps.setString(1, item.getKind());
+            ps.setString(2, item.getCode());
+            ps.setString(3, item.getParentCode());
+            ps.setString(4, item.getName());
+            ps.setTimestamp(5, Timestamp.valueOf(item.getUpdatedAt()));
+        });
+    }
+}
@@ -0,0 +1,93 @@
+package com.mkisten.vacancybackend.repository;
+
+import com.mkisten.vacancybackend.dto.BulkDeleteJobResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Приостановка приёма вакансий пользователя на время массового удаления (таблица vacancy_ingestion_pauses).
+ * Флаг хранится в БД, чтобы его видели все узлы. Пауза действует до paused_until: задача удаления
+ * продлевает её после каждой порции, а пауза упавшего узла истекает сама.
+ * В той же строке лежит состояние последней задачи удаления пользователя (статус, прогресс, ошибка).
+ */
+@Repository
+@RequiredArgsConstructor
+public class IngestionPauseRepository {
+
+    // Новая задача занимает строку, только если пауза предыдущей уже снята или истекла
+    private static final String START_SQL =
+            "INSERT INTO vacancy_ingestion_pauses " +
+            "(telegram_id, paused_until, job_id, status, total, deleted, error, started_at, finished_at) " +
+            "VALUES (?, now() + ? * INTERVAL '1 second', ?, ?, ?, 0, NULL, CURRENT_TIMESTAMP, NULL) " +
+            "ON CONFLICT (telegram_id) DO UPDATE SET paused_until = EXCLUDED.paused_until, " +
+            "job_id = EXCLUDED.job_id, status = EXCLUDED.status, total = EXCLUDED.total, deleted = 0, " +
+            "error = NULL, started_at = EXCLUDED.started_at, finished_at = NULL " +
+            "WHERE vacancy_ingestion_pauses.paused_until <= now()";
+
+    private static final String PROGRESS_SQL =
+            "UPDATE vacancy_ingestion_pauses SET paused_until = now() + ? * INTERVAL '1 second', deleted = ? " +
+            "WHERE telegram_id = ? AND job_id = ?";
+
+    // Завершение задачи снимает паузу, но оставляет её состояние до следующей задачи пользователя
+    private static final String FINISH_SQL =
+            "UPDATE vacancy_ingestion_pauses SET paused_until = now(), status = ?, deleted = ?, error = ?, " +
+            "finished_at = CURRENT_TIMESTAMP WHERE telegram_id = ? AND job_id = ?";
+
+    // Задача, чья пауза истекла без завершения, осталась на упавшем узле
+    private static final String SELECT_JOB_SQL =
+            "SELECT job_id, total, deleted, started_at, finished_at, " +
+            "CASE WHEN status = 'RUNNING' AND paused_until <= now() THEN 'FAILED' ELSE status END AS status, " +
+            "CASE WHEN status = 'RUNNING' AND paused_until <= now() THEN 'abandoned' ELSE error END AS error " +
+            "FROM vacancy_ingestion_pauses WHERE telegram_id = ?";
+
+    private static final String IS_PAUSED_SQL =
+            "SELECT EXISTS (SELECT 1 FROM vacancy_ingestion_pauses WHERE telegram_id = ? AND paused_until > now())";
+
+    private static final RowMapper<BulkDeleteJobResponse> JOB_MAPPER = (rs, rowNum) -> {
+        BulkDeleteJobResponse job = new BulkDeleteJobResponse();
+        job.setJobId(rs.getString("job_id"));
+        job.setStatus(rs.getString("status"));
+        job.setTotal(rs.getLong("total"));
+        job.setDeleted(rs.getLong("deleted"));
+        job.setStartedAt(rs.getObject("started_at", LocalDateTime.class));
+        job.setFinishedAt(rs.getObject("finished_at", LocalDateTime.class));
+        job.setError(rs.getString("error"));
+        return job;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Поставить паузу на ttlSeconds и записать новую задачу удаления.
+     * @return false, если у пользователя уже идёт удаление (на этом или другом узле)
+     */
+    public boolean tryStart(Long telegramId, String jobId, String status, long total, long ttlSeconds) {
+        return jdbcTemplate.update(START_SQL, telegramId, ttlSeconds, jobId, status, total) > 0;
+    }
+
+    /** Продлить паузу на ttlSeconds от текущего момента и записать прогресс задачи */
+    public void extend(Long telegramId, String jobId, long deleted, long ttlSeconds) {
+        jdbcTemplate.update(PROGRESS_SQL, ttlSeconds, deleted, telegramId, jobId);
+    }
+
+    /** Снять паузу и записать итог задачи */
+    public void finish(Long telegramId, String jobId, String status, long deleted, String error) {
+        jdbcTemplate.update(FINISH_SQL, status, deleted, error, telegramId, jobId);
+    }
+
+    /** Последняя задача удаления пользователя */
+    public Optional<BulkDeleteJobResponse> findJob(Long telegramId) {
+        List<BulkDeleteJobResponse> jobs = jdbcTemplate.query(SELECT_JOB_SQL, JOB_MAPPER, telegramId);
+        return jobs.stream().findFirst();
+    }
+
+    public boolean isPaused(Long telegramId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PAUSED_SQL, Boolean.class, telegramId));
+    }
+}
@@ -0,0 +1,87 @@
+package com.mkisten.vacancybackend.repository;
+
+import com.mkisten.vacancybackend.dto.UserSettingsSnapshot;
+import com.mkisten.vacancybackend.entity.NotificationMode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Чтение настроек для планировщика: все пользователи с автообновлением и их коллекции
+ * (типы работы, страны) одним запросом — вместо запроса коллекций на каждого пользователя,
+ * как при EAGER-загрузке сущностей UserSettings.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserSettingsSnapshotRepository {
+
+    private static final String SELECT_SQL =
+            "SELECT s.telegram_id, s.search_query, s.days, s.exclude_keywords, s.min_salary, s.salary_currency," +
+            "       s.telegram_notify, s.notify_mode, s.quiet_hours_start, s.quiet_hours_end, s.auto_update_interval," +
+            "       ARRAY(SELECT w.work_type FROM user_work_types w WHERE w.telegram_id = s.telegram_id) AS work_types," +
+            "       ARRAY(SELECT c.country FROM user_countries c WHERE c.telegram_id = s.telegram_id) AS countries " +
+            "FROM user_settings s ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<UserSettingsSnapshot> findAutoUpdateEnabled() {
+        return jdbcTemplate.query(SELECT_SQL + "WHERE s.auto_update_enabled = true", UserSettingsSnapshotRepository::map);
+    }
+
+    public Optional<UserSettingsSnapshot> findByTelegramId(Long telegramId) {
+        return jdbcTemplate.query(SELECT_SQL + "WHERE s.telegram_id = ?", UserSettingsSnapshotRepository::map, telegramId)
+                .stream().findFirst();
+    }
+
+    /**
+     * Пользователи, которым уведомления приходят подборкой (режим не INSTANT или заданы тихие часы)
+     * и у которых есть неотправленные вакансии — по счётчику unsent_count, без обхода vacancies.
+     */
+    public List<UserSettingsSnapshot> findWithPendingDigest() {
+        return jdbcTemplate.query(SELECT_SQL +
+                "JOIN user_vacancy_counters c ON c.telegram_id = s.telegram_id " +
+                "WHERE s.telegram_notify = true AND c.unsent_count > 0 " +
+                "AND (s.notify_mode <> 'INSTANT' OR s.quiet_hours_start IS NOT NULL)",
+                UserSettingsSnapshotRepository::map);
+    }
+
+    private static UserSettingsSnapshot map(ResultSet rs, int rowNum) throws SQLException {
+        return new UserSettingsSnapshot(
+                rs.getLong("telegram_id"),
+                rs.getString("search_query"),
+                rs.getObject("days", Integer.class),
+                rs.getString("exclude_keywords"),
+                rs.getObject("min_salary", Integer.class),
+                rs.getString("salary_currency"),
+                toSet(rs, "work_types"),
+                toSet(rs, "countries"),
+                rs.getObject("telegram_notify", Boolean.class),
+                toMode(rs.getString("notify_mode")),
+                rs.getObject("quiet_hours_start", Integer.class),
+                rs.getObject("quiet_hours_end", Integer.class),
+                rs.getObject("auto_update_interval", Integer.class));
+    }
+
+    private static NotificationMode toMode(String value) {
+        return value == null ? NotificationMode.INSTANT : NotificationMode.valueOf(value);
+    }
+
+    private static Set<String> toSet(ResultSet rs, String column) throws SQLException {
+        Array array = rs.getArray(column);
+        if (array == null) return Set.of();
+        // Set.of не принимает повторов и null, а таблицы коллекций их не запрещают
+        return Arrays.stream((String[]) array.getArray())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+}
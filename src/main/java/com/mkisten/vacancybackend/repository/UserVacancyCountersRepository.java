@@ -0,0 +1,76 @@
+package com.mkisten.vacancybackend.repository;
+
+import com.mkisten.vacancybackend.entity.UserVacancyCounters;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UserVacancyCountersRepository extends JpaRepository<UserVacancyCounters, Long> {
+
+    // Добавить приращения к счётчикам (0, если строки счётчиков ещё нет)
+    @Modifying
+    @Query(value = "UPDATE user_vacancy_counters SET " +
+            "new_count = new_count + :newDelta, " +
+            "viewed_count = viewed_count + :viewedDelta, " +
+            "hidden_count = hidden_count + :hiddenDelta, " +
+            "unsent_count = unsent_count + :unsentDelta, " +
+            "updated_at = now() " +
+            "WHERE telegram_id = :telegramId", nativeQuery = true)
+    int addDeltas(@Param("telegramId") Long telegramId,
+                  @Param("newDelta") long newDelta,
+                  @Param("viewedDelta") long viewedDelta,
+                  @Param("hiddenDelta") long hiddenDelta,
+                  @Param("unsentDelta") long unsentDelta);
+
+    // Пересчитать счётчики пользователя по таблице vacancies (создаёт строку, если её нет);
+    // 1 — строка создана или исправлена, 0 — счётчики уже верны
+    @Modifying
+    @Query(value = "INSERT INTO user_vacancy_counters AS c " +
+            "(telegram_id, new_count, viewed_count, hidden_count, unsent_count, updated_at) " +
+            "SELECT :telegramId, " +
+            "count(*) FILTER (WHERE status = 'NEW'), " +
+            "count(*) FILTER (WHERE status = 'VIEWED'), " +
+            "count(*) FILTER (WHERE status = 'HIDDEN'), " +
+            "count(*) FILTER (WHERE sent_to_telegram = false), " +
+            "now() " +
+            "FROM vacancies WHERE user_telegram_id = :telegramId " +
+            "ON CONFLICT (telegram_id) DO UPDATE SET " +
+            "new_count = EXCLUDED.new_count, viewed_count = EXCLUDED.viewed_count, " +
+            "hidden_count = EXCLUDED.hidden_count, unsent_count = EXCLUDED.unsent_count, " +
+            "updated_at = EXCLUDED.updated_at " +
+            "WHERE (c.new_count, c.viewed_count, c.hidden_count, c.unsent_count) IS DISTINCT FROM " +
+            "(EXCLUDED.new_count, EXCLUDED.viewed_count, EXCLUDED.hidden_count, EXCLUDED.unsent_count)",
+            nativeQuery = true)
+    int recalculate(@Param("telegramId") Long telegramId);
+
+    // Занять окно подборки: 1 — окно ещё не отправлялось и есть неотправленные вакансии
+    // (условный UPDATE — при нескольких узлах подборку отправит только один)
+    @Modifying
+    @Query(value = "UPDATE user_vacancy_counters SET digest_window_start = :windowStart " +
+            "WHERE telegram_id = :telegramId AND unsent_count > 0 " +
+            "AND (digest_window_start IS NULL OR digest_window_start < :windowStart)", nativeQuery = true)
+    int claimDigestWindow(@Param("telegramId") Long telegramId, @Param("windowStart") LocalDateTime windowStart);
+
+    // Вернуть занятое окно, если подборку отправить не удалось (только если его не занял кто-то позже)
+    @Modifying
+    @Query(value = "UPDATE user_vacancy_counters SET digest_window_start = NULL " +
+            "WHERE telegram_id = :telegramId AND digest_window_start = :windowStart", nativeQuery = true)
+    int releaseDigestWindow(@Param("telegramId") Long telegramId, @Param("windowStart") LocalDateTime windowStart);
+
+    // Очередная порция пользователей для сверки (по возрастанию telegramId, после afterId)
+    @Query(value = "SELECT u.telegram_id FROM (" +
+            "SELECT telegram_id FROM user_vacancy_counters UNION SELECT telegram_id FROM user_settings) u " +
+            "WHERE u.telegram_id > :afterId ORDER BY u.telegram_id LIMIT :limit", nativeQuery = true)
+    List<Long> findReconcileBatch(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    // Заблокировать строку счётчиков до конца транзакции; пусто — строки нет
+    @Query(value = "SELECT telegram_id FROM user_vacancy_counters WHERE telegram_id = :telegramId FOR UPDATE",
+            nativeQuery = true)
+    List<Long> lockCounters(@Param("telegramId") Long telegramId);
+}
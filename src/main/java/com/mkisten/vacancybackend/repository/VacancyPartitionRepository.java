@@ -0,0 +1,106 @@
+package com.mkisten.vacancybackend.repository;
+
+import com.mkisten.vacancybackend.dto.VacancyCounterDelta;
+import com.mkisten.vacancybackend.entity.VacancyStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Обслуживание помесячных секций таблицы vacancies и порционное удаление устаревших строк.
+ * Секции называются vacancies_pYYYY_MM и покрывают [первое число месяца, первое число следующего).
+ */
+@Repository
+@RequiredArgsConstructor
+public class VacancyPartitionRepository {
+
+    private static final String PARTITION_PREFIX = "vacancies_p";
+    private static final DateTimeFormatter SUFFIX_FORMAT = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    // Строки удаляются по первичному ключу порциями — блокировки держатся недолго
+    private static final String DELETE_EXPIRED_BATCH_SQL =
+            "WITH doomed AS (" +
+            "  SELECT user_telegram_id, id, loaded_at FROM vacancies" +
+            "  WHERE status = ? AND loaded_at < ? LIMIT ?), " +
+            "removed AS (" +
+            "  DELETE FROM vacancies v USING doomed d" +
+            "  WHERE v.user_telegram_id = d.user_telegram_id AND v.id = d.id AND v.loaded_at = d.loaded_at" +
+            "  RETURNING v.user_telegram_id, v.status, v.sent_to_telegram) " +
+            "SELECT user_telegram_id, status, count(*), count(*) FILTER (WHERE sent_to_telegram = false) " +
+            "FROM removed GROUP BY user_telegram_id, status";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Секционирована ли таблица (старые установки могли остаться с обычной таблицей) */
+    public boolean isPartitioned() {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'vacancies'::regclass)",
+                Boolean.class);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    /** Месяцы, для которых есть помесячные секции */
+    public List<YearMonth> findMonthlyPartitions() {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'vacancies'::regclass", String.class);
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : names) {
+            if (name.startsWith(PARTITION_PREFIX)) {
+                months.add(YearMonth.parse(name.substring(PARTITION_PREFIX.length()), SUFFIX_FORMAT));
+            }
+        }
+        return months;
+    }
+
+    public void createMonthlyPartition(YearMonth month) {
+        jdbcTemplate.execute(String.format(
+                "CREATE TABLE IF NOT EXISTS %s PARTITION OF vacancies FOR VALUES FROM ('%s') TO ('%s')",
+                partitionName(month), month.atDay(1), month.plusMonths(1).atDay(1)));
+    }
+
+    /**
+     * Отсоединить и удалить секцию. Вызывать в транзакции: lock_timeout ограничивает ожидание
+     * блокировки родительской таблицы, при таймауте секция будет удалена в следующий запуск.
+     * DROP не вызывает триггеры удаления, поэтому ключи строк секции (vacancy_keys) удаляются здесь же.
+     */
+    public void detachAndDropPartition(YearMonth month, long lockTimeoutMs) {
+        String name = partitionName(month);
+        jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+        jdbcTemplate.execute("ALTER TABLE vacancies DETACH PARTITION " + name);
+        jdbcTemplate.update("DELETE FROM vacancy_keys WHERE loaded_at >= ? AND loaded_at < ?",
+                Timestamp.valueOf(month.atDay(1).atStartOfDay()),
+                Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay()));
+        jdbcTemplate.execute("DROP TABLE " + name);
+    }
+
+    /**
+     * Удалить одну порцию строк в данном статусе, загруженных раньше cutoff.
+     * @return изменения счётчиков по пользователям
+     */
+    public Map<Long, VacancyCounterDelta> deleteExpiredBatch(VacancyStatus status, LocalDateTime cutoff, int batchSize) {
+        Map<Long, VacancyCounterDelta> deltas = new HashMap<>();
+        jdbcTemplate.query(DELETE_EXPIRED_BATCH_SQL, ps -> {
+            ps.setString(1, status.name());
+            ps.setTimestamp(2, Timestamp.valueOf(cutoff));
+            ps.setInt(3, batchSize);
+        }, (RowCallbackHandler) rs -> deltas
+                .computeIfAbsent(rs.getLong(1), id -> new VacancyCounterDelta())
+                .removed(VacancyStatus.valueOf(rs.getString(2)), rs.getLong(3), rs.getLong(4)));
+        return deltas;
+    }
+
+    private String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(SUFFIX_FORMAT);
+    }
+}
@@ -11,10 +11,9 @@ import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 @Repository
-public interface VacancyRepository extends JpaRepository<Vacancy, VacancyKey> {
+public interface VacancyRepository extends JpaRepository<Vacancy, VacancyKey>, VacancyRepositoryCustom {
 
     // Найти все вакансии пользователя
     List<Vacancy> findByUserTelegramIdOrderByPublishedAtDesc(Long userTelegramId);
@@ -23,52 +22,30 @@ public interface VacancyRepository extends JpaRepository<Vacancy, VacancyKey> {
     List<Vacancy> findByUserTelegramIdAndStatusOrderByPublishedAtDesc(
             Long userTelegramId, VacancyStatus status);
 
+    // Вакансии пользователя с фильтром по зарплате: порог в рублях переводится в валюту вакансии по курсу
+    // из currency_rates и сравнивается с верхней границей вилки, если есть, иначе с нижней — так условие
+    // обслуживает индекс idx_vacancies_user_salary (init.sql). Вакансии без зарплаты или с неизвестной валютой не попадают
+    @Query("SELECT v FROM Vacancy v JOIN CurrencyRate r ON r.code = v.salaryCurrency " +
+            "WHERE v.userTelegramId = :userTelegramId " +
+            "AND (:status IS NULL OR v.status = :status) " +
+            "AND (:currency IS NULL OR v.salaryCurrency = :currency) " +
+            "AND (:minSalaryRub IS NULL OR COALESCE(v.salaryTo, v.salaryFrom) >= CAST(CEILING(:minSalaryRub * r.rate) AS Integer)) " +
+            "ORDER BY v.publishedAt DESC")
+    List<Vacancy> findByUserAndSalary(@Param("userTelegramId") Long userTelegramId,
+                                      @Param("status") VacancyStatus status,
+                                      @Param("currency") String currency,
+                                      @Param("minSalaryRub") Double minSalaryRub);
+
     // Проверка существования вакансии для пользователя
     boolean existsByIdAndUserTelegramId(String id, Long userTelegramId);
 
     // Найти только неотправленные вакансии пользователя, отсортированные по дате
     List<Vacancy> findByUserTelegramIdAndSentToTelegramFalseOrderByPublishedAtAsc(Long userTelegramId);
 
-    // Получить id всех вакансий пользователя
-    @Query("SELECT v.id FROM Vacancy v WHERE v.userTelegramId = :userTelegramId")
-    Set<String> findVacancyIdsByUser(@Param("userTelegramId") Long userTelegramId);
-
-    // Обновить статус вакансии пользователя
-    @Modifying
-    @Query("UPDATE Vacancy v SET v.status = :status WHERE v.userTelegramId = :userTelegramId AND v.id = :vacancyId")
-    void updateStatus(@Param("userTelegramId") Long userTelegramId,
-                      @Param("vacancyId") String vacancyId,
-                      @Param("status") VacancyStatus status);
-
-    // Обновить статус нескольких вакансий
-    @Modifying
-    @Query("UPDATE Vacancy v SET v.status = :status WHERE v.userTelegramId = :userTelegramId AND v.id IN :vacancyIds")
-    void updateMultipleStatus(@Param("userTelegramId") Long userTelegramId,
-                              @Param("vacancyIds") List<String> vacancyIds,
-                              @Param("status") VacancyStatus status);
-
-    // Удалить вакансию пользователя
-    @Modifying
-    @Query("DELETE FROM Vacancy v WHERE v.userTelegramId = :userTelegramId AND v.id = :vacancyId")
-    void deleteByUserAndId(@Param("userTelegramId") Long userTelegramId,
-                           @Param("vacancyId") String vacancyId);
-
-    // Удалить все вакансии пользователя
-    @Modifying
-    @Query("DELETE FROM Vacancy v WHERE v.userTelegramId = :userTelegramId")
-    void deleteAllByUserTelegramId(@Param("userTelegramId") Long userTelegramId);
-
     // Считать новые вакансии пользователя
     @Query("SELECT COUNT(v) FROM Vacancy v WHERE v.userTelegramId = :userTelegramId AND v.status = 'NEW'")
     Long countNewVacancies(@Param("userTelegramId") Long userTelegramId);
 
-    // Пометить вакансии как отправленные
-    @Modifying
-    @Query("UPDATE Vacancy v SET v.sentToTelegram = true WHERE v.userTelegramId = :userTelegramId AND v.id IN :ids")
-    int markAsSentToTelegram(@Param("userTelegramId") Long userTelegramId, @Param("ids") List<String> ids);
-
-    // Пометить вакансию как отправленную
-    @Modifying
-    @Query("UPDATE Vacancy v SET v.sentToTelegram = true WHERE v.userTelegramId = :userTelegramId AND v.id = :vacancyId")
-    int markSingleAsSentToTelegram(@Param("userTelegramId") Long userTelegramId, @Param("vacancyId") String vacancyId);
+    // Сколько из указанных вакансий пользователя сейчас в данном статусе
+    long countByUserTelegramIdAndStatusAndIdIn(Long userTelegramId, VacancyStatus status, List<String> ids);
 }
@@ -0,0 +1,52 @@
+package com.mkisten.vacancybackend.repository;
+
+import com.mkisten.vacancybackend.dto.VacancyCounterDelta;
+import com.mkisten.vacancybackend.entity.Vacancy;
+import com.mkisten.vacancybackend.entity.VacancyStatus;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Массовые операции над вакансиями пользователя.
+ * Список id передаётся одним параметром-массивом (id = ANY(?)), поэтому текст запроса
+ * не зависит от количества id; очень большие списки автоматически режутся на чанки.
+ * Операции, меняющие статусы или удаляющие строки, возвращают изменение счётчиков пользователя.
+ */
+public interface VacancyRepositoryCustom {
+
+    // Отпечатки содержимого уже сохранённых у пользователя вакансий из списка (id -> отпечаток, 0 — неизвестен)
+    Map<String, Long> findContentHashes(Long userTelegramId, Collection<String> vacancyIds);
+
+    // Обойти все вакансии пользователя: id и отпечаток содержимого
+    void forEachContentHash(Long userTelegramId, ObjLongConsumer<String> consumer);
+
+    // SimHash-подписи вакансий пользователя (только непустые)
+    void forEachSimHash(Long userTelegramId, LongConsumer consumer);
+
+    // SimHash-подписи вакансий первых maxUsers пользователей (по возрастанию id) — потоково,
+    // для прогрева индекса почти-дублей; чтение прекращается на первой строке сверх лимита
+    void forEachSimHash(long maxUsers, ObjLongConsumer<Long> consumer);
+
+    // Блокировка вставки вакансий пользователя до конца транзакции (advisory-блокировка по telegramId):
+    // ею сериализуются все пути записи — загрузка из источников и потоковый импорт
+    void lockUserForInsert(Long userTelegramId);
+
+    // Перезаписать содержимое изменившихся вакансий (только строки, у которых отпечаток отличается)
+    int updateContent(Long userTelegramId, List<Vacancy> vacancies);
+
+    // Обновить статус нескольких вакансий
+    VacancyCounterDelta updateMultipleStatus(Long userTelegramId, Collection<String> vacancyIds, VacancyStatus status);
+
+    // Пометить вакансии как отправленные
+    int markAsSentToTelegram(Long userTelegramId, Collection<String> vacancyIds);
+
+    // Удалить несколько вакансий пользователя
+    VacancyCounterDelta deleteMultiple(Long userTelegramId, Collection<String> vacancyIds);
+
+    // Удалить не более limit вакансий пользователя (порция массового удаления)
+    VacancyCounterDelta deleteBatchForUser(Long userTelegramId, int limit);
+}
@@ -0,0 +1,208 @@
+package com.mkisten.vacancybackend.repository;
+
+import com.mkisten.vacancybackend.dto.VacancyCounterDelta;
+import com.mkisten.vacancybackend.entity.Vacancy;
+import com.mkisten.vacancybackend.entity.VacancyStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+import java.util.function.ObjLongConsumer;
+
+@RequiredArgsConstructor
+public class VacancyRepositoryCustomImpl implements VacancyRepositoryCustom {
+
+    private static final String CONTENT_HASHES_SQL =
+            "SELECT id, content_hash FROM vacancies WHERE user_telegram_id = ? AND id = ANY(?)";
+    private static final String ALL_CONTENT_HASHES_SQL =
+            "SELECT id, content_hash FROM vacancies WHERE user_telegram_id = ?";
+    private static final String USER_SIMHASHES_SQL =
+            "SELECT simhash FROM vacancies WHERE user_telegram_id = ? AND simhash IS NOT NULL AND simhash <> 0";
+    private static final String ALL_SIMHASHES_SQL =
+            "SELECT user_telegram_id, simhash FROM vacancies WHERE simhash IS NOT NULL AND simhash <> 0 " +
+            "ORDER BY user_telegram_id";
+    // Дата публикации обновляется вместе с содержимым, статус и отметка отправки — нет
+    private static final String UPDATE_CONTENT_SQL =
+            "UPDATE vacancies SET title = ?, employer = ?, city = ?, schedule = ?, salary = ?, salary_from = ?," +
+            " salary_to = ?, salary_currency = ?, salary_gross = ?, url = ?, published_at = ?, content_hash = ? " +
+            "WHERE user_telegram_id = ? AND id = ? AND content_hash IS DISTINCT FROM ?";
+    // Самосоединение отдаёт старый статус каждой изменённой строки — для счётчиков
+    private static final String UPDATE_STATUS_SQL =
+            "WITH changed AS (" +
+            "  UPDATE vacancies v SET status = ? FROM vacancies o" +
+            "  WHERE v.user_telegram_id = ? AND v.id = ANY(?) AND v.status <> ?" +
+            "    AND o.user_telegram_id = v.user_telegram_id AND o.id = v.id" +
+            "  RETURNING o.status AS old_status) " +
+            "SELECT old_status, count(*) FROM changed GROUP BY old_status";
+    private static final String MARK_SENT_SQL =
+            "UPDATE vacancies SET sent_to_telegram = true WHERE user_telegram_id = ? AND id = ANY(?) " +
+            "AND sent_to_telegram = false";
+    private static final String DELETE_SQL =
+            "WITH removed AS (" +
+            "  DELETE FROM vacancies WHERE user_telegram_id = ? AND id = ANY(?)" +
+            "  RETURNING status, sent_to_telegram) " +
+            "SELECT status, count(*), count(*) FILTER (WHERE sent_to_telegram = false) " +
+            "FROM removed GROUP BY status";
+    private static final String DELETE_USER_BATCH_SQL =
+            "WITH doomed AS (" +
+            "  SELECT user_telegram_id, id, loaded_at FROM vacancies WHERE user_telegram_id = ? LIMIT ?), " +
+            "removed AS (" +
+            "  DELETE FROM vacancies v USING doomed d" +
+            "  WHERE v.user_telegram_id = d.user_telegram_id AND v.id = d.id AND v.loaded_at = d.loaded_at" +
+            "  RETURNING v.status, v.sent_to_telegram) " +
+            "SELECT status, count(*), count(*) FILTER (WHERE sent_to_telegram = false) " +
+            "FROM removed GROUP BY status";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.bulk.chunk-size:5000}")
+    private int chunkSize;
+
+    @Override
+    public Map<String, Long> findContentHashes(Long userTelegramId, Collection<String> vacancyIds) {
+        Map<String, Long> existing = new HashMap<>();
+        for (List<String> chunk : chunks(vacancyIds)) {
+            jdbcTemplate.query(CONTENT_HASHES_SQL, ps -> {
+                ps.setLong(1, userTelegramId);
+                ps.setArray(2, ps.getConnection().createArrayOf("text", chunk.toArray()));
+            }, (RowCallbackHandler) rs -> existing.put(rs.getString(1), rs.getLong(2)));
+        }
+        return existing;
+    }
+
+    @Override
+    public void forEachContentHash(Long userTelegramId, ObjLongConsumer<String> consumer) {
+        jdbcTemplate.query(ALL_CONTENT_HASHES_SQL, ps -> ps.setLong(1, userTelegramId),
+                (RowCallbackHandler) rs -> consumer.accept(rs.getString(1), rs.getLong(2)));
+    }
+
+    @Override
+    public void forEachSimHash(Long userTelegramId, LongConsumer consumer) {
+        jdbcTemplate.query(USER_SIMHASHES_SQL, ps -> ps.setLong(1, userTelegramId),
+                (RowCallbackHandler) rs -> consumer.accept(rs.getLong(1)));
+    }
+
+    @Override
+    public void forEachSimHash(long maxUsers, ObjLongConsumer<Long> consumer) {
+        // Курсор с ограниченной выборкой — работает только внутри транзакции
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(chunkSize);
+        streaming.query(ALL_SIMHASHES_SQL, (ResultSetExtractor<Void>) rs -> {
+            long users = 0;
+            long currentUser = 0;
+            while (rs.next()) {
+                long userId = rs.getLong(1);
+                if (users == 0 || userId != currentUser) {
+                    if (++users > maxUsers) break;
+                    currentUser = userId;
+                }
+                consumer.accept(userId, rs.getLong(2));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void lockUserForInsert(Long userTelegramId) {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", userTelegramId);
+    }
+
+    @Override
+    public int updateContent(Long userTelegramId, List<Vacancy> vacancies) {
+        if (vacancies.isEmpty()) return 0;
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_CONTENT_SQL, vacancies, chunkSize, (ps, v) -> {
+            ps.setString(1, v.getTitle());
+            ps.setString(2, v.getEmployer());
+            ps.setString(3, v.getCity());
+            ps.setString(4, v.getSchedule());
+            ps.setString(5, v.getSalary());
+            ps.setObject(6, v.getSalaryFrom(), Types.INTEGER);
+            ps.setObject(7, v.getSalaryTo(), Types.INTEGER);
+            ps.setString(8, v.getSalaryCurrency());
+            ps.setObject(9, v.getSalaryGross(), Types.BOOLEAN);
+            ps.setString(10, v.getUrl());
+            ps.setObject(11, v.getPublishedAt());
+            ps.setLong(12, v.getContentHash());
+            ps.setLong(13, userTelegramId);
+            ps.setString(14, v.getId());
+            ps.setLong(15, v.getContentHash());
+        });
+        int updated = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                updated += Math.max(count, 0);
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public VacancyCounterDelta updateMultipleStatus(Long userTelegramId, Collection<String> vacancyIds,
+                                                    VacancyStatus status) {
+        VacancyCounterDelta delta = new VacancyCounterDelta();
+        for (List<String> chunk : chunks(vacancyIds)) {
+            jdbcTemplate.query(UPDATE_STATUS_SQL, ps -> {
+                ps.setString(1, status.name());
+                ps.setLong(2, userTelegramId);
+                ps.setArray(3, ps.getConnection().createArrayOf("text", chunk.toArray()));
+                ps.setString(4, status.name());
+            }, (RowCallbackHandler) rs ->
+                    delta.statusChanged(VacancyStatus.valueOf(rs.getString(1)), status, rs.getLong(2)));
+        }
+        return delta;
+    }
+
+    @Override
+    public int markAsSentToTelegram(Long userTelegramId, Collection<String> vacancyIds) {
+        int affected = 0;
+        for (List<String> chunk : chunks(vacancyIds)) {
+            affected += jdbcTemplate.update(MARK_SENT_SQL, ps -> {
+                ps.setLong(1, userTelegramId);
+                ps.setArray(2, ps.getConnection().createArrayOf("text", chunk.toArray()));
+            });
+        }
+        return affected;
+    }
+
+    @Override
+    public VacancyCounterDelta deleteMultiple(Long userTelegramId, Collection<String> vacancyIds) {
+        VacancyCounterDelta delta = new VacancyCounterDelta();
+        for (List<String> chunk : chunks(vacancyIds)) {
+            jdbcTemplate.query(DELETE_SQL, ps -> {
+                ps.setLong(1, userTelegramId);
+                ps.setArray(2, ps.getConnection().createArrayOf("text", chunk.toArray()));
+            }, (RowCallbackHandler) rs ->
+                    delta.removed(VacancyStatus.valueOf(rs.getString(1)), rs.getLong(2), rs.getLong(3)));
+        }
+        return delta;
+    }
+
+    @Override
+    public VacancyCounterDelta deleteBatchForUser(Long userTelegramId, int limit) {
+        VacancyCounterDelta delta = new VacancyCounterDelta();
+        jdbcTemplate.query(DELETE_USER_BATCH_SQL, ps -> {
+            ps.setLong(1, userTelegramId);
+            ps.setInt(2, limit);
+        }, (RowCallbackHandler) rs ->
+                delta.removed(VacancyStatus.valueOf(rs.getString(1)), rs.getLong(2), rs.getLong(3)));
+        return delta;
+    }
+
+    private List<List<String>> chunks(Collection<String> ids) {
+        List<String> all = new ArrayList<>(ids);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += chunkSize) {
+            chunks.add(all.subList(from, Math.min(all.size(), from + chunkSize)));
+        }
+        return chunks;
+    }
+}
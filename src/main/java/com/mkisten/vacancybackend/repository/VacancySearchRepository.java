@@ -0,0 +1,93 @@
+package com.mkisten.vacancybackend.repository;
+
+import com.mkisten.vacancybackend.entity.Vacancy;
+import com.mkisten.vacancybackend.entity.VacancyStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Полнотекстовый поиск по сохранённым вакансиям пользователя (колонка search_vector, GIN-индекс).
+ * Результаты упорядочены по релевантности, пагинация — по ключу (rank, id), без OFFSET.
+ */
+@Repository
+@RequiredArgsConstructor
+public class VacancySearchRepository {
+
+    // Запрос понимает синтаксис веб-поиска ("фраза", -исключение, or) в обеих конфигурациях
+    private static final String SEARCH_SQL =
+            "WITH q AS (SELECT websearch_to_tsquery('russian', ?) || websearch_to_tsquery('english', ?) AS query) " +
+            "SELECT * FROM (" +
+            "  SELECT v.id, v.user_telegram_id, v.title, v.employer, v.city, v.schedule, v.salary," +
+            "         v.salary_from, v.salary_to, v.salary_currency, v.salary_gross, v.url, v.status," +
+            "         v.published_at, v.loaded_at, v.sent_to_telegram," +
+            "         ts_rank_cd(v.search_vector, q.query)::real AS rank" +
+            "  FROM vacancies v, q WHERE v.user_telegram_id = ? AND v.search_vector @@ q.query) s ";
+    private static final String AFTER_CURSOR = "WHERE rank < ? OR (rank = ? AND id > ?) ";
+    private static final String ORDER_AND_LIMIT = "ORDER BY rank DESC, id ASC LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Найти вакансии пользователя по запросу.
+     * afterRank/afterId — ключ последней строки предыдущей страницы (null для первой страницы).
+     */
+    public List<RankedVacancy> search(Long userTelegramId, String query, Float afterRank, String afterId, int limit) {
+        boolean hasCursor = afterRank != null && afterId != null;
+        String sql = SEARCH_SQL + (hasCursor ? AFTER_CURSOR : "") + ORDER_AND_LIMIT;
+        return jdbcTemplate.query(sql, ps -> {
+            int i = 1;
+            ps.setString(i++, query);
+            ps.setString(i++, query);
+            ps.setLong(i++, userTelegramId);
+            if (hasCursor) {
+                ps.setFloat(i++, afterRank);
+                ps.setFloat(i++, afterRank);
+                ps.setString(i++, afterId);
+            }
+            ps.setInt(i, limit);
+        }, (rs, rowNum) -> new RankedVacancy(mapVacancy(rs), rs.getFloat("rank")));
+    }
+
+    /**
+     * Есть ли колонка search_vector в текущей схеме. Колонка и GIN-индекс создаются в init.sql:
+     * добавление генерируемой колонки на живой таблице — перезапись всей таблицы под эксклюзивной блокировкой.
+     */
+    public boolean hasSearchColumn() {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM information_schema.columns " +
+                "WHERE table_schema = current_schema() AND table_name = 'vacancies' AND column_name = 'search_vector')",
+                Boolean.class);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    private static Vacancy mapVacancy(ResultSet rs) throws SQLException {
+        Vacancy vacancy = new Vacancy();
+        vacancy.setId(rs.getString("id"));
+        vacancy.setUserTelegramId(rs.getLong("user_telegram_id"));
+        vacancy.setTitle(rs.getString("title"));
+        vacancy.setEmployer(rs.getString("employer"));
+        vacancy.setCity(rs.getString("city"));
+        vacancy.setSchedule(rs.getString("schedule"));
+        vacancy.setSalary(rs.getString("salary"));
+        vacancy.setSalaryFrom(rs.getObject("salary_from", Integer.class));
+        vacancy.setSalaryTo(rs.getObject("salary_to", Integer.class));
+        vacancy.setSalaryCurrency(rs.getString("salary_currency"));
+        vacancy.setSalaryGross(rs.getObject("salary_gross", Boolean.class));
+        vacancy.setUrl(rs.getString("url"));
+        vacancy.setStatus(VacancyStatus.valueOf(rs.getString("status")));
+        Timestamp publishedAt = rs.getTimestamp("published_at");
+        vacancy.setPublishedAt(publishedAt != null ? publishedAt.toLocalDateTime() : null);
+        vacancy.setLoadedAt(rs.getTimestamp("loaded_at").toLocalDateTime());
+        vacancy.setSentToTelegram(rs.getBoolean("sent_to_telegram"));
+        return vacancy;
+    }
+
+    public record RankedVacancy(Vacancy vacancy, float rank) {
+    }
+}
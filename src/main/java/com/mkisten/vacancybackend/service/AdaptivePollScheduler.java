@@ -0,0 +1,110 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.dto.UserSettingsSnapshot;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Адаптивная частота автообновления по отдаче поиска.
+ * После пустого цикла задержка до следующего опроса растёт в backoff-multiplier раз
+ * (до max-interval-minutes), после цикла с новыми вакансиями сбрасывается к минимуму.
+ * Минимум — autoUpdateInterval пользователя (но не меньше min-interval-minutes).
+ * История хранится в памяти по пользователю и сбрасывается при изменении параметров поиска.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AdaptivePollScheduler {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.auto-update.min-interval-minutes:1}")
+    private int minIntervalMinutes;
+
+    @Value("${app.auto-update.max-interval-minutes:720}")
+    private int maxIntervalMinutes;
+
+    @Value("${app.auto-update.backoff-multiplier:2.0}")
+    private double backoffMultiplier;
+
+    private final Map<Long, PollState> states = new ConcurrentHashMap<>();
+
+    /** Пора ли опрашивать поиск пользователя */
+    public boolean isDue(UserSettingsSnapshot settings, Instant now) {
+        PollState state = states.get(settings.telegramId());
+        if (state == null || state.signature != signature(settings)) {
+            return true;
+        }
+        // Минимум берётся заново: пользователь мог поменять autoUpdateInterval после прошлого опроса
+        long delay = Math.max(floorMinutes(settings), Math.min(state.delayMinutes, maxIntervalMinutes));
+        return !now.isBefore(state.lastPollAt.plus(Duration.ofMinutes(delay)));
+    }
+
+    /** Запомнить результат опроса: сколько новых вакансий он принёс */
+    public void recordResult(UserSettingsSnapshot settings, int newVacancies, Instant now) {
+        long floor = floorMinutes(settings);
+        int signature = signature(settings);
+        PollState state = states.compute(settings.telegramId(), (id, previous) -> {
+            PollState next = previous != null && previous.signature == signature
+                    ? previous : new PollState(signature, floor);
+            next.lastPollAt = now;
+            next.polls++;
+            next.avgYield = next.polls == 1 ? newVacancies : next.avgYield * 0.8 + newVacancies * 0.2;
+            next.delayMinutes = newVacancies > 0
+                    ? floor
+                    : Math.min(maxIntervalMinutes, Math.max(floor, (long) Math.ceil(next.delayMinutes * backoffMultiplier)));
+            return next;
+        });
+        DistributionSummary.builder("vacancy.auto_update.poll_delay_minutes")
+                .description("Задержка до следующего автообновления поиска")
+                .register(meterRegistry)
+                .record(state.delayMinutes);
+        log.debug("User {}: {} new vacancies, avg yield {}, next poll in {} min",
+                settings.telegramId(), newVacancies, String.format("%.2f", state.avgYield), state.delayMinutes);
+    }
+
+    /** Забыть пользователей, у которых автообновление выключено */
+    public void retainOnly(Collection<UserSettingsSnapshot> active) {
+        Set<Long> ids = active.stream().map(UserSettingsSnapshot::telegramId).collect(Collectors.toSet());
+        states.keySet().retainAll(ids);
+    }
+
+    private long floorMinutes(UserSettingsSnapshot settings) {
+        Integer interval = settings.autoUpdateInterval();
+        return Math.max(minIntervalMinutes, interval != null ? interval : minIntervalMinutes);
+    }
+
+    // Параметры, определяющие выдачу HH.ru: при их изменении история отдачи неактуальна
+    private static int signature(UserSettingsSnapshot settings) {
+        return Objects.hash(settings.searchQuery(), settings.days(), settings.excludeKeywords(),
+                settings.minSalary(), settings.salaryCurrency(),
+                settings.workTypes() != null ? Set.copyOf(settings.workTypes()) : null,
+                settings.countries() != null ? Set.copyOf(settings.countries()) : null);
+    }
+
+    private static final class PollState {
+        private final int signature;
+        private Instant lastPollAt;
+        private long delayMinutes;
+        private long polls;
+        private double avgYield;
+
+        private PollState(int signature, long delayMinutes) {
+            this.signature = signature;
+            this.delayMinutes = delayMinutes;
+        }
+    }
+}
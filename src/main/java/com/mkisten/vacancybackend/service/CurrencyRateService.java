@@ -0,0 +1,87 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.entity.CurrencyRate;
+import com.mkisten.vacancybackend.repository.CurrencyRateRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Курсы валют для сравнения зарплат в разных валютах.
+ * Приходят из справочника HH.ru /dictionaries, который загружает HHruReferenceDataService,
+ * сохраняются в таблицу currency_rates (по ней же фильтруются зарплаты в SQL)
+ * и держатся в памяти для пересчёта порогов.
+ * Если HH.ru недоступен, используются курсы, сохранённые ранее.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CurrencyRateService {
+
+    public static final String DEFAULT_CURRENCY = "RUR";
+
+    private final CurrencyRateRepository currencyRateRepository;
+
+    private volatile Map<String, Double> rates = Map.of(DEFAULT_CURRENCY, 1.0);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        loadFromDatabase();
+    }
+
+    /** Обновить курсы по разделу currency справочника /dictionaries; пустой или null — оставить сохранённые */
+    public void update(List<Map<String, Object>> currencies) {
+        if (currencies != null && !currencies.isEmpty()) {
+            saveRates(currencies);
+        }
+        loadFromDatabase();
+    }
+
+    /** Перевести сумму в рубли; null, если курс валюты неизвестен */
+    public Double toRubles(Integer amount, String currency) {
+        if (amount == null) return null;
+        Double rate = rates.get(normalize(currency));
+        return rate == null || rate == 0 ? null : amount / rate;
+    }
+
+    public boolean isKnown(String currency) {
+        return rates.containsKey(normalize(currency));
+    }
+
+    private void saveRates(List<Map<String, Object>> currencies) {
+        LocalDateTime now = LocalDateTime.now();
+        List<CurrencyRate> entities = new ArrayList<>();
+        for (Map<String, Object> currency : currencies) {
+            Object rate = currency.get("rate");
+            if (currency.get("code") == null || !(rate instanceof Number number) || number.doubleValue() <= 0) continue;
+            CurrencyRate entity = new CurrencyRate();
+            entity.setCode(currency.get("code").toString());
+            entity.setName((String) currency.get("name"));
+            entity.setRate(number.doubleValue());
+            entity.setUpdatedAt(now);
+            entities.add(entity);
+        }
+        currencyRateRepository.saveAll(entities);
+        log.info("Курсы валют HH.ru обновлены: {} валют", entities.size());
+    }
+
+    private void loadFromDatabase() {
+        Map<String, Double> loaded = new HashMap<>();
+        currencyRateRepository.findAll().forEach(rate -> loaded.put(rate.getCode(), rate.getRate()));
+        loaded.putIfAbsent(DEFAULT_CURRENCY, 1.0);
+        rates = Map.copyOf(loaded);
+    }
+
+    private String normalize(String currency) {
+        return currency == null || currency.isBlank() ? DEFAULT_CURRENCY : currency.toUpperCase(Locale.ROOT);
+    }
+}
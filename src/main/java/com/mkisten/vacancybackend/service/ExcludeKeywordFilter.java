@@ -0,0 +1,50 @@
+package com.mkisten.vacancybackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mkisten.vacancybackend.dto.HHruVacancy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фильтр вакансий по стоп-словам пользователя (название и работодатель).
+ * Автомат строится один раз на строку excludeKeywords: ключ кеша — сама строка, поэтому
+ * после изменения настроек автоматически используется новый автомат, а пользователи
+ * с одинаковым списком делят один экземпляр.
+ * Нормализованный текст вакансии вычисляется при разборе ответа HH.ru (HHruVacancy.matchText),
+ * так что при раздаче одного результата многим пользователям текст заново не готовится.
+ */
+@Slf4j
+@Service
+public class ExcludeKeywordFilter {
+
+    private final Cache<String, KeywordMatcher> matchers = Caffeine.newBuilder()
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .maximumSize(10_000)
+            .build();
+
+    public KeywordMatcher matcherFor(String excludeKeywords) {
+        if (excludeKeywords == null || excludeKeywords.isBlank()) {
+            return KeywordMatcher.EMPTY;
+        }
+        return matchers.get(excludeKeywords, KeywordMatcher::compile);
+    }
+
+    /** Оставить вакансии, не содержащие стоп-слов; исходный (общий) список не меняется */
+    public List<HHruVacancy> filter(List<HHruVacancy> items, String excludeKeywords) {
+        KeywordMatcher matcher = matcherFor(excludeKeywords);
+        if (matcher.isEmpty() || items.isEmpty()) {
+            return items;
+        }
+        List<HHruVacancy> kept = items.stream()
+                .filter(item -> !matcher.matches(item.matchText()))
+                .toList();
+        if (kept.size() != items.size()) {
+            log.debug("Excluded {} of {} vacancies by keywords", items.size() - kept.size(), items.size());
+        }
+        return kept;
+    }
+}
@@ -1,24 +1,40 @@
 package com.mkisten.vacancybackend.service;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.mkisten.vacancybackend.client.AuthServiceClient;
+import com.mkisten.vacancybackend.client.DependencyGuards;
+import com.mkisten.vacancybackend.client.DependencyUnavailableException;
+import com.mkisten.vacancybackend.dto.HHruVacancy;
 import com.mkisten.vacancybackend.dto.ProfileResponse;
 import com.mkisten.vacancybackend.dto.SearchRequest;
 import com.mkisten.vacancybackend.entity.Vacancy;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.net.URI;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.temporal.ChronoField;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 @Service
@@ -27,6 +43,9 @@ public class HHruApiService {
 
     private final RestTemplate restTemplate;
     private final AuthServiceClient authServiceClient;
+    private final ExcludeKeywordFilter excludeKeywordFilter;
+    private final HHruReferenceDataService referenceData;
+    private final DependencyGuards guards;
 
     @Value("${app.hhru.base-url}")
     private String baseUrl;
@@ -34,6 +53,14 @@ public class HHruApiService {
     @Value("${app.hhru.timeout:10000}")
     private int timeout;
 
+    public static final int FEED_PAGE_SIZE = 100;
+    // Глубже 2000 вакансий HH.ru не отдаёт (page * per_page < 2000)
+    public static final int FEED_MAX_PAGES = 2000 / FEED_PAGE_SIZE;
+
+    // date_from ленты: момент в UTC со смещением, как того требует HH.ru (±hhmm)
+    private static final DateTimeFormatter FEED_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ").withZone(ZoneOffset.UTC);
+
     // Форматтер для дат HH.ru (поддерживает разные форматы)
     private final DateTimeFormatter hhruDateFormatter = new DateTimeFormatterBuilder()
             .appendPattern("yyyy-MM-dd'T'HH:mm:ss")
@@ -46,6 +73,25 @@ public class HHruApiService {
             .parseDefaulting(ChronoField.OFFSET_SECONDS, 0) // по умолчанию UTC
             .toFormatter();
 
+    // Общий кеш результатов поиска: ключ — нормализованный URL запроса к HH.ru.
+    // Пока запрос по ключу выполняется, остальные вызовы ждут тот же future (single-flight),
+    // после завершения результат живёт ещё searchCacheTtlSeconds для мгновенных повторов.
+    private AsyncCache<String, List<HHruVacancy>> searchResults;
+
+    @Value("${app.hhru.search-cache-ttl-seconds:30}")
+    private int searchCacheTtlSeconds;
+
+    @Value("${app.hhru.search-cache-max-size:500}")
+    private int searchCacheMaxSize;
+
+    @PostConstruct
+    void initSearchCache() {
+        searchResults = Caffeine.newBuilder()
+                .expireAfterWrite(searchCacheTtlSeconds, TimeUnit.SECONDS)
+                .maximumSize(searchCacheMaxSize)
+                .buildAsync();
+    }
+
     /**
      * Новый метод: теперь всегда нужен token пользователя.
      */
@@ -53,64 +99,175 @@ public class HHruApiService {
         try {
             // Получаем профиль пользователя через AuthServiceClient
             ProfileResponse profile = authServiceClient.getCurrentUserProfile(token);
-            Long telegramId = profile.getTelegramId();
-
-            String url = buildSearchUrl(request);
-            log.debug("Searching vacancies with URL: {}", url);
-
-            ResponseEntity<Map> response = restTemplate.getForEntity(url, Map.class);
+            return searchVacancies(request, profile.getTelegramId());
+        } catch (DependencyUnavailableException e) {
+            throw e; // сервис недоступен — это не "ничего не найдено"
+        } catch (Exception e) {
+            log.error("Error searching vacancies on HH.ru: {}", e.getMessage(), e);
+        }
+        return new ArrayList<>();
+    }
 
-            if (response.getBody() != null) {
-                List<Map<String, Object>> items = (List<Map<String, Object>>) response.getBody().get("items");
-                return convertToVacancies(items, telegramId);
-            }
+    /**
+     * То же, но для уже известного пользователя — без лишнего запроса профиля.
+     * Вакансии со стоп-словами из request.excludeKeywords отбрасываются до создания копий.
+     */
+    public List<Vacancy> searchVacancies(SearchRequest request, Long telegramId) {
+        try {
+            List<HHruVacancy> items = excludeKeywordFilter.filter(searchItems(request), request.getExcludeKeywords());
+            return toVacancies(items, telegramId);
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error searching vacancies on HH.ru: {}", e.getMessage(), e);
         }
         return new ArrayList<>();
     }
 
+    /**
+     * Поиск на HH.ru с объединением одинаковых запросов.
+     * Возвращает общий (разделяемый между пользователями) неизменяемый список —
+     * сохранение и фильтрация выполняются каждым пользователем над своими копиями.
+     */
+    public List<HHruVacancy> searchItems(SearchRequest request) {
+        String url = buildSearchUrl(request);
+
+        CompletableFuture<List<HHruVacancy>> pending = new CompletableFuture<>();
+        CompletableFuture<List<HHruVacancy>> inFlight = searchResults.asMap().putIfAbsent(url, pending);
+        if (inFlight != null) {
+            log.debug("Joining in-flight/cached HH.ru search: {}", url);
+            try {
+                return inFlight.get(timeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for HH.ru search", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof DependencyUnavailableException unavailable) {
+                    throw unavailable;
+                }
+                throw new IllegalStateException("Shared HH.ru search failed: " + e.getMessage(), e);
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("Shared HH.ru search failed: " + e.getMessage(), e);
+            }
+        }
+
+        try {
+            List<HHruVacancy> items = fetchItems(url);
+            pending.complete(items);
+            return items;
+        } catch (RuntimeException e) {
+            // Ошибочный результат не кешируется: Caffeine удаляет исключительно завершённые future
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /** Копии общего результата для конкретного пользователя */
+    public List<Vacancy> toVacancies(List<HHruVacancy> items, Long telegramId) {
+        List<Vacancy> vacancies = new ArrayList<>(items.size());
+        for (HHruVacancy item : items) {
+            vacancies.add(item.toVacancy(telegramId));
+        }
+        return vacancies;
+    }
+
+    /**
+     * Страница общей ленты свежих вакансий региона (режим percolator), от новых к старым;
+     * area null — лента без фильтра по региону.
+     * HH.ru отдаёт не глубже 2000 вакансий на запрос, поэтому ленту нужно опрашивать чаще,
+     * чем в регионе успевает появиться столько вакансий.
+     */
+    public SearchPage fetchFeedPage(Integer area, Instant dateFrom, int page) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl + "/vacancies");
+        if (area != null) {
+            builder.queryParam("area", area);
+        }
+        // Дата подставляется переменной и кодируется строго: "+" смещения в query HH.ru прочитал бы как пробел
+        URI uri = builder.queryParam("date_from", "{dateFrom}")
+                .queryParam("order_by", "publication_time")
+                .queryParam("per_page", FEED_PAGE_SIZE)
+                .queryParam("page", page)
+                .encode()
+                .buildAndExpand(FEED_DATE_FORMAT.format(dateFrom))
+                .toUri();
+        log.debug("Fetching HH.ru feed page: {}", uri);
+        return toSearchPage(guards.hhru().callHedged(() -> restTemplate.getForEntity(uri, Map.class)));
+    }
+
+    /** Одна страница ответа HH.ru по готовому URL, без кеша */
+    public SearchPage fetchPage(String url) {
+        log.debug("Fetching HH.ru page: {}", url);
+        return toSearchPage(get(url));
+    }
+
+    private SearchPage toSearchPage(ResponseEntity<Map> response) {
+        if (response.getBody() == null) {
+            return new SearchPage(List.of(), 0, 0);
+        }
+        List<Map<String, Object>> items = (List<Map<String, Object>>) response.getBody().get("items");
+        Integer pages = toInteger(response.getBody().get("pages"));
+        Integer found = toInteger(response.getBody().get("found"));
+        return new SearchPage(List.copyOf(convertToVacancies(items)),
+                pages != null ? pages : 0, found != null ? found : 0);
+    }
+
+    public record SearchPage(List<HHruVacancy> items, int pages, int found) {
+    }
+
+    private List<HHruVacancy> fetchItems(String url) {
+        log.debug("Searching vacancies with URL: {}", url);
+        ResponseEntity<Map> response = get(url);
+        if (response.getBody() == null) {
+            return List.of();
+        }
+        List<Map<String, Object>> items = (List<Map<String, Object>>) response.getBody().get("items");
+        return List.copyOf(convertToVacancies(items));
+    }
+
+    // Поиск идемпотентен — медленный ответ дублируется повторным запросом (DependencyGuard)
+    private ResponseEntity<Map> get(String url) {
+        return guards.hhru().callHedged(() -> restTemplate.getForEntity(url, Map.class));
+    }
+
     private String buildSearchUrl(SearchRequest request) {
+        return buildSearchUrl(request, normalizeQuery(request.getQuery()), 0);
+    }
+
+    /**
+     * URL поиска с фильтрами из request и готовым текстом запроса text
+     * (планировщик подставляет сюда объединённый через OR запрос нескольких пользователей).
+     */
+    public String buildSearchUrl(SearchRequest request, String text, int page) {
         UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl + "/vacancies")
-                .queryParam("text", request.getQuery())
+                .queryParam("text", text)
                 .queryParam("period", request.getDays())
-                .queryParam("per_page", 100)
-                .queryParam("page", 0)
+                .queryParam("per_page", FEED_PAGE_SIZE)
+                .queryParam("page", page)
                 .queryParam("only_with_salary", false)
                 .queryParam("search_field", "name");
 
-        // Добавляем фильтры по schedule (тип работы)
-        if (request.getWorkTypes() != null && !request.getWorkTypes().isEmpty()) {
-            request.getWorkTypes().forEach(workType -> {
-                switch (workType) {
-                    case "remote":
-                        builder.queryParam("schedule", "remote");
-                        break;
-                    case "hybrid":
-                        // HH.ru не имеет прямого параметра для гибрида
-                        break;
-                    case "office":
-                        builder.queryParam("schedule", "fullDay");
-                        break;
-                }
-            });
+        // Минимальная зарплата: HH.ru сам пересчитывает в указанную валюту
+        if (request.getMinSalary() != null) {
+            builder.queryParam("salary", request.getMinSalary());
+            builder.queryParam("currency", StringUtils.hasText(request.getSalaryCurrency())
+                    ? request.getSalaryCurrency().toUpperCase(Locale.ROOT) : "RUR");
         }
 
-        // Добавляем фильтры по area (регион)
-        if (request.getCountries() != null && !request.getCountries().isEmpty()) {
-            if (request.getCountries().contains("russia")) {
-                builder.queryParam("area", 113); // Россия
-            }
-            if (request.getCountries().contains("belarus")) {
-                builder.queryParam("area", 16); // Беларусь
-            }
-        }
+        // Фильтры по schedule (тип работы) и area (регион) — через справочники HH.ru.
+        // Множества отсортированы, чтобы одинаковые запросы давали одинаковый URL (ключ кеша поиска)
+        referenceData.resolveSchedules(request.getWorkTypes()).forEach(schedule -> builder.queryParam("schedule", schedule));
+        referenceData.resolveAreas(request.getCountries()).forEach(area -> builder.queryParam("area", area));
 
         return builder.toUriString();
     }
 
-    private List<Vacancy> convertToVacancies(List<Map<String, Object>> items, Long telegramId) {
-        List<Vacancy> vacancies = new ArrayList<>();
+    public static String normalizeQuery(String query) {
+        if (query == null) return "";
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private List<HHruVacancy> convertToVacancies(List<Map<String, Object>> items) {
+        List<HHruVacancy> vacancies = new ArrayList<>();
         if (items == null) return vacancies;
 
         int successCount = 0;
@@ -118,52 +275,70 @@ public class HHruApiService {
 
         for (Map<String, Object> item : items) {
             try {
-                Vacancy vacancy = new Vacancy();
-                vacancy.setId(item.get("id").toString());
-                vacancy.setUserTelegramId(telegramId);
-                vacancy.setTitle((String) item.get("name"));
+                String id = item.get("id").toString();
+                String title = (String) item.get("name");
 
                 // Employer
+                String employerName = null;
                 Map<String, Object> employer = (Map<String, Object>) item.get("employer");
                 if (employer != null) {
-                    vacancy.setEmployer((String) employer.get("name"));
+                    employerName = referenceData.intern((String) employer.get("name"));
                 }
 
                 // Area (city)
+                String city = null;
                 Map<String, Object> area = (Map<String, Object>) item.get("area");
                 if (area != null) {
-                    vacancy.setCity((String) area.get("name"));
+                    city = referenceData.city(area.get("id"), (String) area.get("name"));
                 }
 
                 // Schedule
+                String scheduleName = null;
+                String scheduleId = null;
                 Map<String, Object> schedule = (Map<String, Object>) item.get("schedule");
                 if (schedule != null) {
-                    vacancy.setSchedule((String) schedule.get("name"));
+                    scheduleName = referenceData.scheduleName(schedule.get("id"), (String) schedule.get("name"));
+                    scheduleId = referenceData.intern((String) schedule.get("id"));
                 }
 
                 // Salary
+                String salaryText = null;
+                Integer salaryFrom = null;
+                Integer salaryTo = null;
+                String salaryCurrency = null;
+                Boolean salaryGross = null;
                 Map<String, Object> salary = (Map<String, Object>) item.get("salary");
                 if (salary != null) {
-                    vacancy.setSalary(formatSalary(salary));
+                    salaryText = formatSalary(salary);
+                    salaryFrom = toInteger(salary.get("from"));
+                    salaryTo = toInteger(salary.get("to"));
+                    salaryCurrency = referenceData.intern((String) salary.get("currency"));
+                    salaryGross = (Boolean) salary.get("gross");
                 }
 
                 // Published date - исправленный парсинг
+                LocalDateTime publishedDateTime = LocalDateTime.now();
+                Instant publishedInstant = Instant.now();
                 String publishedAt = (String) item.get("published_at");
                 if (publishedAt != null) {
                     try {
-                        LocalDateTime publishedDateTime = LocalDateTime.parse(publishedAt, hhruDateFormatter);
-                        vacancy.setPublishedAt(publishedDateTime);
+                        OffsetDateTime published = OffsetDateTime.parse(publishedAt, hhruDateFormatter);
+                        publishedDateTime = published.toLocalDateTime();
+                        publishedInstant = published.toInstant();
                     } catch (Exception e) {
                         log.warn("Failed to parse date '{}': {}", publishedAt, e.getMessage());
-                        vacancy.setPublishedAt(LocalDateTime.now());
                     }
-                } else {
-                    vacancy.setPublishedAt(LocalDateTime.now());
                 }
 
                 // URL
-                vacancy.setUrl((String) item.get("alternate_url"));
+                String url = (String) item.get("alternate_url");
 
+                HHruVacancy vacancy = new HHruVacancy(id, title, employerName, city, scheduleName, scheduleId,
+                        salaryText, salaryFrom, salaryTo, salaryCurrency, salaryGross, publishedDateTime, publishedInstant, url,
+                        KeywordMatcher.normalize(title + " " + (employerName != null ? employerName : "")),
+                        VacancyFingerprint.of(title, employerName, city, scheduleName, salaryText,
+                                salaryFrom, salaryTo, salaryCurrency, salaryGross, url),
+                        VacancySimHash.of(title, employerName));
                 vacancies.add(vacancy);
                 successCount++;
             } catch (Exception e) {
@@ -180,6 +355,10 @@ public class HHruApiService {
         return vacancies;
     }
 
+    private Integer toInteger(Object value) {
+        return value instanceof Number number ? number.intValue() : null;
+    }
+
     private String formatSalary(Map<String, Object> salary) {
         try {
             String from = salary.get("from") != null ? salary.get("from").toString() : "";
@@ -0,0 +1,251 @@
+package com.mkisten.vacancybackend.service;
+
+import com.github.benmanes.caffeine.cache.Interner;
+import com.mkisten.vacancybackend.client.DependencyGuards;
+import com.mkisten.vacancybackend.entity.HHruReference;
+import com.mkisten.vacancybackend.repository.HHruReferenceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Справочники HH.ru: регионы (/areas) и словари (/dictionaries — типы графика работы и курсы валют).
+ * Регионы загружаются с HH.ru при первом старте, словари — при каждом; дальше оба раз в сутки,
+ * запросы идут через DependencyGuard HH.ru. Справочники сохраняются в таблицу hhru_reference
+ * и держатся в памяти неизменяемым снимком, курсы валют из того же ответа /dictionaries
+ * передаются в CurrencyRateService. Если HH.ru недоступен, используются сохранённые ранее.
+ *
+ * По справочникам разрешаются фильтры пользователя (страна или регион — по slug, названию или id HH.ru;
+ * тип работы — по slug или id графика), а при разборе выдачи повторяющиеся город, график,
+ * работодатель и валюта заменяются общими экземплярами строк — вакансии в кеше поиска
+ * не держат тысячи одинаковых копий.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HHruReferenceDataService {
+
+    public static final String AREA = "area";
+    public static final String SCHEDULE = "schedule";
+    private static final String CURRENCY = "currency";
+
+    // Значения из настроек пользователя, сохранённые до появления справочников
+    private static final Map<String, Integer> COUNTRY_ALIASES = Map.of(
+            "russia", 113, // Россия
+            "belarus", 16  // Беларусь
+    );
+    // "hybrid" в HH.ru отдельным графиком не представлен и фильтром не считается
+    private static final Map<String, String> WORK_TYPE_SCHEDULES = Map.of(
+            "remote", "remote",
+            "office", "fullDay"
+    );
+
+    private final RestTemplate restTemplate;
+    private final DependencyGuards guards;
+    private final HHruReferenceRepository referenceRepository;
+    private final CurrencyRateService currencyRateService;
+
+    @Value("${app.hhru.base-url}")
+    private String baseUrl;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    // Работодатели и прочие значения вне справочников; слабые ссылки — неиспользуемые строки собираются GC
+    private final Interner<String> interner = Interner.newWeakInterner();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        loadFromDatabase();
+        if (snapshot.areaNames().isEmpty()) {
+            refreshAreas(LocalDateTime.now());
+        }
+        refreshDictionaries(LocalDateTime.now());
+        loadFromDatabase();
+    }
+
+    @Scheduled(cron = "${app.reference-data.refresh-cron:0 45 4 * * *}")
+    public void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        refreshAreas(now);
+        refreshDictionaries(now);
+        loadFromDatabase();
+    }
+
+    private void refreshAreas(LocalDateTime now) {
+        try {
+            ResponseEntity<List> response = guards.hhru().callHedged(
+                    () -> restTemplate.getForEntity(baseUrl + "/areas", List.class));
+            List<HHruReference> areas = new ArrayList<>();
+            if (response.getBody() != null) {
+                collectAreas((List<Map<String, Object>>) response.getBody(), null, now, areas);
+            }
+            if (!areas.isEmpty()) {
+                referenceRepository.replaceKind(AREA, areas);
+                log.info("Регионы HH.ru обновлены: {}", areas.size());
+            }
+        } catch (Exception e) {
+            log.warn("Не удалось обновить регионы HH.ru: {}", e.getMessage());
+        }
+    }
+
+    // Один запрос /dictionaries: из него же берутся графики работы и курсы валют
+    private void refreshDictionaries(LocalDateTime now) {
+        Map<String, Object> dictionaries = null;
+        try {
+            ResponseEntity<Map> response = guards.hhru().callHedged(
+                    () -> restTemplate.getForEntity(baseUrl + "/dictionaries", Map.class));
+            dictionaries = response.getBody();
+            List<Map<String, Object>> schedules = dictionaries != null
+                    ? (List<Map<String, Object>>) dictionaries.get(SCHEDULE) : null;
+            if (schedules != null && !schedules.isEmpty()) {
+                List<HHruReference> items = new ArrayList<>();
+                for (Map<String, Object> schedule : schedules) {
+                    if (schedule.get("id") == null || schedule.get("name") == null) continue;
+                    items.add(new HHruReference(SCHEDULE, schedule.get("id").toString(), null,
+                            schedule.get("name").toString(), now));
+                }
+                referenceRepository.replaceKind(SCHEDULE, items);
+                log.info("Словарь графиков работы HH.ru обновлён: {}", items.size());
+            }
+        } catch (Exception e) {
+            log.warn("Не удалось обновить словари HH.ru: {}", e.getMessage());
+        }
+        try {
+            currencyRateService.update(dictionaries != null
+                    ? (List<Map<String, Object>>) dictionaries.get(CURRENCY) : null);
+        } catch (Exception e) {
+            log.warn("Не удалось обновить курсы валют HH.ru: {}", e.getMessage());
+        }
+    }
+
+    /** Регион HH.ru по значению из настроек: slug страны, id региона или его название; null — неизвестен */
+    public Integer resolveArea(String country) {
+        if (country == null || country.isBlank()) return null;
+        String key = country.trim().toLowerCase(Locale.ROOT);
+        Integer alias = COUNTRY_ALIASES.get(key);
+        if (alias != null) return alias;
+        Snapshot current = snapshot;
+        if (key.chars().allMatch(Character::isDigit)) {
+            // Пока справочник не загружен, числовой id передаётся как есть
+            return current.areaNames().isEmpty() || current.areaNames().containsKey(key) ? Integer.valueOf(key) : null;
+        }
+        return current.areaIdsByName().get(key);
+    }
+
+    /** Регионы для списка стран из настроек; отсортированы — одинаковые настройки дают одинаковый URL */
+    public SortedSet<Integer> resolveAreas(Collection<String> countries) {
+        SortedSet<Integer> areas = new TreeSet<>();
+        if (countries != null) {
+            for (String country : countries) {
+                Integer area = resolveArea(country);
+                if (area != null) areas.add(area);
+            }
+        }
+        return areas;
+    }
+
+    /** id графика HH.ru по типу работы из настроек: slug (remote, office) или id графика; null — не фильтр */
+    public String resolveSchedule(String workType) {
+        if (workType == null) return null;
+        String alias = WORK_TYPE_SCHEDULES.get(workType);
+        if (alias != null) return alias;
+        return snapshot.scheduleNames().containsKey(workType) ? workType : null;
+    }
+
+    public SortedSet<String> resolveSchedules(Collection<String> workTypes) {
+        SortedSet<String> schedules = new TreeSet<>();
+        if (workTypes != null) {
+            for (String workType : workTypes) {
+                String schedule = resolveSchedule(workType);
+                if (schedule != null) schedules.add(schedule);
+            }
+        }
+        return schedules;
+    }
+
+    /** Название города из выдачи — общим экземпляром из справочника регионов */
+    public String city(Object areaId, String name) {
+        return canonical(snapshot.areaNames(), areaId, name);
+    }
+
+    /** Название графика работы из выдачи — общим экземпляром из словаря */
+    public String scheduleName(Object scheduleId, String name) {
+        return canonical(snapshot.scheduleNames(), scheduleId, name);
+    }
+
+    /** Общий экземпляр повторяющейся строки (работодатель, валюта, id графика) */
+    public String intern(String value) {
+        return value == null ? null : interner.intern(value);
+    }
+
+    private String canonical(Map<String, String> names, Object id, String name) {
+        if (name == null) return null;
+        String known = id != null ? names.get(id.toString()) : null;
+        // Справочник мог устареть — переименованное значение берётся из выдачи
+        return name.equals(known) ? known : intern(name);
+    }
+
+    private void collectAreas(List<Map<String, Object>> areas, String parentCode, LocalDateTime now,
+                              List<HHruReference> result) {
+        if (areas == null) return;
+        for (Map<String, Object> area : areas) {
+            if (area.get("id") == null || area.get("name") == null) continue;
+            String code = area.get("id").toString();
+            result.add(new HHruReference(AREA, code, parentCode, area.get("name").toString(), now));
+            collectAreas((List<Map<String, Object>>) area.get("areas"), code, now, result);
+        }
+    }
+
+    private void loadFromDatabase() {
+        List<HHruReference> items = referenceRepository.findAll();
+        Map<String, String> areaNames = new HashMap<>();
+        Map<String, String> areaParents = new HashMap<>();
+        Map<String, String> scheduleNames = new HashMap<>();
+        for (HHruReference item : items) {
+            String name = intern(item.getName());
+            if (AREA.equals(item.getKind())) {
+                areaNames.put(item.getCode(), name);
+                if (item.getParentCode() != null) areaParents.put(item.getCode(), item.getParentCode());
+            } else if (SCHEDULE.equals(item.getKind())) {
+                scheduleNames.put(item.getCode(), name);
+            }
+        }
+        // Одинаковые названия (город и одноимённый регион) — побеждает регион ближе к корню
+        Map<String, Integer> areaIdsByName = new HashMap<>();
+        Map<String, Integer> depthByName = new HashMap<>();
+        areaNames.forEach((code, name) -> {
+            String key = name.toLowerCase(Locale.ROOT);
+            int depth = depth(code, areaParents);
+            Integer known = depthByName.get(key);
+            if (known == null || depth < known) {
+                depthByName.put(key, depth);
+                areaIdsByName.put(key, Integer.valueOf(code));
+            }
+        });
+        snapshot = new Snapshot(Map.copyOf(areaNames), Map.copyOf(areaIdsByName), Map.copyOf(scheduleNames));
+        log.info("Справочники HH.ru загружены: {} регионов, {} графиков", areaNames.size(), scheduleNames.size());
+    }
+
+    private static int depth(String code, Map<String, String> parents) {
+        int depth = 0;
+        for (String parent = parents.get(code); parent != null && depth < 16; parent = parents.get(parent)) {
+            depth++;
+        }
+        return depth;
+    }
+
+    private record Snapshot(Map<String, String> areaNames,
+                            Map<String, Integer> areaIdsByName,
+                            Map<String, String> scheduleNames) {
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), Map.of());
+    }
+}
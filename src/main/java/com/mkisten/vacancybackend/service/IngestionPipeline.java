@@ -0,0 +1,270 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.config.ReadYourWritesTracker;
+import com.mkisten.vacancybackend.dto.HHruVacancy;
+import com.mkisten.vacancybackend.entity.Vacancy;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Конвейер приёма вакансий из фоновых источников (автообновление, percolator):
+ * fetch → decode → persist → notify. Стадии (IngestionStage) связаны ограниченными очередями,
+ * у каждой свои потоки и размер пачки (app.pipeline.&lt;стадия&gt;.*), поэтому медленная стадия
+ * задерживает только свою очередь, а её переполнение через противодавление замедляет предыдущие.
+ *
+ *  - fetch — поисковые задания SearchQueryPlanner (запросы к HH.ru, параллельно по заданиям);
+ *  - decode — отсев по стоп-словам и копии вакансий для пользователя;
+ *  - persist — пачка пользователей сохраняется в одной транзакции (при ошибке — по одному);
+ *  - notify — отправка в Telegram.
+ *
+ * Пока пользователь в конвейере, автообновление не ставит его поиск повторно (isInFlight).
+ */
+@Slf4j
+@Service
+public class IngestionPipeline {
+
+    private final HHruApiService hhruApiService;
+    private final ExcludeKeywordFilter excludeKeywordFilter;
+    private final VacancyService vacancyService;
+    private final TelegramNotificationService telegramService;
+    private final ReadYourWritesTracker readYourWrites;
+    private final TransactionTemplate transactionTemplate;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.change-detection.notify-updates:false}")
+    private boolean notifyUpdates;
+
+    @Value("${app.pipeline.offer-timeout-ms:30000}")
+    private long offerTimeoutMs;
+
+    // telegramId -> число заданий пользователя в конвейере
+    private final Map<Long, Integer> inFlight = new ConcurrentHashMap<>();
+
+    private IngestionStage<FetchTask> fetchStage;
+    private IngestionStage<DecodeTask> decodeStage;
+    private IngestionStage<PersistTask> persistStage;
+    private IngestionStage<NotifyTask> notifyStage;
+
+    /**
+     * Кому и как доставить найденное: excludeKeywords null — отсев уже выполнен источником;
+     * onSaved (может быть null) получает число новых вакансий после сохранения.
+     */
+    public record Delivery(Long telegramId, String token, String excludeKeywords, boolean sendTelegram, IntConsumer onSaved) {
+    }
+
+    private record FetchTask(SearchQueryPlanner.SearchJob job, Map<Long, Delivery> deliveries) {
+    }
+
+    private record DecodeTask(Delivery delivery, List<HHruVacancy> items) {
+    }
+
+    private record PersistTask(Delivery delivery, List<Vacancy> vacancies) {
+    }
+
+    private record NotifyTask(Delivery delivery, VacancyService.IngestResult result) {
+    }
+
+    public IngestionPipeline(HHruApiService hhruApiService, ExcludeKeywordFilter excludeKeywordFilter,
+                             VacancyService vacancyService, TelegramNotificationService telegramService,
+                             ReadYourWritesTracker readYourWrites,
+                             PlatformTransactionManager transactionManager, Environment environment,
+                             MeterRegistry meterRegistry) {
+        this.hhruApiService = hhruApiService;
+        this.excludeKeywordFilter = excludeKeywordFilter;
+        this.vacancyService = vacancyService;
+        this.telegramService = telegramService;
+        this.readYourWrites = readYourWrites;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        fetchStage = stage("fetch", 4, 200, 1, this::fetch);
+        decodeStage = stage("decode", 2, 500, 1, this::decode);
+        persistStage = stage("persist", 2, 500, 20, this::persist);
+        notifyStage = stage("notify", 4, 1000, 1, this::send);
+        fetchStage.start();
+        decodeStage.start();
+        persistStage.start();
+        notifyStage.start();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Недоделанное не теряется: вакансии будут найдены снова, неотправленные уйдут со следующей отправкой
+        fetchStage.stop();
+        decodeStage.stop();
+        persistStage.stop();
+        notifyStage.stop();
+    }
+
+    public boolean isInFlight(Long telegramId) {
+        return inFlight.containsKey(telegramId);
+    }
+
+    /** Поисковое задание планировщика с получателями; false — конвейер переполнен */
+    public boolean submitSearch(SearchQueryPlanner.SearchJob job, Map<Long, Delivery> deliveries) {
+        job.users().forEach(this::enter);
+        long key = job.users().isEmpty() ? 0 : job.users().get(0);
+        if (fetchStage.submit(key, new FetchTask(job, deliveries))) {
+            return true;
+        }
+        job.users().forEach(this::leave);
+        return false;
+    }
+
+    /** Уже найденные вакансии (общая лента percolator) */
+    public boolean submitFound(Delivery delivery, List<HHruVacancy> items) {
+        enter(delivery.telegramId());
+        if (decodeStage.submit(delivery.telegramId(), new DecodeTask(delivery, items))) {
+            return true;
+        }
+        leave(delivery.telegramId());
+        return false;
+    }
+
+    /**
+     * Только отправка уже сохранённого (интерактивный поиск не ждёт Telegram).
+     * Вызывается из потока HTTP-запроса, поэтому при полной очереди не ждёт, а сразу возвращает false
+     */
+    public boolean submitNotify(Delivery delivery, VacancyService.IngestResult result) {
+        return notifyStage.trySubmit(delivery.telegramId(), new NotifyTask(delivery, result));
+    }
+
+    private void fetch(List<FetchTask> tasks) {
+        for (FetchTask task : tasks) {
+            Map<Long, List<HHruVacancy>> found;
+            try {
+                found = task.job().run();
+            } catch (Exception e) {
+                // Ни разбора, ни сохранения: onSaved не вызовется, и неудачный опрос не засчитается пустым
+                log.error("Ошибка поискового задания ({} пользователей): {}", task.job().users().size(), e.getMessage());
+                task.job().users().forEach(this::leave);
+                continue;
+            }
+            for (Long telegramId : task.job().users()) {
+                Delivery delivery = task.deliveries().get(telegramId);
+                // Поиск не удался — дальше не передаём: пустой результат засчитался бы как пустой опрос
+                List<HHruVacancy> items = found.get(telegramId);
+                if (delivery == null || items == null || !decodeStage.submit(telegramId, new DecodeTask(delivery, items))) {
+                    leave(telegramId);
+                }
+            }
+        }
+    }
+
+    private void decode(List<DecodeTask> tasks) {
+        for (DecodeTask task : tasks) {
+            Delivery delivery = task.delivery();
+            try {
+                List<HHruVacancy> items = delivery.excludeKeywords() != null
+                        ? excludeKeywordFilter.filter(task.items(), delivery.excludeKeywords()) : task.items();
+                List<Vacancy> vacancies = hhruApiService.toVacancies(items, delivery.telegramId());
+                if (!persistStage.submit(delivery.telegramId(), new PersistTask(delivery, vacancies))) {
+                    leave(delivery.telegramId());
+                }
+            } catch (Exception e) {
+                leave(delivery.telegramId());
+                log.error("Ошибка разбора вакансий пользователя {}: {}", delivery.telegramId(), e.getMessage());
+            }
+        }
+    }
+
+    private void persist(List<PersistTask> tasks) {
+        // Задания одного пользователя в пачке сливаются: индекс просмотренных id обновляется
+        // только после фиксации, и второе сохранение в той же транзакции дало бы дубли.
+        // Пользователи идут по возрастанию id — в этом порядке берутся их блокировки вставки,
+        // и две пачки не могут ждать друг друга
+        Map<Long, List<PersistTask>> byUser = new TreeMap<>();
+        tasks.forEach(task -> byUser.computeIfAbsent(task.delivery().telegramId(), id -> new ArrayList<>()).add(task));
+        Map<Long, List<Vacancy>> vacanciesByUser = new LinkedHashMap<>();
+        byUser.forEach((telegramId, userTasks) -> vacanciesByUser.put(telegramId,
+                userTasks.stream().flatMap(task -> task.vacancies().stream()).toList()));
+
+        Map<Long, VacancyService.IngestResult> results = new HashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> vacanciesByUser.forEach((telegramId, vacancies) ->
+                    results.put(telegramId, vacancyService.ingestVacancies(telegramId, vacancies))));
+        } catch (Exception e) {
+            log.warn("Пакетное сохранение {} пользователей не удалось ({}), сохраняем по одному",
+                    vacanciesByUser.size(), e.getMessage());
+            results.clear();
+            vacanciesByUser.forEach((telegramId, vacancies) -> {
+                try {
+                    results.put(telegramId, vacancyService.ingestVacancies(telegramId, vacancies));
+                } catch (Exception userError) {
+                    log.error("Ошибка сохранения вакансий пользователя {}: {}", telegramId, userError.getMessage());
+                }
+            });
+        }
+
+        // Сохранение идёт вне HTTP-запроса — read-your-writes отмечается явно, после фиксации
+        results.forEach((telegramId, result) -> {
+            if (!result.isEmpty()) readYourWrites.markWritten(telegramId);
+        });
+
+        byUser.forEach((telegramId, userTasks) -> {
+            userTasks.forEach(task -> leave(telegramId));
+            VacancyService.IngestResult result = results.get(telegramId);
+            if (result == null) return;
+            boolean notified = false;
+            for (PersistTask task : userTasks) {
+                if (task.delivery().onSaved() != null) {
+                    task.delivery().onSaved().accept(result.added().size());
+                }
+                if (task.delivery().sendTelegram() && !notified && !result.isEmpty()) {
+                    notified = true;
+                    notifyStage.submit(telegramId, new NotifyTask(task.delivery(), result));
+                }
+            }
+        });
+    }
+
+    private void send(List<NotifyTask> tasks) {
+        for (NotifyTask task : tasks) {
+            Delivery delivery = task.delivery();
+            try {
+                telegramService.sendAllUnsentVacanciesToTelegram(delivery.token(), delivery.telegramId());
+                // Уведомление об изменившихся вакансиях — по app.change-detection.notify-updates
+                if (notifyUpdates && !task.result().updated().isEmpty()) {
+                    telegramService.sendUpdatedVacanciesNotification(delivery.token(), task.result().updated());
+                }
+            } catch (Exception e) {
+                log.warn("Не удалось отправить уведомление пользователю {}: {}", delivery.telegramId(), e.getMessage());
+            }
+        }
+    }
+
+    private void enter(Long telegramId) {
+        inFlight.merge(telegramId, 1, Integer::sum);
+    }
+
+    private void leave(Long telegramId) {
+        inFlight.computeIfPresent(telegramId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private <T> IngestionStage<T> stage(String name, int threads, int queueCapacity, int batchSize,
+                                        Consumer<List<T>> handler) {
+        String prefix = "app.pipeline." + name + ".";
+        return new IngestionStage<>(name,
+                environment.getProperty(prefix + "threads", Integer.class, threads),
+                environment.getProperty(prefix + "queue-capacity", Integer.class, queueCapacity),
+                environment.getProperty(prefix + "batch-size", Integer.class, batchSize),
+                offerTimeoutMs, handler, meterRegistry);
+    }
+}
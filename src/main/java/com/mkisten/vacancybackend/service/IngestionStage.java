@@ -0,0 +1,151 @@
+package com.mkisten.vacancybackend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Стадия конвейера приёма вакансий (IngestionPipeline): lanes рабочих потоков, у каждого своя
+ * ограниченная очередь. Элемент попадает в очередь по ключу (telegramId), поэтому элементы одного
+ * пользователя обрабатываются по порядку и никогда параллельно. Поток забирает из очереди до
+ * batchSize элементов за раз и передаёт их обработчику одним списком.
+ *
+ * Противодавление: если очередь полна, submit ждёт до offerTimeoutMs (вызывающая стадия или
+ * планировщик замедляются), после чего элемент отклоняется; trySubmit (для потоков HTTP-запросов)
+ * не ждёт вовсе. Ошибка обработчика, включая Error, не останавливает поток стадии. Метрики ingestion.stage.* с тегом stage:
+ * queued, busy, items, backpressure, rejected, errors и batch (длительность обработки пачки).
+ */
+@Slf4j
+class IngestionStage<T> {
+
+    private final String name;
+    private final int batchSize;
+    private final long offerTimeoutMs;
+    private final Consumer<List<T>> handler;
+    private final List<BlockingQueue<T>> queues = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicInteger busy = new AtomicInteger();
+
+    private final Counter items;
+    private final Counter backpressure;
+    private final Counter rejected;
+    private final Counter errors;
+    private final Timer batchTimer;
+
+    private volatile boolean running = true;
+
+    IngestionStage(String name, int lanes, int queueCapacity, int batchSize, long offerTimeoutMs,
+                   Consumer<List<T>> handler, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.batchSize = Math.max(1, batchSize);
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.handler = handler;
+        int laneCapacity = Math.max(1, queueCapacity / Math.max(1, lanes));
+        for (int lane = 0; lane < Math.max(1, lanes); lane++) {
+            BlockingQueue<T> queue = new ArrayBlockingQueue<>(laneCapacity);
+            queues.add(queue);
+            Thread worker = new Thread(() -> work(queue), "ingest-" + name + "-" + lane);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+
+        Gauge.builder("ingestion.stage.queued", this, IngestionStage::queued)
+                .tag("stage", name)
+                .description("Элементы в очередях стадии")
+                .register(meterRegistry);
+        Gauge.builder("ingestion.stage.busy", busy, AtomicInteger::get)
+                .tag("stage", name)
+                .description("Потоки стадии, занятые обработкой")
+                .register(meterRegistry);
+        items = Counter.builder("ingestion.stage.items").tag("stage", name).register(meterRegistry);
+        backpressure = Counter.builder("ingestion.stage.backpressure").tag("stage", name)
+                .description("Передачи в стадию, ждавшие места в полной очереди")
+                .register(meterRegistry);
+        rejected = Counter.builder("ingestion.stage.rejected").tag("stage", name).register(meterRegistry);
+        errors = Counter.builder("ingestion.stage.errors").tag("stage", name).register(meterRegistry);
+        batchTimer = Timer.builder("ingestion.stage.batch").tag("stage", name).register(meterRegistry);
+    }
+
+    void start() {
+        workers.forEach(Thread::start);
+    }
+
+    void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    /** Передать элемент в стадию; false — очередь так и не освободилась за offerTimeoutMs */
+    boolean submit(long key, T item) {
+        BlockingQueue<T> queue = queue(key);
+        if (queue.offer(item)) {
+            return true;
+        }
+        backpressure.increment();
+        try {
+            if (queue.offer(item, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.increment();
+        log.warn("Стадия {} переполнена, элемент отклонён", name);
+        return false;
+    }
+
+    /** Передать элемент без ожидания; false — очередь полна */
+    boolean trySubmit(long key, T item) {
+        if (queue(key).offer(item)) {
+            return true;
+        }
+        rejected.increment();
+        log.warn("Стадия {} переполнена, элемент отклонён", name);
+        return false;
+    }
+
+    int queued() {
+        return queues.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    private void work(BlockingQueue<T> queue) {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            busy.incrementAndGet();
+            long started = System.nanoTime();
+            try {
+                handler.accept(batch);
+                items.increment(batch.size());
+            } catch (Throwable e) {
+                // Error тоже ловится: погибший поток оставил бы свою очередь неразобранной навсегда
+                errors.increment();
+                log.error("Ошибка стадии {} (пачка из {}): {}", name, batch.size(), e.getMessage(), e);
+            } finally {
+                batchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                busy.decrementAndGet();
+                batch.clear();
+            }
+        }
+    }
+
+    private BlockingQueue<T> queue(long key) {
+        return queues.get(Math.floorMod(Long.hashCode(key), queues.size()));
+    }
+}
@@ -0,0 +1,142 @@
+package com.mkisten.vacancybackend.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Скомпилированный набор ключевых слов (автомат Ахо-Корасик).
+ * Проверка текста — один проход по символам, независимо от количества слов.
+ * Слово совпадает, если текст содержит его с начала какого-либо слова текста:
+ * "стажер" найдётся в "стажера", но "ява" не найдётся внутри "джава".
+ * Текст и слова должны быть приведены через {@link #normalize(String)}.
+ */
+public final class KeywordMatcher {
+
+    public static final KeywordMatcher EMPTY = new KeywordMatcher(List.of());
+
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final int[] fail;
+    // Длины слов, оканчивающихся в узле (включая найденные по суффиксным ссылкам)
+    private final int[][] outputs;
+
+    private KeywordMatcher(Collection<String> keywords) {
+        List<int[]> rawOutputs = new ArrayList<>();
+        transitions.add(new HashMap<>());
+        rawOutputs.add(new int[0]);
+        for (String keyword : keywords) {
+            int node = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                Integer next = transitions.get(node).get(c);
+                if (next == null) {
+                    next = transitions.size();
+                    transitions.get(node).put(c, next);
+                    transitions.add(new HashMap<>());
+                    rawOutputs.add(new int[0]);
+                }
+                node = next;
+            }
+            rawOutputs.set(node, append(rawOutputs.get(node), keyword.length()));
+        }
+
+        fail = new int[transitions.size()];
+        outputs = rawOutputs.toArray(new int[0][]);
+        Queue<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(node).entrySet()) {
+                int child = edge.getValue();
+                int f = fail[node];
+                while (f != 0 && !transitions.get(f).containsKey(edge.getKey())) {
+                    f = fail[f];
+                }
+                Integer target = transitions.get(f).get(edge.getKey());
+                fail[child] = target != null && target != child ? target : 0;
+                for (int length : outputs[fail[child]]) {
+                    outputs[child] = append(outputs[child], length);
+                }
+                queue.add(child);
+            }
+        }
+    }
+
+    /** Скомпилировать список слов через запятую, точку с запятой или перевод строки */
+    public static KeywordMatcher compile(String keywords) {
+        if (keywords == null || keywords.isBlank()) {
+            return EMPTY;
+        }
+        List<String> normalized = Arrays.stream(keywords.split("[,;\\n]"))
+                .map(KeywordMatcher::normalize)
+                .filter(k -> !k.isEmpty())
+                .distinct()
+                .toList();
+        return normalized.isEmpty() ? EMPTY : new KeywordMatcher(normalized);
+    }
+
+    /**
+     * Нормализация для сопоставления: нижний регистр, ё -> е,
+     * любые разделители схлопываются в один пробел.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (c == 'ё') {
+                c = 'е';
+            }
+            if (Character.isLetterOrDigit(c) || c == '+' || c == '#') {
+                if (pendingSpace && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                pendingSpace = false;
+                sb.append(c);
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    public boolean isEmpty() {
+        return this == EMPTY;
+    }
+
+    /** Есть ли в нормализованном тексте хотя бы одно слово набора */
+    public boolean matches(String normalizedText) {
+        if (isEmpty() || normalizedText == null) {
+            return false;
+        }
+        int node = 0;
+        for (int i = 0; i < normalizedText.length(); i++) {
+            char c = normalizedText.charAt(i);
+            Integer next;
+            while ((next = transitions.get(node).get(c)) == null && node != 0) {
+                node = fail[node];
+            }
+            node = next != null ? next : 0;
+            for (int length : outputs[node]) {
+                int start = i - length + 1;
+                if (start == 0 || normalizedText.charAt(start - 1) == ' ') {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+}
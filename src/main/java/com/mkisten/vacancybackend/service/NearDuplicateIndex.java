@@ -0,0 +1,197 @@
+package com.mkisten.vacancybackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mkisten.vacancybackend.entity.Vacancy;
+import com.mkisten.vacancybackend.repository.VacancyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Склейка почти-дублей вакансий по пользователям (перевыложенная под новым id вакансия,
+ * одна вакансия в нескольких городах). По каждому пользователю в памяти хранятся SimHash-подписи
+ * сохранённых вакансий в LSH-индексе: подпись режется на 4 полосы по 16 бит, кандидаты — вакансии
+ * с совпадающей полосой, дубль — кандидат на расстоянии Хэмминга не больше app.near-duplicates.max-distance.
+ * При расстоянии до 3 бит совпадение хотя бы одной полосы гарантировано, поэтому поиск точный;
+ * большее max-distance отвергается при старте — часть дублей молча терялась бы.
+ * Индекс прогревается из БД при старте (не больше max-users пользователей) и догружается
+ * по пользователю при промахе.
+ * Подписи удалённых поштучно вакансий остаются в индексе до перезагрузки записи пользователя —
+ * перевыложенная копия удалённой вакансии тоже не покажется.
+ */
+@Slf4j
+@Component
+public class NearDuplicateIndex {
+
+    private static final int BANDS = 4;
+    private static final int BAND_BITS = 16;
+
+    private final VacancyRepository vacancyRepository;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Value("${app.near-duplicates.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.near-duplicates.max-distance:3}")
+    private int maxDistance;
+
+    @Value("${app.near-duplicates.max-users:50000}")
+    private long maxUsers;
+
+    @Value("${app.near-duplicates.expire-minutes:720}")
+    private long expireMinutes;
+
+    private Cache<Long, Signatures> index;
+    private Counter collapsedStored;
+    private Counter collapsedBatch;
+
+    public NearDuplicateIndex(VacancyRepository vacancyRepository, MeterRegistry meterRegistry,
+                              PlatformTransactionManager transactionManager) {
+        this.vacancyRepository = vacancyRepository;
+        this.meterRegistry = meterRegistry;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void init() {
+        if (maxDistance < 0 || maxDistance >= BANDS) {
+            throw new IllegalStateException("app.near-duplicates.max-distance должен быть от 0 до " + (BANDS - 1)
+                    + " (подпись режется на " + BANDS + " полосы): " + maxDistance);
+        }
+        index = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(expireMinutes, TimeUnit.MINUTES)
+                .build();
+        collapsedStored = Counter.builder("vacancy.near_duplicates.collapsed")
+                .tag("source", "stored")
+                .description("Вакансии, склеенные с уже сохранённой у пользователя")
+                .register(meterRegistry);
+        collapsedBatch = Counter.builder("vacancy.near_duplicates.collapsed")
+                .tag("source", "batch")
+                .description("Вакансии, склеенные с другой вакансией той же выдачи")
+                .register(meterRegistry);
+        Gauge.builder("vacancy.near_duplicates.users", this, s -> s.index.estimatedSize())
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) return;
+        try {
+            long started = System.currentTimeMillis();
+            Map<Long, Signatures> loaded = new HashMap<>();
+            readOnlyTransaction.executeWithoutResult(tx -> vacancyRepository.forEachSimHash(maxUsers, (userId, signature) ->
+                    loaded.computeIfAbsent(userId, id -> new Signatures()).add(signature)));
+            // Пользователи, уже загруженные по промаху во время прогрева, не перезаписываются
+            loaded.forEach(index.asMap()::putIfAbsent);
+            log.info("Near-duplicate index warmed up for {} users in {} ms",
+                    loaded.size(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Не удалось прогреть индекс почти-дублей: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Убрать из новых вакансий пользователя почти-дубли уже сохранённых и друг друга
+     * (из группы похожих остаётся первая). Подписи оставшихся попадут в индекс после фиксации транзакции.
+     * @return вакансии, которые нужно сохранить
+     */
+    public List<Vacancy> collapse(Long userTelegramId, List<Vacancy> candidates) {
+        if (!enabled || candidates.isEmpty()) return candidates;
+        Signatures stored = index.get(userTelegramId, this::load);
+        Signatures batch = new Signatures();
+        List<Vacancy> kept = new ArrayList<>(candidates.size());
+        List<Long> keptSignatures = new ArrayList<>(candidates.size());
+        for (Vacancy vacancy : candidates) {
+            long signature = vacancy.getSimhash() != null ? vacancy.getSimhash() : VacancySimHash.of(vacancy);
+            vacancy.setSimhash(signature);
+            if (signature == VacancySimHash.NONE) {
+                kept.add(vacancy);
+            } else if (stored.hasNear(signature, maxDistance)) {
+                collapsedStored.increment();
+            } else if (batch.hasNear(signature, maxDistance)) {
+                collapsedBatch.increment();
+            } else {
+                batch.add(signature);
+                kept.add(vacancy);
+                keptSignatures.add(signature);
+            }
+        }
+        if (kept.size() < candidates.size()) {
+            log.info("Collapsed {} near-duplicate vacancies for user {}", candidates.size() - kept.size(), userTelegramId);
+        }
+        if (!keptSignatures.isEmpty()) {
+            TransactionCallbacks.afterCommit(() -> {
+                Signatures current = index.getIfPresent(userTelegramId);
+                if (current != null) {
+                    keptSignatures.forEach(current::add);
+                }
+            });
+        }
+        return kept;
+    }
+
+    /** Сбросить подписи пользователя (массовое удаление, импорт, очистка по сроку хранения) */
+    public void invalidate(Long userTelegramId) {
+        index.invalidate(userTelegramId);
+        TransactionCallbacks.afterCommit(() -> index.invalidate(userTelegramId));
+    }
+
+    public void invalidateAll() {
+        index.invalidateAll();
+    }
+
+    private Signatures load(Long userTelegramId) {
+        Signatures signatures = new Signatures();
+        vacancyRepository.forEachSimHash(userTelegramId, signatures::add);
+        return signatures;
+    }
+
+    /** LSH-индекс подписей одного пользователя: (номер полосы, значение полосы) -> подписи */
+    static final class Signatures {
+        private static final long[] EMPTY = new long[0];
+
+        private final Map<Integer, long[]> buckets = new HashMap<>();
+
+        synchronized boolean hasNear(long signature, int maxDistance) {
+            for (int band = 0; band < BANDS; band++) {
+                for (long other : buckets.getOrDefault(bucketKey(signature, band), EMPTY)) {
+                    if (VacancySimHash.distance(signature, other) <= maxDistance) return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized void add(long signature) {
+            for (int band = 0; band < BANDS; band++) {
+                buckets.merge(bucketKey(signature, band), new long[]{signature}, (existing, single) -> {
+                    for (long other : existing) {
+                        if (other == signature) return existing;
+                    }
+                    long[] grown = Arrays.copyOf(existing, existing.length + 1);
+                    grown[existing.length] = signature;
+                    return grown;
+                });
+            }
+        }
+
+        private static int bucketKey(long signature, int band) {
+            int value = (int) (signature >>> (band * BAND_BITS)) & 0xFFFF;
+            return band << BAND_BITS | value;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.dto.UserSettingsSnapshot;
+import com.mkisten.vacancybackend.entity.NotificationMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Когда пользователю отправлять уведомления о новых вакансиях.
+ * INSTANT вне тихих часов — сразу после поиска; иначе вакансии копятся (sent_to_telegram = false)
+ * и уходят одной подборкой за окно: час, день (с app.digest.daily-hour) или до конца тихих часов.
+ * Время считается по app.digest.zone.
+ */
+@Component
+public class NotificationSchedule {
+
+    private final ZoneId zone;
+
+    @Value("${app.digest.daily-hour:9}")
+    private int dailyHour;
+
+    public NotificationSchedule(@Value("${app.digest.zone:Europe/Moscow}") String zone) {
+        this.zone = ZoneId.of(zone);
+    }
+
+    public ZonedDateTime now() {
+        return ZonedDateTime.now(zone);
+    }
+
+    /** Отправлять ли новые вакансии сразу после поиска */
+    public boolean sendsImmediately(UserSettingsSnapshot settings) {
+        return Boolean.TRUE.equals(settings.telegramNotify())
+                && mode(settings) == NotificationMode.INSTANT
+                && !isQuiet(settings, now().getHour());
+    }
+
+    /**
+     * Начало текущего окна подборки — за каждое окно подборка отправляется не больше одного раза.
+     * null — подборку сейчас отправлять не нужно (тихие часы или мгновенный режим без тихих часов).
+     */
+    public LocalDateTime digestWindowStart(UserSettingsSnapshot settings, ZonedDateTime now) {
+        if (!Boolean.TRUE.equals(settings.telegramNotify()) || isQuiet(settings, now.getHour())) return null;
+        LocalDateTime local = now.toLocalDateTime();
+        return switch (mode(settings)) {
+            case HOURLY -> local.truncatedTo(ChronoUnit.HOURS);
+            case DAILY -> latestAt(local, dailyHour);
+            // Накопленное за тихие часы уходит одной подборкой после их окончания
+            case INSTANT -> hasQuietHours(settings) ? latestAt(local, settings.quietHoursEnd()) : null;
+        };
+    }
+
+    static boolean isQuiet(UserSettingsSnapshot settings, int hour) {
+        if (!hasQuietHours(settings)) return false;
+        int start = settings.quietHoursStart();
+        int end = settings.quietHoursEnd();
+        return start < end ? hour >= start && hour < end : hour >= start || hour < end;
+    }
+
+    private static boolean hasQuietHours(UserSettingsSnapshot settings) {
+        return settings.quietHoursStart() != null && settings.quietHoursEnd() != null
+                && !settings.quietHoursStart().equals(settings.quietHoursEnd());
+    }
+
+    private static NotificationMode mode(UserSettingsSnapshot settings) {
+        return settings.notifyMode() != null ? settings.notifyMode() : NotificationMode.INSTANT;
+    }
+
+    // Последний момент hour:00, не позже local
+    private static LocalDateTime latestAt(LocalDateTime local, int hour) {
+        LocalDateTime today = local.toLocalDate().atTime(hour, 0);
+        return today.isAfter(local) ? today.minusDays(1) : today;
+    }
+}
@@ -0,0 +1,145 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.dto.HHruVacancy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Обратный индекс сохранённых поисков: слово запроса -> подписчики.
+ * Вакансия подходит подписчику, если каждое слово его запроса совпадает с началом
+ * какого-либо слова в названии вакансии (как search_field=name на HH.ru, с грубым учётом
+ * окончаний), а регион, тип работы, зарплата и стоп-слова проходят его фильтры.
+ * Индекс неизменяем и строится заново на каждый цикл ленты.
+ */
+final class PercolatorIndex {
+
+    // Не больше 64 слов в запросе — совпадения отмечаются битами long
+    static final int MAX_TERMS = 64;
+
+    // Лента без фильтра по региону — для подписок без регионов (id регионов HH.ru начинаются с 1)
+    static final int ANY_AREA = 0;
+
+    private static final Pattern SIMPLE_QUERY = Pattern.compile("[\\p{L}\\p{N}\\s+#.,-]*");
+    private static final Set<String> QUERY_OPERATORS = Set.of("or", "and", "not");
+
+    /** Сохранённый поиск в скомпилированном виде */
+    record Subscription(Long telegramId,
+                        int termCount,
+                        Set<Integer> areas,          // пусто — любой регион
+                        Set<String> scheduleIds,     // пусто — любой тип работы
+                        Double minSalaryRub,         // null — без ограничения
+                        KeywordMatcher exclude) {
+    }
+
+    private record Posting(int subscription, int term) {
+    }
+
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private final Map<String, List<Posting>> postings = new HashMap<>();
+    // Подписчики с пустым запросом получают все вакансии, прошедшие остальные фильтры
+    private final List<Integer> matchAll = new ArrayList<>();
+
+    void add(Subscription template, List<String> terms) {
+        int index = subscriptions.size();
+        subscriptions.add(template);
+        if (terms.isEmpty()) {
+            matchAll.add(index);
+            return;
+        }
+        for (int term = 0; term < terms.size(); term++) {
+            postings.computeIfAbsent(terms.get(term), t -> new ArrayList<>()).add(new Posting(index, term));
+        }
+    }
+
+    int size() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Подписчики, которым подходит вакансия из ленты региона area. Ленту ANY_AREA получают только
+     * подписки без регионов, ленты регионов — только подписки на эти регионы: каждая подписка
+     * читает ровно свои ленты.
+     * salaryRub — верхняя граница зарплаты вакансии в рублях (null, если не указана).
+     */
+    List<Long> match(HHruVacancy item, int area, Double salaryRub) {
+        Map<Integer, Long> hits = new HashMap<>();
+        String title = KeywordMatcher.normalize(item.title());
+        for (String token : title.split(" ")) {
+            for (int length = 1; length <= token.length(); length++) {
+                List<Posting> found = postings.get(token.substring(0, length));
+                if (found == null) continue;
+                for (Posting posting : found) {
+                    hits.merge(posting.subscription(), 1L << posting.term(), (a, b) -> a | b);
+                }
+            }
+        }
+
+        List<Long> matched = new ArrayList<>();
+        hits.forEach((index, mask) -> {
+            Subscription subscription = subscriptions.get(index);
+            if (Long.bitCount(mask) == subscription.termCount() && passesFilters(subscription, item, area, salaryRub)) {
+                matched.add(subscription.telegramId());
+            }
+        });
+        for (int index : matchAll) {
+            Subscription subscription = subscriptions.get(index);
+            if (passesFilters(subscription, item, area, salaryRub)) {
+                matched.add(subscription.telegramId());
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * Слова простого запроса HH.ru; null — запрос использует синтаксис (OR, NOT, кавычки,
+     * скобки, маски), который локально не воспроизводится.
+     */
+    static List<String> parseSimpleQuery(String query) {
+        if (query == null) return List.of();
+        if (!SIMPLE_QUERY.matcher(query).matches()) return null;
+        List<String> terms = Arrays.stream(KeywordMatcher.normalize(query).split(" "))
+                .filter(term -> !term.isEmpty())
+                .distinct()
+                .toList();
+        if (terms.size() > MAX_TERMS || terms.stream().anyMatch(QUERY_OPERATORS::contains)) {
+            return null;
+        }
+        return terms;
+    }
+
+    /** Каждое слово запроса совпадает с началом какого-либо слова нормализованного названия */
+    static boolean matchesAll(String normalizedTitle, List<String> terms) {
+        String[] tokens = normalizedTitle.split(" ");
+        for (String term : terms) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    private static boolean passesFilters(Subscription subscription, HHruVacancy item, int area, Double salaryRub) {
+        if (area == ANY_AREA ? !subscription.areas().isEmpty() : !subscription.areas().contains(area)) {
+            return false;
+        }
+        if (!subscription.scheduleIds().isEmpty() && !subscription.scheduleIds().contains(item.scheduleId())) {
+            return false;
+        }
+        // Как и HH.ru, вакансии без зарплаты порогом не отсекаются
+        if (subscription.minSalaryRub() != null && salaryRub != null && salaryRub < subscription.minSalaryRub()) {
+            return false;
+        }
+        return !subscription.exclude().matches(item.matchText());
+    }
+}
@@ -0,0 +1,271 @@
+package com.mkisten.vacancybackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mkisten.vacancybackend.client.AuthServiceClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Допуск запросов к дорогим эндпоинтам (поиск, batch).
+ * Два уровня защиты:
+ *  1. Глобальный лимит параллельных запросов с короткой очередью. Если по текущей средней
+ *     длительности запроса ожидание в очереди не уложится в таймаут — запрос отклоняется сразу,
+ *     не занимая место в очереди (adaptive load shedding). Проверяется первым — при перегрузке
+ *     отказ происходит до любых обращений к auth-сервису, HH.ru и БД.
+ *  2. Квота на пользователя — token bucket по telegramId (отдельно для каждого эндпоинта),
+ *     поэтому несколько токенов одного пользователя делят одну квоту. telegramId по токену
+ *     берётся из короткоживущего кеша (ключ — хеш токена), при промахе — из профиля auth-сервиса.
+ * Вызывающий получает Retry-After; допуск несёт telegramId, повторно профиль запрашивать не нужно.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchAdmissionService {
+
+    public static final String SEARCH = "search";
+    public static final String BATCH = "batch";
+
+    private final MeterRegistry meterRegistry;
+    private final AuthServiceClient authServiceClient;
+
+    @Value("${app.search-limits.max-concurrent:8}")
+    private int maxConcurrent;
+
+    @Value("${app.search-limits.max-queue:32}")
+    private int maxQueue;
+
+    @Value("${app.search-limits.queue-timeout-ms:2000}")
+    private long queueTimeoutMs;
+
+    @Value("${app.search-limits.search.capacity:5}")
+    private int searchCapacity;
+
+    @Value("${app.search-limits.search.refill-per-minute:10}")
+    private int searchRefillPerMinute;
+
+    @Value("${app.search-limits.batch.capacity:2}")
+    private int batchCapacity;
+
+    @Value("${app.search-limits.batch.refill-per-minute:4}")
+    private int batchRefillPerMinute;
+
+    @Value("${app.search-limits.caller-cache-seconds:60}")
+    private long callerCacheSeconds;
+
+    private Semaphore slots;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // EWMA длительности допущенных запросов, мс — основа для оценки ожидания и Retry-After
+    private volatile double avgLatencyMs = 500;
+
+    // Бакеты неактивных пользователей выселяются — полный бакет эквивалентен отсутствующему
+    private final Cache<String, TokenBucket> buckets = Caffeine.newBuilder()
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .maximumSize(100_000)
+            .build();
+
+    // Хеш токена -> telegramId; сам токен в кеше не храним
+    private Cache<String, Long> callers;
+
+    @PostConstruct
+    void init() {
+        callers = Caffeine.newBuilder()
+                .expireAfterWrite(callerCacheSeconds, TimeUnit.SECONDS)
+                .maximumSize(100_000)
+                .build();
+        slots = new Semaphore(maxConcurrent, true);
+        Gauge.builder("vacancy.search.admission.in_flight", inFlight, AtomicInteger::get)
+                .description("Запросы, выполняющиеся сейчас")
+                .register(meterRegistry);
+        Gauge.builder("vacancy.search.admission.waiting", waiting, AtomicInteger::get)
+                .description("Запросы, ожидающие свободного слота")
+                .register(meterRegistry);
+        Gauge.builder("vacancy.search.admission.avg_latency_ms", this, s -> s.avgLatencyMs)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Попытаться получить допуск. Результат обязательно закрывать (try-with-resources),
+     * иначе слот глобального лимита не освободится.
+     * Ошибка auth-сервиса при определении пользователя пробрасывается (слот при этом освобождается).
+     */
+    public Admission admit(String endpoint, String token) {
+        long shedWaitMs = acquireSlot(endpoint);
+        if (shedWaitMs > 0) {
+            return Admission.rejected(toRetryAfterSeconds(shedWaitMs));
+        }
+
+        Long telegramId;
+        try {
+            String tokenHash = DigestUtils.md5DigestAsHex(token.getBytes(StandardCharsets.UTF_8));
+            telegramId = callers.get(tokenHash, key -> authServiceClient.getCurrentUserProfile(token).getTelegramId());
+        } catch (RuntimeException e) {
+            releaseSlot();
+            throw e;
+        }
+
+        TokenBucket bucket = buckets.get(endpoint + ":" + telegramId, key -> newBucket(endpoint));
+        long quotaWaitMs = bucket.tryConsume();
+        if (quotaWaitMs > 0) {
+            releaseSlot();
+            count(endpoint, "rejected_quota");
+            log.info("Квота {} исчерпана для пользователя {}, повтор через {} мс", endpoint, telegramId, quotaWaitMs);
+            return Admission.rejected(toRetryAfterSeconds(quotaWaitMs));
+        }
+        inFlight.incrementAndGet();
+        count(endpoint, "admitted");
+        return new Admission(true, 0, telegramId, this);
+    }
+
+    /** Занять слот глобального лимита; 0 — занят, иначе ожидаемое ожидание (мс) для Retry-After */
+    private long acquireSlot(String endpoint) {
+        if (slots.tryAcquire()) {
+            return 0;
+        }
+
+        // Свободных слотов нет — решаем, стоит ли ждать
+        int position = waiting.get() + 1;
+        long expectedWaitMs = Math.max(1, (long) (avgLatencyMs * position / maxConcurrent));
+        if (position > maxQueue || expectedWaitMs > queueTimeoutMs) {
+            count(endpoint, "rejected_overload");
+            return expectedWaitMs;
+        }
+
+        waiting.incrementAndGet();
+        meterRegistry.counter("vacancy.search.admission.queued", "endpoint", endpoint).increment();
+        try {
+            if (slots.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return 0;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiting.decrementAndGet();
+        }
+        count(endpoint, "rejected_timeout");
+        return expectedWaitMs;
+    }
+
+    private void releaseSlot() {
+        slots.release();
+    }
+
+    void release(long startedAtNanos) {
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos);
+        avgLatencyMs = avgLatencyMs * 0.9 + elapsedMs * 0.1;
+        inFlight.decrementAndGet();
+        releaseSlot();
+    }
+
+    private TokenBucket newBucket(String endpoint) {
+        return BATCH.equals(endpoint)
+                ? new TokenBucket(batchCapacity, batchRefillPerMinute)
+                : new TokenBucket(searchCapacity, searchRefillPerMinute);
+    }
+
+    private void count(String endpoint, String outcome) {
+        Counter.builder("vacancy.search.admission")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static long toRetryAfterSeconds(long waitMs) {
+        return Math.max(1, (waitMs + 999) / 1000);
+    }
+
+    /** Результат допуска; закрытие освобождает слот глобального лимита */
+    public static final class Admission implements AutoCloseable {
+        private final boolean admitted;
+        private final long retryAfterSeconds;
+        private final Long telegramId;
+        private final SearchAdmissionService owner;
+        private final long startedAtNanos = System.nanoTime();
+        private boolean closed;
+
+        private Admission(boolean admitted, long retryAfterSeconds, Long telegramId, SearchAdmissionService owner) {
+            this.admitted = admitted;
+            this.retryAfterSeconds = retryAfterSeconds;
+            this.telegramId = telegramId;
+            this.owner = owner;
+        }
+
+        static Admission rejected(long retryAfterSeconds) {
+            return new Admission(false, retryAfterSeconds, null, null);
+        }
+
+        public boolean isAdmitted() {
+            return admitted;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        /** Пользователь допущенного запроса */
+        public Long getTelegramId() {
+            return telegramId;
+        }
+
+        @Override
+        public void close() {
+            if (admitted && !closed) {
+                closed = true;
+                owner.release(startedAtNanos);
+            }
+        }
+    }
+
+    /** Простой token bucket: capacity токенов, пополнение refillPerMinute в минуту */
+    static final class TokenBucket {
+        private final int capacity;
+        private final double refillPerMs;
+        private double tokens;
+        private long lastRefillMs;
+
+        TokenBucket(int capacity, int refillPerMinute) {
+            this(capacity, refillPerMinute, System.currentTimeMillis());
+        }
+
+        TokenBucket(int capacity, int refillPerMinute, long nowMs) {
+            this.capacity = capacity;
+            this.refillPerMs = refillPerMinute / 60_000.0;
+            this.tokens = capacity;
+            this.lastRefillMs = nowMs;
+        }
+
+        /** @return 0, если токен получен, иначе сколько мс ждать следующего токена */
+        long tryConsume() {
+            return tryConsume(System.currentTimeMillis());
+        }
+
+        synchronized long tryConsume(long nowMs) {
+            refill(nowMs);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / refillPerMs);
+        }
+
+        private void refill(long nowMs) {
+            tokens = Math.min(capacity, tokens + (nowMs - lastRefillMs) * refillPerMs);
+            lastRefillMs = nowMs;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.dto.HHruVacancy;
+import com.mkisten.vacancybackend.dto.SearchRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Планировщик поисков цикла автообновления.
+ * Запросы, отличающиеся только текстом (одинаковые days, workTypes, countries и зарплата),
+ * объединяются в один запрос HH.ru вида "(q1) OR (q2) OR ...", пока URL и число запросов
+ * в группе укладываются в лимиты. Если объединённый запрос находит больше max-results вакансий,
+ * группа делится пополам. Результат раскладывается обратно по исходным запросам локально
+ * (слова запроса — начала слов названия, как в PercolatorIndex).
+ * Запросы со сложным синтаксисом HH.ru и одиночные запросы идут обычным путём
+ * HHruApiService.searchItems (с общим кешем и объединением одинаковых запросов).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchQueryPlanner {
+
+    private final HHruApiService hhruApiService;
+
+    @Value("${app.hhru.merge.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.hhru.merge.max-queries:10}")
+    private int maxQueries;
+
+    @Value("${app.hhru.merge.max-url-length:2000}")
+    private int maxUrlLength;
+
+    @Value("${app.hhru.merge.max-results:500}")
+    private int maxResults;
+
+    /**
+     * Поисковое задание цикла: один поиск пользователя или пачка объединяемых поисков.
+     * Выполняется стадией fetch конвейера (IngestionPipeline) независимо от остальных заданий.
+     * Ошибка HH.ru не превращается в пустую выдачу: задание бросает исключение, а пользователей,
+     * чей запрос внутри объединённой пачки не удался, в результате нет.
+     */
+    public record SearchJob(List<Long> users, Supplier<Map<Long, List<HHruVacancy>>> action) {
+
+        /** @return telegramId -> общий (неизменяемый) список найденных вакансий (только успешные поиски) */
+        public Map<Long, List<HHruVacancy>> run() {
+            return action.get();
+        }
+    }
+
+    /** Разложить поиски всех пользователей цикла на задания */
+    public List<SearchJob> plan(Map<Long, SearchRequest> requests) {
+        List<SearchJob> jobs = new ArrayList<>();
+        // Ключ совместимости -> (нормализованный текст -> пользователи)
+        Map<String, Map<String, List<Long>>> groups = new LinkedHashMap<>();
+        Map<String, SearchRequest> templates = new HashMap<>();
+
+        requests.forEach((telegramId, request) -> {
+            List<String> terms = PercolatorIndex.parseSimpleQuery(request.getQuery());
+            if (!enabled || terms == null || terms.isEmpty()) {
+                jobs.add(new SearchJob(List.of(telegramId), () -> Map.of(telegramId, hhruApiService.searchItems(request))));
+                return;
+            }
+            String key = compatibilityKey(request);
+            templates.putIfAbsent(key, request);
+            groups.computeIfAbsent(key, k -> new LinkedHashMap<>())
+                    .computeIfAbsent(String.join(" ", terms), q -> new ArrayList<>())
+                    .add(telegramId);
+        });
+
+        groups.forEach((key, byQuery) -> {
+            SearchRequest template = templates.get(key);
+            for (List<String> batch : batches(template, new ArrayList<>(byQuery.keySet()))) {
+                List<Long> users = batch.stream().flatMap(query -> byQuery.get(query).stream()).toList();
+                jobs.add(new SearchJob(users, () -> {
+                    Map<String, List<HHruVacancy>> found = new HashMap<>();
+                    int issued = execute(template, batch, found);
+                    log.debug("Search planner: {} queries served by {} HH.ru requests", batch.size(), issued);
+                    Map<Long, List<HHruVacancy>> results = new HashMap<>();
+                    found.forEach((query, items) -> byQuery.get(query).forEach(telegramId -> results.put(telegramId, items)));
+                    return results;
+                }));
+            }
+        });
+        log.info("Search planner: {} user searches planned as {} search jobs", requests.size(), jobs.size());
+        return jobs;
+    }
+
+    /** Разбить тексты группы на пачки по лимиту числа запросов и длины URL */
+    private List<List<String>> batches(SearchRequest template, List<String> queries) {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        for (String query : queries) {
+            current.add(query);
+            if (current.size() > 1 && (current.size() > maxQueries
+                    || hhruApiService.buildSearchUrl(template, mergedText(current), 0).length() > maxUrlLength)) {
+                current.remove(current.size() - 1);
+                batches.add(current);
+                current = new ArrayList<>(List.of(query));
+            }
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    /**
+     * Выполнить пачку запросов, результаты положить в found; возвращает число запросов к HH.ru.
+     * Запросы, которые не удалось выполнить, в found не попадают.
+     */
+    private int execute(SearchRequest template, List<String> queries, Map<String, List<HHruVacancy>> found) {
+        if (queries.size() == 1) {
+            try {
+                found.put(queries.get(0), hhruApiService.searchItems(withQuery(template, queries.get(0))));
+            } catch (Exception e) {
+                log.error("Error searching vacancies on HH.ru: {}", e.getMessage());
+            }
+            return 1;
+        }
+        try {
+            String text = mergedText(queries);
+            HHruApiService.SearchPage first = hhruApiService.fetchPage(hhruApiService.buildSearchUrl(template, text, 0));
+            if (first.found() > maxResults) {
+                // Слишком широкая выборка — при раскладке пришлось бы терять вакансии
+                int middle = queries.size() / 2;
+                return 1 + execute(template, queries.subList(0, middle), found)
+                        + execute(template, queries.subList(middle, queries.size()), found);
+            }
+            List<HHruVacancy> items = new ArrayList<>(first.items());
+            int pages = Math.min(first.pages(), HHruApiService.FEED_MAX_PAGES);
+            for (int page = 1; page < pages; page++) {
+                items.addAll(hhruApiService.fetchPage(hhruApiService.buildSearchUrl(template, text, page)).items());
+            }
+            demultiplex(queries, items, found);
+            return pages;
+        } catch (Exception e) {
+            log.error("Error executing merged HH.ru search ({} queries): {}", queries.size(), e.getMessage());
+            return 1;
+        }
+    }
+
+    private void demultiplex(List<String> queries, List<HHruVacancy> items, Map<String, List<HHruVacancy>> found) {
+        List<String> titles = items.stream().map(item -> KeywordMatcher.normalize(item.title())).toList();
+        for (String query : queries) {
+            List<String> terms = List.of(query.split(" "));
+            List<HHruVacancy> matched = new ArrayList<>();
+            for (int i = 0; i < items.size(); i++) {
+                if (PercolatorIndex.matchesAll(titles.get(i), terms)) {
+                    matched.add(items.get(i));
+                }
+            }
+            found.put(query, List.copyOf(matched));
+        }
+    }
+
+    private static String mergedText(List<String> queries) {
+        StringJoiner joiner = new StringJoiner(" OR ");
+        queries.forEach(query -> joiner.add("(" + query + ")"));
+        return joiner.toString();
+    }
+
+    private static String compatibilityKey(SearchRequest request) {
+        return request.getDays() + "|"
+                + (request.getWorkTypes() != null ? new TreeSet<>(request.getWorkTypes()) : "[]") + "|"
+                + (request.getCountries() != null ? new TreeSet<>(request.getCountries()) : "[]") + "|"
+                + request.getMinSalary() + "|"
+                + (request.getMinSalary() != null && request.getSalaryCurrency() != null
+                        ? request.getSalaryCurrency().toUpperCase(Locale.ROOT) : "");
+    }
+
+    private static SearchRequest withQuery(SearchRequest template, String query) {
+        SearchRequest request = new SearchRequest();
+        request.setQuery(query);
+        request.setDays(template.getDays());
+        request.setWorkTypes(template.getWorkTypes());
+        request.setCountries(template.getCountries());
+        request.setMinSalary(template.getMinSalary());
+        request.setSalaryCurrency(template.getSalaryCurrency());
+        return request;
+    }
+}
@@ -0,0 +1,99 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.dto.UserSettingsSnapshot;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Кеш состояния подписок для автообновления.
+ * Активная подписка с известной датой окончания не перепроверяется до этой даты.
+ * Истёкшая подписка переводит пользователя в спящий режим: автообновление его пропускает,
+ * не запрашивая ни токен, ни профиль, ни HH.ru. Спящий пользователь просыпается, когда
+ * сервис авторизации вернёт активную подписку — при любом его запросе к API (профиль
+ * приходит с датой подписки) или при редкой фоновой перепроверке.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SubscriptionGate {
+
+    public enum Decision {
+        ACTIVE,   // подписка известна и действует
+        DORMANT,  // подписка истекла, перепроверка ещё не нужна
+        UNKNOWN   // нужно спросить сервис авторизации
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    // Как часто перепроверять активную подписку без даты окончания
+    @Value("${app.subscription-gate.recheck-hours:24}")
+    private long recheckHours;
+
+    // Как часто перепроверять спящих пользователей на случай продления
+    @Value("${app.subscription-gate.dormant-recheck-hours:12}")
+    private long dormantRecheckHours;
+
+    private final Map<Long, State> states = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("vacancy.subscription_gate.dormant", states,
+                        s -> s.values().stream().filter(state -> !state.active).count())
+                .description("Пользователи с истёкшей подпиской, исключённые из автообновления")
+                .register(meterRegistry);
+    }
+
+    public Decision check(Long telegramId) {
+        State state = states.get(telegramId);
+        if (state == null) {
+            return Decision.UNKNOWN;
+        }
+        Instant now = Instant.now();
+        if (state.active) {
+            if (state.endDate != null) {
+                return LocalDate.now().isAfter(state.endDate) ? Decision.UNKNOWN : Decision.ACTIVE;
+            }
+            return now.isAfter(state.checkedAt.plus(recheckHours, ChronoUnit.HOURS)) ? Decision.UNKNOWN : Decision.ACTIVE;
+        }
+        return now.isAfter(state.checkedAt.plus(dormantRecheckHours, ChronoUnit.HOURS)) ? Decision.UNKNOWN : Decision.DORMANT;
+    }
+
+    /** Известно, что подписка истекла — пользователя не нужно даже включать в индекс ленты */
+    public boolean isDormant(Long telegramId) {
+        return check(telegramId) == Decision.DORMANT;
+    }
+
+    /** Запомнить состояние подписки, полученное от сервиса авторизации */
+    public void record(Long telegramId, Boolean active, LocalDate endDate) {
+        if (telegramId == null || active == null) return;
+        boolean effective = active && (endDate == null || !LocalDate.now().isAfter(endDate));
+        State previous = states.put(telegramId, new State(effective, endDate, Instant.now()));
+        if (previous != null && previous.active != effective) {
+            log.info("Подписка пользователя {}: {}", telegramId, effective ? "активна, автообновление возобновлено"
+                    : "истекла, автообновление приостановлено");
+        }
+    }
+
+    /** Забыть пользователей, у которых автообновление выключено */
+    public void retainOnly(Collection<UserSettingsSnapshot> active) {
+        Set<Long> ids = active.stream().map(UserSettingsSnapshot::telegramId).collect(Collectors.toSet());
+        states.keySet().retainAll(ids);
+    }
+
+    private record State(boolean active, LocalDate endDate, Instant checkedAt) {
+    }
+}
@@ -0,0 +1,101 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.client.AuthServiceClient;
+import com.mkisten.vacancybackend.client.DependencyGuards;
+import com.mkisten.vacancybackend.dto.TokenResponse;
+import com.mkisten.vacancybackend.dto.UserSettingsSnapshot;
+import com.mkisten.vacancybackend.repository.UserSettingsSnapshotRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Отправка подборок новых вакансий пользователям с режимом HOURLY / DAILY или тихими часами.
+ * Раз в app.digest.check-interval-ms выбираются пользователи с неотправленными вакансиями
+ * (по счётчику unsent_count), для каждого определяется текущее окно (NotificationSchedule),
+ * окно занимается условным UPDATE и всё накопленное уходит одним сообщением.
+ * Если токен не получен или отправка упала, окно освобождается и подборка уйдёт при следующей проверке.
+ * Токен запрашивается у auth-сервиса только для пользователей, которым подборка действительно уходит.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TelegramDigestScheduler {
+
+    private final UserSettingsSnapshotRepository snapshotRepository;
+    private final NotificationSchedule notificationSchedule;
+    private final VacancyCounterService counterService;
+    private final TelegramNotificationService telegramService;
+    private final AuthServiceClient authServiceClient;
+    private final SubscriptionGate subscriptionGate;
+    private final MeterRegistry meterRegistry;
+    private final DependencyGuards guards;
+
+    @Value("${app.digest.enabled:true}")
+    private boolean enabled;
+
+    private Counter digestsSent;
+    private Counter digestVacancies;
+
+    @PostConstruct
+    void init() {
+        digestsSent = Counter.builder("telegram.digest.sent")
+                .description("Отправленные подборки вакансий")
+                .register(meterRegistry);
+        digestVacancies = Counter.builder("telegram.digest.vacancies")
+                .description("Вакансии, отправленные в подборках")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.digest.check-interval-ms:60000}",
+            initialDelayString = "${app.digest.initial-delay-ms:60000}")
+    public void flushDue() {
+        if (!enabled || !guards.auth().isAvailable()) return;
+        List<UserSettingsSnapshot> pending = snapshotRepository.findWithPendingDigest();
+        if (pending.isEmpty()) return;
+        ZonedDateTime now = notificationSchedule.now();
+        int sent = 0;
+        for (UserSettingsSnapshot settings : pending) {
+            try {
+                LocalDateTime windowStart = notificationSchedule.digestWindowStart(settings, now);
+                if (windowStart == null || subscriptionGate.isDormant(settings.telegramId())) continue;
+                if (!counterService.claimDigestWindow(settings.telegramId(), windowStart)) continue;
+                if (flushOrRelease(settings.telegramId(), windowStart)) sent++;
+            } catch (Exception e) {
+                log.error("Ошибка отправки подборки пользователю {}: {}", settings.telegramId(), e.getMessage());
+            }
+        }
+        if (sent > 0) {
+            log.info("Digest: sent {} digests ({} users pending)", sent, pending.size());
+        }
+    }
+
+    private boolean flushOrRelease(Long telegramId, LocalDateTime windowStart) {
+        int count;
+        try {
+            TokenResponse token = authServiceClient.getTokenByTelegramId(telegramId);
+            if (token == null || token.getToken() == null || token.getToken().isBlank()) {
+                log.warn("Токен для пользователя {} не получен, подборка будет отправлена при следующей проверке", telegramId);
+                counterService.releaseDigestWindow(telegramId, windowStart);
+                return false;
+            }
+            count = telegramService.sendDigest(token.getToken(), telegramId);
+        } catch (RuntimeException e) {
+            counterService.releaseDigestWindow(telegramId, windowStart);
+            throw e;
+        }
+        if (count == 0) return false;
+        digestsSent.increment();
+        digestVacancies.increment(count);
+        return true;
+    }
+}
@@ -22,13 +22,20 @@ public class TelegramNotificationService {
 
     private final AuthServiceClient authServiceClient;
     private final VacancyRepository vacancyRepository;
+    private final VacancyCounterService counterService;
 
     @Value("${app.telegram.max-vacancies-per-message:10}")
     private int maxVacanciesPerMessage;
 
-    public TelegramNotificationService(AuthServiceClient authServiceClient, VacancyRepository vacancyRepository) {
+    // Лимит Telegram — 4096 символов; запас на заголовок и хвост подборки
+    @Value("${app.digest.max-message-chars:3500}")
+    private int maxDigestChars;
+
+    public TelegramNotificationService(AuthServiceClient authServiceClient, VacancyRepository vacancyRepository,
+                                       VacancyCounterService counterService) {
         this.authServiceClient = authServiceClient;
         this.vacancyRepository = vacancyRepository;
+        this.counterService = counterService;
     }
 
     // Кеш для временного хранения неотправленных вакансий
@@ -82,7 +89,8 @@ public class TelegramNotificationService {
 
         // Шаг 3: После успешной отправки всех батчей обновляем БД одним запросом
         if (!sentIds.isEmpty()) {
-            vacancyRepository.markAsSentToTelegram(userTelegramId, sentIds);
+            int marked = vacancyRepository.markAsSentToTelegram(userTelegramId, sentIds);
+            counterService.onSent(userTelegramId, marked);
             log.info("Помечено отправленными в БД {} вакансий для user {}", sentIds.size(), userTelegramId);
         }
 
@@ -90,6 +98,25 @@ public class TelegramNotificationService {
         vacanciesCache.invalidate(userTelegramId);
     }
 
+    /**
+     * Подборка: все неотправленные вакансии пользователя одним сообщением в компактном виде.
+     * Не поместившиеся в сообщение перечисляются числом и тоже помечаются отправленными —
+     * они доступны в приложении. Возвращает число вакансий в подборке (0 — отправлять нечего).
+     */
+    @Transactional
+    public int sendDigest(String userToken, Long userTelegramId) {
+        List<Vacancy> unsent = vacancyRepository.findByUserTelegramIdAndSentToTelegramFalseOrderByPublishedAtAsc(userTelegramId);
+        if (unsent.isEmpty()) {
+            return 0;
+        }
+        sendTextMessage(userToken, formatDigestMessage(unsent));
+        List<String> sentIds = unsent.stream().map(Vacancy::getId).toList();
+        int marked = vacancyRepository.markAsSentToTelegram(userTelegramId, sentIds);
+        counterService.onSent(userTelegramId, marked);
+        log.info("Подборка: отправлено {} вакансий для user {}", sentIds.size(), userTelegramId);
+        return sentIds.size();
+    }
+
     /** Универсальная отправка текста в Telegram */
     public void sendTextMessage(String userToken, String text) {
         try {
@@ -101,6 +128,23 @@ public class TelegramNotificationService {
         }
     }
 
+    /** Сообщить об изменившихся на HH.ru вакансиях (зарплата, название и т.п.) пачками по maxVacanciesPerMessage */
+    public void sendUpdatedVacanciesNotification(String userToken, List<Vacancy> vacancies) {
+        for (int from = 0; from < vacancies.size(); from += maxVacanciesPerMessage) {
+            List<Vacancy> batch = vacancies.subList(from, Math.min(vacancies.size(), from + maxVacanciesPerMessage));
+            StringBuilder sb = new StringBuilder(batch.size() == 1
+                    ? "✏️ Вакансия изменилась:\n\n"
+                    : "✏️ Изменились вакансии (" + batch.size() + "):\n\n");
+            for (int i = 0; i < batch.size(); i++) {
+                sb.append(formatSingleVacancy(batch.get(i)));
+                if (i + 1 < batch.size()) {
+                    sb.append("\n").append("─".repeat(30)).append("\n\n");
+                }
+            }
+            sendTextMessage(userToken, sb.toString());
+        }
+    }
+
     // Вспомогательные сервисные уведомления
     public void sendTestNotification(String userToken) {
         String message = "🧪 <b>Тестовое уведомление</b>\n\n" +
@@ -151,6 +195,33 @@ public class TelegramNotificationService {
         return sb.toString();
     }
 
+    private String formatDigestMessage(List<Vacancy> vacancies) {
+        StringBuilder sb = new StringBuilder("📬 Подборка новых вакансий (").append(vacancies.size()).append("):\n\n");
+        int shown = 0;
+        for (Vacancy vacancy : vacancies) {
+            String line = formatDigestLine(vacancy);
+            if (sb.length() + line.length() > maxDigestChars) break;
+            sb.append(line);
+            shown++;
+        }
+        if (shown < vacancies.size()) {
+            sb.append("…и ещё ").append(vacancies.size() - shown).append("\n");
+        }
+        sb.append("\n🚀 Открывайте приложение для просмотра всех вакансий!");
+        return sb.toString();
+    }
+
+    private String formatDigestLine(Vacancy vacancy) {
+        StringBuilder sb = new StringBuilder("• *").append(escapeMarkdown(vacancy.getTitle())).append("*");
+        if (vacancy.getEmployer() != null) {
+            sb.append(" — ").append(escapeMarkdown(vacancy.getEmployer()));
+        }
+        if (vacancy.getSalary() != null && !vacancy.getSalary().equals("Не указана")) {
+            sb.append(", ").append(escapeMarkdown(vacancy.getSalary()));
+        }
+        return sb.append("\n").append(vacancy.getUrl()).append("\n\n").toString();
+    }
+
     private String formatSingleVacancy(Vacancy vacancy) {
         StringBuilder sb = new StringBuilder();
         sb.append("🎯 *").append(escapeMarkdown(vacancy.getTitle())).append("*\n");
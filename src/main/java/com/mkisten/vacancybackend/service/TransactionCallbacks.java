@@ -0,0 +1,25 @@
+package com.mkisten.vacancybackend.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/** Действия над кешами в памяти, которые должны следовать за фиксацией текущей транзакции */
+final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    /** Выполнить action после фиксации текущей транзакции; вне транзакции — сразу */
+    static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
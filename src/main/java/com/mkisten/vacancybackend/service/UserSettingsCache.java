@@ -0,0 +1,97 @@
+package com.mkisten.vacancybackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mkisten.vacancybackend.dto.UserSettingsSnapshot;
+import com.mkisten.vacancybackend.repository.UserSettingsSnapshotRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кеш снимков настроек пользователей: по одному на пользователя (поиск) и общий список
+ * пользователей с автообновлением (планировщик и общая лента).
+ * Изменение настроек публикуется через Postgres NOTIFY в канал app.settings-cache.channel;
+ * NOTIFY доставляется только после фиксации транзакции, и каждый экземпляр приложения
+ * (UserSettingsChangeListener) вытесняет у себя запись пользователя. Срок жизни записи —
+ * страховка на случай потерянного уведомления.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserSettingsCache {
+
+    private static final String AUTO_UPDATE_KEY = "auto-update";
+
+    private final UserSettingsSnapshotRepository snapshotRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.settings-cache.expire-minutes:30}")
+    private long expireMinutes;
+
+    @Value("${app.settings-cache.max-size:100000}")
+    private long maxSize;
+
+    @Value("${app.settings-cache.channel:user_settings_changed}")
+    private String channel;
+
+    private Cache<Long, UserSettingsSnapshot> snapshots;
+    private Cache<String, List<UserSettingsSnapshot>> autoUpdate;
+
+    @PostConstruct
+    void init() {
+        snapshots = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+        autoUpdate = Caffeine.newBuilder()
+                .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, snapshots, "user_settings.snapshots");
+    }
+
+    /** Снимок настроек пользователя или null, если настроек в БД ещё нет (отсутствие не кешируется) */
+    public UserSettingsSnapshot get(Long telegramId) {
+        return snapshots.get(telegramId, id -> snapshotRepository.findByTelegramId(id).orElse(null));
+    }
+
+    /** Все пользователи с включённым автообновлением */
+    public List<UserSettingsSnapshot> autoUpdateEnabled() {
+        return autoUpdate.get(AUTO_UPDATE_KEY, key -> snapshotRepository.findAutoUpdateEnabled());
+    }
+
+    /**
+     * Сообщить всем экземплярам об изменении настроек пользователя. Вызывается внутри
+     * транзакции изменения: уведомление уйдёт (и локальная запись вытеснится) только после фиксации.
+     */
+    public void publishChange(Long telegramId) {
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, telegramId.toString());
+        TransactionCallbacks.afterCommit(() -> evict(telegramId));
+    }
+
+    /** Вытеснить запись пользователя; список автообновления зависит от всех пользователей и сбрасывается целиком */
+    public void evict(Long telegramId) {
+        snapshots.invalidate(telegramId);
+        autoUpdate.invalidateAll();
+    }
+
+    /** Сбросить кеш полностью (например, после переподключения слушателя — уведомления могли быть потеряны) */
+    public void invalidateAll() {
+        snapshots.invalidateAll();
+        autoUpdate.invalidateAll();
+    }
+
+    String channel() {
+        return channel;
+    }
+}
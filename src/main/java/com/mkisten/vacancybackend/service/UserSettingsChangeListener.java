@@ -0,0 +1,110 @@
+package com.mkisten.vacancybackend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Подписка на изменения настроек пользователей (Postgres LISTEN) для UserSettingsCache.
+ * Держит собственное соединение вне пула: LISTEN привязан к сессии, а соединение пула
+ * было бы занято постоянно. При обрыве соединение восстанавливается, а кеш сбрасывается
+ * целиком — уведомления, пришедшие во время обрыва, потеряны.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserSettingsChangeListener {
+
+    private final UserSettingsCache settingsCache;
+    private final DataSourceProperties dataSourceProperties;
+
+    @Value("${app.settings-cache.listen-enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.settings-cache.poll-timeout-ms:5000}")
+    private int pollTimeoutMs;
+
+    @Value("${app.settings-cache.reconnect-delay-ms:10000}")
+    private long reconnectDelayMs;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            log.info("Settings change listener is disabled");
+            return;
+        }
+        String channel = settingsCache.channel();
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalStateException("Недопустимое имя канала app.settings-cache.channel: " + channel);
+        }
+        running = true;
+        worker = new Thread(() -> listen(channel), "settings-change-listener");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void listen(String channel) {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                settingsCache.invalidateAll();
+                log.info("Listening for settings changes on channel {}", channel);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications == null) continue;
+                    for (PGNotification notification : notifications) {
+                        onNotification(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) break;
+                log.warn("Подписка на изменения настроек прервана: {}. Повтор через {} мс",
+                        e.getMessage(), reconnectDelayMs);
+                settingsCache.invalidateAll();
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    private void onNotification(String payload) {
+        try {
+            settingsCache.evict(Long.valueOf(payload));
+            log.debug("Settings cache evicted for user {}", payload);
+        } catch (NumberFormatException e) {
+            log.warn("Неизвестное уведомление об изменении настроек: {}", payload);
+            settingsCache.invalidateAll();
+        }
+    }
+}
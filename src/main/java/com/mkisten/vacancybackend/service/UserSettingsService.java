@@ -1,7 +1,10 @@
 package com.mkisten.vacancybackend.service;
 
 import com.mkisten.vacancybackend.client.AuthServiceClient;
+import com.mkisten.vacancybackend.config.ReadYourWritesTracker;
+import com.mkisten.vacancybackend.dto.ProfileResponse;
 import com.mkisten.vacancybackend.dto.SubscriptionStatusResponse;
+import com.mkisten.vacancybackend.dto.UserSettingsSnapshot;
 import com.mkisten.vacancybackend.entity.UserSettings;
 import com.mkisten.vacancybackend.repository.UserSettingsRepository;
 import lombok.RequiredArgsConstructor;
@@ -17,10 +20,16 @@ public class UserSettingsService {
     private final UserSettingsRepository settingsRepository;
     private final AuthServiceClient authServiceClient;
     private final TelegramNotificationService telegramService;
+    private final SubscriptionGate subscriptionGate;
+    private final UserSettingsCache settingsCache;
+    private final ReadYourWritesTracker readYourWrites;
 
     /** Получить текущего пользователя из токена */
     private Long getTelegramIdByToken(String token) {
-        return authServiceClient.getCurrentUserProfile(token).getTelegramId();
+        ProfileResponse profile = authServiceClient.getCurrentUserProfile(token);
+        subscriptionGate.record(profile.getTelegramId(), profile.getIsActive(), profile.getSubscriptionEndDate());
+        readYourWrites.bindUser(profile.getTelegramId());
+        return profile.getTelegramId();
     }
 
     @Transactional(readOnly = true)
@@ -30,6 +39,13 @@ public class UserSettingsService {
                 .orElseGet(() -> createDefaultSettings(telegramId));
     }
 
+    /** Настройки для поиска — из кеша, без обращения к БД (кроме первого раза) */
+    public UserSettingsSnapshot getSettingsSnapshot(String token) {
+        Long telegramId = getTelegramIdByToken(token);
+        UserSettingsSnapshot snapshot = settingsCache.get(telegramId);
+        return snapshot != null ? snapshot : UserSettingsSnapshot.of(createDefaultSettings(telegramId));
+    }
+
     /** Проверить подписку (через токен) */
     public boolean isSubscriptionActive(String token) {
         try {
@@ -43,7 +59,11 @@ public class UserSettingsService {
 
     /** Получить информацию о подписке (через токен) */
     public SubscriptionStatusResponse getSubscriptionInfo(String token) {
-        return authServiceClient.getSubscriptionStatus(token);
+        SubscriptionStatusResponse status = authServiceClient.getSubscriptionStatus(token);
+        if (status != null) {
+            subscriptionGate.record(status.getTelegramId(), status.getActive(), status.getSubscriptionEndDate());
+        }
+        return status;
     }
 
     @Transactional
@@ -53,9 +73,18 @@ public class UserSettingsService {
                 .orElseGet(() -> createDefaultSettings(telegramId));
         // обновляем поля как раньше...
         existingSettings.setSearchQuery(newSettings.getSearchQuery());
+        existingSettings.setExcludeKeywords(newSettings.getExcludeKeywords());
+        existingSettings.setMinSalary(newSettings.getMinSalary());
+        existingSettings.setSalaryCurrency(newSettings.getSalaryCurrency());
+        if (newSettings.getNotifyMode() != null) {
+            existingSettings.setNotifyMode(newSettings.getNotifyMode());
+        }
+        existingSettings.setQuietHoursStart(validHour(newSettings.getQuietHoursStart()));
+        existingSettings.setQuietHoursEnd(validHour(newSettings.getQuietHoursEnd()));
         // ...и другие поля
 
         UserSettings saved = settingsRepository.save(existingSettings);
+        settingsCache.publishChange(telegramId);
 
         // Отправить уведомление об обновлении
         if (Boolean.TRUE.equals(saved.getTelegramNotify())) {
@@ -76,10 +105,18 @@ public class UserSettingsService {
         settings.setAutoUpdateEnabled(enabled);
         settings.setAutoUpdateInterval(intervalMinutes);
         settingsRepository.save(settings);
+        settingsCache.publishChange(telegramId);
         log.info("Auto-update settings updated for user {}: enabled={}, interval={}min",
                 telegramId, enabled, intervalMinutes);
     }
 
+    private static Integer validHour(Integer hour) {
+        if (hour != null && (hour < 0 || hour > 23)) {
+            throw new IllegalArgumentException("Час тихого режима должен быть от 0 до 23: " + hour);
+        }
+        return hour;
+    }
+
     private UserSettings createDefaultSettings(Long telegramId) {
         UserSettings settings = new UserSettings(telegramId);
         return settingsRepository.save(settings);
@@ -1,68 +1,129 @@
 package com.mkisten.vacancybackend.service;
 
 import com.mkisten.vacancybackend.client.AuthServiceClient;
+import com.mkisten.vacancybackend.client.DependencyGuard;
+import com.mkisten.vacancybackend.client.DependencyGuards;
 import com.mkisten.vacancybackend.dto.SearchRequest;
+import com.mkisten.vacancybackend.dto.SubscriptionStatusResponse;
 import com.mkisten.vacancybackend.dto.TokenResponse;
-import com.mkisten.vacancybackend.entity.UserSettings;
-import com.mkisten.vacancybackend.entity.Vacancy;
-import com.mkisten.vacancybackend.repository.UserSettingsRepository;
+import com.mkisten.vacancybackend.dto.UserSettingsSnapshot;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class VacancyAutoUpdater {
 
-    private final UserSettingsRepository userSettingsRepository;
-    private final VacancySmartService vacancySmartService;
+    private final UserSettingsCache settingsCache;
     private final AuthServiceClient authServiceClient;
+    private final VacancyBulkDeleteService bulkDeleteService;
+    private final VacancyPercolatorService percolatorService;
+    private final SearchQueryPlanner searchQueryPlanner;
+    private final AdaptivePollScheduler pollScheduler;
+    private final SubscriptionGate subscriptionGate;
+    private final NotificationSchedule notificationSchedule;
+    private final DependencyGuards guards;
+    private final IngestionPipeline ingestionPipeline;
 
     @Scheduled(fixedRate = 60000)
     public void updateAllUsers() {
         log.info("== Автообновление вакансий для всех пользователей ==");
-        List<UserSettings> settingsList = userSettingsRepository.findByAutoUpdateEnabledTrue();
+        // Пока HH.ru или auth-сервис недоступны, цикл не начинается — пользователи останутся в очереди до следующего
+        DependencyGuard unavailable = firstUnavailable();
+        if (unavailable != null) {
+            log.warn("Автообновление пропущено: сервис {} недоступен (circuit breaker открыт)", unavailable.getName());
+            return;
+        }
+        List<UserSettingsSnapshot> settingsList = settingsCache.autoUpdateEnabled();
+        pollScheduler.retainOnly(settingsList);
+        subscriptionGate.retainOnly(settingsList);
+        Instant now = Instant.now();
 
-        for (UserSettings settings : settingsList) {
+        // Сначала собираем поиски всех пользователей цикла, чтобы планировщик мог их объединить
+        Map<Long, IngestionPipeline.Delivery> deliveries = new LinkedHashMap<>();
+        Map<Long, SearchRequest> requests = new LinkedHashMap<>();
+        for (UserSettingsSnapshot settings : settingsList) {
+            if (!guards.auth().isAvailable()) {
+                log.warn("Auth-сервис стал недоступен — сбор токенов цикла прерван");
+                break;
+            }
             try {
-                if (!shouldUpdateNow(settings)) continue;
+                // Пользователи с истёкшей подпиской спят до продления — без токена, профиля и HH.ru
+                SubscriptionGate.Decision subscription = subscriptionGate.check(settings.telegramId());
+                if (subscription == SubscriptionGate.Decision.DORMANT) continue;
+                if (!pollScheduler.isDue(settings, now)) continue;
+                // Предыдущий поиск пользователя ещё в конвейере — повторно не ставим
+                if (ingestionPipeline.isInFlight(settings.telegramId())) continue;
+                // В режиме percolator простые поиски обслуживаются общей лентой
+                if (percolatorService.supports(settings)) continue;
+                if (bulkDeleteService.isIngestionPaused(settings.telegramId())) {
+                    log.info("Пользователь {}: идёт массовое удаление, автообновление пропущено", settings.telegramId());
+                    continue;
+                }
 
                 String token = getTokenForUser(settings);
                 if (token == null) {
-                    log.warn("Токен для пользователя {} не получен, пропускаем", settings.getTelegramId());
+                    log.warn("Токен для пользователя {} не получен, пропускаем", settings.telegramId());
+                    continue;
+                }
+                if (subscription == SubscriptionGate.Decision.UNKNOWN && !refreshSubscription(settings, token)) {
+                    log.info("Подписка пользователя {} неактивна, автообновление приостановлено", settings.telegramId());
                     continue;
                 }
 
                 // Подготовка запроса на основе пользовательских настроек
-                SearchRequest request = new SearchRequest();
-                request.setQuery(settings.getSearchQuery());
-                request.setDays(settings.getDays());
-                request.setWorkTypes(settings.getWorkTypes());
-                request.setCountries(settings.getCountries());
-                request.setExcludeKeywords(settings.getExcludeKeywords());
-                request.setTelegramNotify(settings.getTelegramNotify());
-
-                // Поиск, сохранение и отправка
-                List<Vacancy> foundVacancies = vacancySmartService.searchWithUserSettings(
-                        request, token, settings.getTelegramId());
-
-                log.info("Auto-update completed for user {}. Found {} vacancies",
-                        settings.getTelegramId(), foundVacancies.size());
+                SearchRequest request = settings.toSearchRequest();
 
+                deliveries.put(settings.telegramId(), new IngestionPipeline.Delivery(settings.telegramId(), token,
+                        settings.excludeKeywords(), notificationSchedule.sendsImmediately(settings),
+                        added -> onSaved(settings, added)));
+                requests.put(settings.telegramId(), request);
             } catch (Exception e) {
-                log.error("Ошибка автообновления для user: {} — {}", settings.getTelegramId(), e.getMessage(), e);
+                log.error("Ошибка автообновления для user: {} — {}", settings.telegramId(), e.getMessage(), e);
+            }
+        }
+
+        // Поиск (совместимые запросы объединяются), сохранение и отправка — стадиями конвейера;
+        // при переполненной очереди постановка ждёт, и цикл замедляется вместе с конвейером
+        for (SearchQueryPlanner.SearchJob job : searchQueryPlanner.plan(requests)) {
+            if (!ingestionPipeline.submitSearch(job, deliveries)) {
+                log.warn("Конвейер переполнен, поиск {} пользователей отложен до следующего цикла", job.users().size());
             }
         }
         log.info("== Автообновление вакансий завершено ==");
     }
 
-    private String getTokenForUser(UserSettings settings) {
+    private void onSaved(UserSettingsSnapshot settings, int added) {
+        pollScheduler.recordResult(settings, added, Instant.now());
+        log.info("Auto-update completed for user {}. New {} vacancies", settings.telegramId(), added);
+    }
+
+    private DependencyGuard firstUnavailable() {
+        if (!guards.hhru().isAvailable()) return guards.hhru();
+        if (!guards.auth().isAvailable()) return guards.auth();
+        return null;
+    }
+
+    private boolean refreshSubscription(UserSettingsSnapshot settings, String token) {
+        SubscriptionStatusResponse status = authServiceClient.getSubscriptionStatus(token);
+        if (status == null || status.getActive() == null) {
+            return true; // состояние неизвестно — не блокируем пользователя
+        }
+        subscriptionGate.record(settings.telegramId(), status.getActive(), status.getSubscriptionEndDate());
+        return subscriptionGate.check(settings.telegramId()) == SubscriptionGate.Decision.ACTIVE;
+    }
+
+    private String getTokenForUser(UserSettingsSnapshot settings) {
         try {
-            Long telegramId = settings.getTelegramId();
+            Long telegramId = settings.telegramId();
             if (telegramId == null) return null;
             TokenResponse resp = authServiceClient.getTokenByTelegramId(telegramId);
             if (resp == null || resp.getToken() == null || resp.getToken().isBlank()) {
@@ -71,12 +132,8 @@ public class VacancyAutoUpdater {
             }
             return resp.getToken();
         } catch (Exception e) {
-            log.error("getTokenForUser: ошибка получения токена для {}: {}", settings.getTelegramId(), e.getMessage());
+            log.error("getTokenForUser: ошибка получения токена для {}: {}", settings.telegramId(), e.getMessage());
             return null;
         }
     }
-
-    private boolean shouldUpdateNow(UserSettings settings) {
-        return true; // Всегда обновляем (можно добавить логику интервала)
-    }
 }
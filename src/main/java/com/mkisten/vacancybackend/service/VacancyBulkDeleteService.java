@@ -0,0 +1,187 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.config.ReadYourWritesTracker;
+import com.mkisten.vacancybackend.dto.BulkDeleteJobResponse;
+import com.mkisten.vacancybackend.dto.VacancyCounterDelta;
+import com.mkisten.vacancybackend.repository.IngestionPauseRepository;
+import com.mkisten.vacancybackend.repository.UserVacancyCountersRepository;
+import com.mkisten.vacancybackend.repository.VacancyRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Асинхронное удаление всех вакансий пользователя.
+ * Строки удаляются порциями по chunk-size, каждая порция — отдельная короткая транзакция
+ * (короткие блокировки, без большого всплеска WAL). Пока задача идёт, приём новых вакансий
+ * для пользователя приостановлен на всех узлах (IngestionPauseRepository). Состояние задачи хранится
+ * в строке паузы, поэтому прогресс по id задачи доступен с любого узла.
+ */
+@Slf4j
+@Service
+public class VacancyBulkDeleteService {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private final VacancyRepository vacancyRepository;
+    private final UserVacancyCountersRepository countersRepository;
+    private final IngestionPauseRepository pauseRepository;
+    private final VacancyCounterService counterService;
+    private final VacancyStatusBuffer statusBuffer;
+    private final VacancySeenIndex seenIndex;
+    private final NearDuplicateIndex nearDuplicates;
+    private final ReadYourWritesTracker readYourWrites;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.bulk-delete.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.bulk-delete.chunk-pause-ms:20}")
+    private long chunkPauseMs;
+
+    @Value("${app.bulk-delete.threads:2}")
+    private int threads;
+
+    // Пауза приёма продлевается после каждой порции; столько она переживёт упавший узел
+    @Value("${app.bulk-delete.pause-ttl-seconds:300}")
+    private long pauseTtlSeconds;
+
+    // Задачи сверх очереди не ждут неопределённо долго, а сразу завершаются ошибкой
+    @Value("${app.bulk-delete.queue-capacity:100}")
+    private int queueCapacity;
+
+    private ThreadPoolTaskExecutor executor;
+
+    public VacancyBulkDeleteService(VacancyRepository vacancyRepository,
+                                    UserVacancyCountersRepository countersRepository,
+                                    IngestionPauseRepository pauseRepository,
+                                    VacancyCounterService counterService,
+                                    VacancyStatusBuffer statusBuffer,
+                                    VacancySeenIndex seenIndex,
+                                    NearDuplicateIndex nearDuplicates,
+                                    ReadYourWritesTracker readYourWrites,
+                                    PlatformTransactionManager transactionManager) {
+        this.vacancyRepository = vacancyRepository;
+        this.countersRepository = countersRepository;
+        this.pauseRepository = pauseRepository;
+        this.counterService = counterService;
+        this.statusBuffer = statusBuffer;
+        this.seenIndex = seenIndex;
+        this.nearDuplicates = nearDuplicates;
+        this.readYourWrites = readYourWrites;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void initExecutor() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("bulk-delete-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Идёт ли удаление вакансий пользователя на этом или другом узле.
+     * Вызывается под VacancyRepository.lockUserForInsert: порции удаления берут ту же блокировку,
+     * поэтому вставка либо видит паузу, либо успевает завершиться до ближайшей порции и удаляется ею.
+     */
+    public boolean isIngestionPaused(Long userTelegramId) {
+        return pauseRepository.isPaused(userTelegramId);
+    }
+
+    /** Запустить удаление; если оно уже идёт — вернуть текущую задачу */
+    public BulkDeleteJobResponse start(Long userTelegramId) {
+        String jobId = UUID.randomUUID().toString();
+        if (!pauseRepository.tryStart(userTelegramId, jobId, RUNNING, estimateTotal(userTelegramId), pauseTtlSeconds)) {
+            return currentJob(userTelegramId);
+        }
+        try {
+            executor.execute(() -> run(userTelegramId, jobId));
+        } catch (TaskRejectedException e) {
+            log.warn("Очередь массового удаления заполнена — задача {} пользователя {} отклонена", jobId, userTelegramId);
+            pauseRepository.finish(userTelegramId, jobId, FAILED, 0, "queue full");
+        }
+        return currentJob(userTelegramId);
+    }
+
+    public Optional<BulkDeleteJobResponse> getJob(Long userTelegramId, String jobId) {
+        return pauseRepository.findJob(userTelegramId)
+                .filter(job -> job.getJobId().equals(jobId));
+    }
+
+    private BulkDeleteJobResponse currentJob(Long userTelegramId) {
+        return pauseRepository.findJob(userTelegramId)
+                .orElseThrow(() -> new IllegalStateException("Задача удаления пользователя " + userTelegramId + " не найдена"));
+    }
+
+    private void run(Long userTelegramId, String jobId) {
+        log.info("Массовое удаление вакансий пользователя {} начато (задача {})", userTelegramId, jobId);
+        long deleted = 0;
+        String status = COMPLETED;
+        String error = null;
+        try {
+            // Задача могла простоять в очереди: пауза отсчитывается заново от фактического начала
+            pauseRepository.extend(userTelegramId, jobId, 0, pauseTtlSeconds);
+            statusBuffer.discardAll(userTelegramId);
+            while (true) {
+                long deletedBefore = deleted;
+                VacancyCounterDelta delta = transactionTemplate.execute(tx -> {
+                    vacancyRepository.lockUserForInsert(userTelegramId);
+                    VacancyCounterDelta chunk = vacancyRepository.deleteBatchForUser(userTelegramId, chunkSize);
+                    counterService.apply(userTelegramId, chunk);
+                    pauseRepository.extend(userTelegramId, jobId, deletedBefore + chunk.getAffected(), pauseTtlSeconds);
+                    return chunk;
+                });
+                long chunkDeleted = delta == null ? 0 : delta.getAffected();
+                deleted += chunkDeleted;
+                if (chunkDeleted < chunkSize) break;
+                Thread.sleep(chunkPauseMs);
+            }
+            log.info("Массовое удаление пользователя {} завершено: удалено {}", userTelegramId, deleted);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = FAILED;
+            error = "interrupted";
+        } catch (Exception e) {
+            log.error("Ошибка массового удаления вакансий пользователя {}: {}", userTelegramId, e.getMessage(), e);
+            status = FAILED;
+            error = e.getMessage();
+        } finally {
+            seenIndex.invalidate(userTelegramId);
+            nearDuplicates.invalidate(userTelegramId);
+            readYourWrites.markWritten(userTelegramId);
+            try {
+                pauseRepository.finish(userTelegramId, jobId, status, deleted, error);
+            } catch (Exception e) {
+                log.warn("Не удалось снять паузу приёма вакансий пользователя {} — истечёт сама: {}",
+                        userTelegramId, e.getMessage());
+            }
+        }
+    }
+
+    private long estimateTotal(Long userTelegramId) {
+        return countersRepository.findById(userTelegramId)
+                .map(c -> c.getNewCount() + c.getViewedCount() + c.getHiddenCount())
+                .orElse(-1L);
+    }
+}
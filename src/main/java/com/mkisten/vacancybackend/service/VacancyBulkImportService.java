@@ -0,0 +1,186 @@
+package com.mkisten.vacancybackend.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mkisten.vacancybackend.entity.Vacancy;
+import com.mkisten.vacancybackend.repository.VacancyRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Потоковый импорт вакансий от парсеров (POST /vacancies/batch?mode=copy).
+ * Тело — тот же JSON-массив, что и у обычного batch, но разбирается по одному элементу
+ * и сразу пишется через COPY во временную таблицу; затем один UPDATE перезаписывает уже
+ * сохранённые вакансии с изменившимся отпечатком содержимого, и одна вставка INSERT ... SELECT
+ * переносит в vacancies только id, которых у пользователя ещё нет.
+ * Ни весь список, ни множество id пользователя в память не загружаются.
+ * Импорт сериализуется с другими записями вакансий пользователя (импорты, VacancyService.ingestVacancies)
+ * той же advisory-блокировкой VacancyRepository.lockUserForInsert.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VacancyBulkImportService {
+
+    private static final int COPY_CHUNK_BYTES = 64 * 1024;
+
+    private static final String CREATE_STAGING_SQL =
+            "CREATE TEMP TABLE vacancy_import (" +
+            " id TEXT, title TEXT, employer TEXT, city TEXT, schedule TEXT, salary TEXT," +
+            " salary_from INTEGER, salary_to INTEGER, salary_currency TEXT, salary_gross BOOLEAN," +
+            " url TEXT, published_at TIMESTAMP, content_hash BIGINT, simhash BIGINT) ON COMMIT DROP";
+
+    private static final String COPY_SQL =
+            "COPY vacancy_import (id, title, employer, city, schedule, salary, salary_from, salary_to," +
+            " salary_currency, salary_gross, url, published_at, content_hash, simhash) FROM STDIN (FORMAT csv)";
+
+    private static final String UPDATE_CHANGED_SQL =
+            "UPDATE vacancies v SET title = s.title, employer = s.employer, city = s.city, schedule = s.schedule," +
+            " salary = s.salary, salary_from = s.salary_from, salary_to = s.salary_to, salary_currency = s.salary_currency," +
+            " salary_gross = s.salary_gross, url = s.url, published_at = s.published_at, content_hash = s.content_hash," +
+            " simhash = s.simhash " +
+            "FROM (SELECT DISTINCT ON (id) * FROM vacancy_import ORDER BY id) s " +
+            "WHERE v.user_telegram_id = ? AND v.id = s.id AND v.content_hash IS DISTINCT FROM s.content_hash";
+
+    // DISTINCT ON — повторы id внутри одного импорта; ключ секционированной таблицы включает
+    // loaded_at, а уникальность (user_telegram_id, id) держит vacancy_keys, поэтому дубли
+    // с уже сохранёнными отсекаются NOT EXISTS, а не ON CONFLICT
+    private static final String MERGE_SQL =
+            "INSERT INTO vacancies (id, user_telegram_id, title, employer, city, schedule, salary," +
+            " salary_from, salary_to, salary_currency, salary_gross, url, status, published_at, loaded_at, sent_to_telegram," +
+            " content_hash, simhash) " +
+            "SELECT DISTINCT ON (s.id) s.id, ?, s.title, s.employer, s.city, s.schedule, s.salary," +
+            " s.salary_from, s.salary_to, s.salary_currency, s.salary_gross, s.url, 'NEW', s.published_at, now(), false," +
+            " s.content_hash, s.simhash " +
+            "FROM vacancy_import s " +
+            "WHERE NOT EXISTS (SELECT 1 FROM vacancies v WHERE v.user_telegram_id = ? AND v.id = s.id) " +
+            "ORDER BY s.id";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final VacancyRepository vacancyRepository;
+    private final ObjectMapper objectMapper;
+    private final VacancyBulkDeleteService bulkDeleteService;
+    private final VacancyCounterService counterService;
+    private final VacancySeenIndex seenIndex;
+    private final NearDuplicateIndex nearDuplicates;
+
+    public record ImportResult(int added, int updated, int skipped, int totalProcessed) {}
+
+    @Transactional
+    public ImportResult importVacancies(Long userTelegramId, InputStream body) throws IOException, SQLException {
+        long startedAt = System.nanoTime();
+        vacancyRepository.lockUserForInsert(userTelegramId);
+        if (bulkDeleteService.isIngestionPaused(userTelegramId)) {
+            log.info("Идёт массовое удаление вакансий пользователя {} — импорт пропущен", userTelegramId);
+            return new ImportResult(0, 0, 0, 0);
+        }
+        jdbcTemplate.execute(CREATE_STAGING_SQL);
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        int total = 0;
+        int invalid = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Ожидался JSON-массив вакансий");
+            }
+            CsvBuffer buffer = new CsvBuffer();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                Vacancy vacancy = objectMapper.readValue(parser, Vacancy.class);
+                total++;
+                if (vacancy.getId() == null || vacancy.getTitle() == null) {
+                    invalid++;
+                    continue;
+                }
+                buffer.writeRow(vacancy);
+                if (buffer.size() >= COPY_CHUNK_BYTES) {
+                    buffer.drainTo(copy);
+                }
+            }
+            buffer.drainTo(copy);
+            copy.endCopy();
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+
+        int updated = jdbcTemplate.update(UPDATE_CHANGED_SQL, userTelegramId);
+        int added = jdbcTemplate.update(MERGE_SQL, userTelegramId, userTelegramId);
+        counterService.onInserted(userTelegramId, added);
+        // Карта id пользователя выросла на тысячи — проще перечитать её при следующем обращении
+        seenIndex.invalidate(userTelegramId);
+        nearDuplicates.invalidate(userTelegramId);
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - startedAt) / 1_000_000);
+        log.info("Imported {} of {} vacancies for user {} ({} updated) in {} ms ({} rows/s, {} invalid)",
+                added, total, userTelegramId, updated, elapsedMs, total * 1000L / elapsedMs, invalid);
+        return new ImportResult(added, updated, total - added - updated, total);
+    }
+
+    /** Строки COPY в формате CSV: NULL — пустое поле без кавычек, строки всегда в кавычках */
+    private static final class CsvBuffer {
+        private final StringBuilder row = new StringBuilder(512);
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(COPY_CHUNK_BYTES + 4096);
+
+        void writeRow(Vacancy v) {
+            row.setLength(0);
+            text(v.getId()).append(',');
+            text(v.getTitle()).append(',');
+            text(v.getEmployer()).append(',');
+            text(v.getCity()).append(',');
+            text(v.getSchedule()).append(',');
+            text(v.getSalary()).append(',');
+            plain(v.getSalaryFrom()).append(',');
+            plain(v.getSalaryTo()).append(',');
+            text(v.getSalaryCurrency()).append(',');
+            plain(v.getSalaryGross()).append(',');
+            text(v.getUrl()).append(',');
+            plain(v.getPublishedAt()).append(',');
+            row.append(VacancyFingerprint.of(v)).append(',');
+            row.append(VacancySimHash.of(v)).append('\n');
+            bytes.writeBytes(row.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        int size() {
+            return bytes.size();
+        }
+
+        void drainTo(CopyIn copy) throws SQLException {
+            if (bytes.size() == 0) return;
+            copy.writeToCopy(bytes.toByteArray(), 0, bytes.size());
+            bytes.reset();
+        }
+
+        private StringBuilder text(String value) {
+            if (value == null) return row;
+            row.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') row.append('"');
+                row.append(c);
+            }
+            return row.append('"');
+        }
+
+        private StringBuilder plain(Object value) {
+            return value == null ? row : row.append(value);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.dto.VacancyCounterDelta;
+import com.mkisten.vacancybackend.entity.UserVacancyCounters;
+import com.mkisten.vacancybackend.repository.UserVacancyCountersRepository;
+import com.mkisten.vacancybackend.repository.VacancyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Инкрементальные счётчики вакансий пользователя (new / viewed / hidden / unsent).
+ * Методы изменения вызываются внутри транзакции, которая меняет vacancies,
+ * поэтому счётчики фиксируются вместе с данными. Периодическая сверка исправляет
+ * возможный дрейф (ручные правки БД, ошибки в коде).
+ * Сверка идёт по пользователю, порциями по reconcile-batch-size в отдельных транзакциях.
+ * Строка счётчиков блокируется (FOR UPDATE) до подсчёта по vacancies: транзакция, изменившая
+ * vacancies, но ещё не добавившая приращение, допишет его поверх пересчёта, а уже добавившая —
+ * будет видна подсчёту после своей фиксации. Так сверка не затирает конкурентные приращения.
+ */
+@Slf4j
+@Service
+public class VacancyCounterService {
+
+    private final UserVacancyCountersRepository countersRepository;
+    private final VacancyRepository vacancyRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.counters.reconcile-batch-size:100}")
+    private int reconcileBatchSize;
+
+    public VacancyCounterService(UserVacancyCountersRepository countersRepository, VacancyRepository vacancyRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.countersRepository = countersRepository;
+        this.vacancyRepository = vacancyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Transactional
+    public void apply(Long userTelegramId, VacancyCounterDelta delta) {
+        if (delta.isEmpty()) return;
+        addDeltas(userTelegramId, delta.getNewDelta(), delta.getViewedDelta(),
+                delta.getHiddenDelta(), delta.getUnsentDelta());
+    }
+
+    /** Добавлены новые вакансии (статус NEW, не отправлены) */
+    @Transactional
+    public void onInserted(Long userTelegramId, long count) {
+        if (count == 0) return;
+        addDeltas(userTelegramId, count, 0, 0, count);
+    }
+
+    /** Вакансии помечены отправленными в Telegram */
+    @Transactional
+    public void onSent(Long userTelegramId, long count) {
+        if (count == 0) return;
+        addDeltas(userTelegramId, 0, 0, 0, -count);
+    }
+
+    /** Занять окно подборки (TelegramDigestScheduler); false — уже отправлена или нечего отправлять */
+    @Transactional
+    public boolean claimDigestWindow(Long userTelegramId, LocalDateTime windowStart) {
+        return countersRepository.claimDigestWindow(userTelegramId, windowStart) > 0;
+    }
+
+    /** Освободить окно подборки, отправка которой не удалась, — её повторит следующая проверка */
+    @Transactional
+    public void releaseDigestWindow(Long userTelegramId, LocalDateTime windowStart) {
+        countersRepository.releaseDigestWindow(userTelegramId, windowStart);
+    }
+
+    /**
+     * Количество новых вакансий — чтение строки счётчиков по первичному ключу.
+     * Для пользователя без строки счётчиков (появится после первой записи или сверки) — обычный COUNT.
+     */
+    @Transactional(readOnly = true)
+    public long getNewCount(Long userTelegramId) {
+        Optional<UserVacancyCounters> counters = countersRepository.findById(userTelegramId);
+        return counters.map(UserVacancyCounters::getNewCount)
+                .orElseGet(() -> vacancyRepository.countNewVacancies(userTelegramId));
+    }
+
+    @Scheduled(fixedDelayString = "${app.counters.reconcile-interval-ms:900000}",
+            initialDelayString = "${app.counters.reconcile-initial-delay-ms:60000}")
+    public void reconcile() {
+        int corrected = 0;
+        long afterId = Long.MIN_VALUE;
+        while (true) {
+            List<Long> batch = countersRepository.findReconcileBatch(afterId, reconcileBatchSize);
+            if (batch.isEmpty()) break;
+            Integer fixed = transactionTemplate.execute(tx -> {
+                int count = 0;
+                for (Long telegramId : batch) {
+                    if (countersRepository.lockCounters(telegramId).isEmpty()) {
+                        // Строки ещё нет — сериализуемся со вставками вакансий, создающими её
+                        vacancyRepository.lockUserForInsert(telegramId);
+                    }
+                    count += countersRepository.recalculate(telegramId);
+                }
+                return count;
+            });
+            corrected += fixed != null ? fixed : 0;
+            afterId = batch.get(batch.size() - 1);
+        }
+        if (corrected > 0) {
+            log.info("Сверка счётчиков вакансий: исправлено {} строк", corrected);
+        }
+    }
+
+    private void addDeltas(Long userTelegramId, long newDelta, long viewedDelta, long hiddenDelta, long unsentDelta) {
+        int updated = countersRepository.addDeltas(userTelegramId, newDelta, viewedDelta, hiddenDelta, unsentDelta);
+        if (updated == 0) {
+            // Первая запись для пользователя: считаем по таблице — изменения текущей транзакции уже видны
+            countersRepository.recalculate(userTelegramId);
+        }
+    }
+}
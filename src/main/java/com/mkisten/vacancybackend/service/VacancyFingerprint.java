@@ -0,0 +1,56 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.entity.Vacancy;
+
+/**
+ * Отпечаток содержимого вакансии (64-битный FNV-1a) — по нему повторно пришедшая вакансия
+ * сравнивается с сохранённой без чтения строки.
+ * В отпечаток входят поля, которые видит пользователь; дата публикации не входит —
+ * HH.ru меняет её при поднятии вакансии в выдаче без изменения содержимого.
+ */
+public final class VacancyFingerprint {
+
+    /** Отпечаток неизвестен (строки, сохранённые до появления отпечатков) */
+    public static final long UNKNOWN = 0L;
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private VacancyFingerprint() {
+    }
+
+    public static long of(Vacancy v) {
+        return of(v.getTitle(), v.getEmployer(), v.getCity(), v.getSchedule(), v.getSalary(),
+                v.getSalaryFrom(), v.getSalaryTo(), v.getSalaryCurrency(), v.getSalaryGross(), v.getUrl());
+    }
+
+    public static long of(String title, String employer, String city, String schedule, String salary,
+                          Integer salaryFrom, Integer salaryTo, String salaryCurrency, Boolean salaryGross,
+                          String url) {
+        long h = OFFSET_BASIS;
+        h = mix(h, title);
+        h = mix(h, employer);
+        h = mix(h, city);
+        h = mix(h, schedule);
+        h = mix(h, salary);
+        h = mix(h, salaryFrom != null ? salaryFrom.toString() : null);
+        h = mix(h, salaryTo != null ? salaryTo.toString() : null);
+        h = mix(h, salaryCurrency);
+        h = mix(h, salaryGross != null ? salaryGross.toString() : null);
+        h = mix(h, url);
+        // UNKNOWN и Long.MIN_VALUE зарезервированы индексом просмотренных вакансий
+        return h == UNKNOWN || h == Long.MIN_VALUE ? 1 : h;
+    }
+
+    private static long mix(long h, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                h = (h ^ value.charAt(i)) * PRIME;
+            }
+            h = (h ^ 0x1F) * PRIME;  // разделитель полей
+        } else {
+            h = (h ^ 0x1E) * PRIME;  // null отличается от пустой строки
+        }
+        return h;
+    }
+}
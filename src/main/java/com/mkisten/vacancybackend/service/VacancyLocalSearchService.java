@@ -0,0 +1,92 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.client.AuthServiceClient;
+import com.mkisten.vacancybackend.config.ReadYourWritesTracker;
+import com.mkisten.vacancybackend.dto.VacancyResponse;
+import com.mkisten.vacancybackend.dto.VacancySearchResponse;
+import com.mkisten.vacancybackend.entity.VacancyStatus;
+import com.mkisten.vacancybackend.repository.VacancySearchRepository;
+import com.mkisten.vacancybackend.repository.VacancySearchRepository.RankedVacancy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Поиск по уже сохранённым вакансиям пользователя — только БД, без обращений к HH.ru.
+ * Курсор страницы имеет вид "rank:id" последней выданной вакансии.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VacancyLocalSearchService {
+
+    private final AuthServiceClient authServiceClient;
+    private final VacancySearchRepository searchRepository;
+    private final VacancyStatusBuffer statusBuffer;
+    private final ReadYourWritesTracker readYourWrites;
+
+    @Value("${app.local-search.default-limit:20}")
+    private int defaultLimit;
+
+    @Value("${app.local-search.max-limit:100}")
+    private int maxLimit;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkSchema() {
+        try {
+            if (!searchRepository.hasSearchColumn()) {
+                log.error("В таблице vacancies нет колонки search_vector — поиск по сохранённым вакансиям "
+                        + "недоступен. Создайте колонку и индекс idx_vacancies_search по init.sql");
+            }
+        } catch (Exception e) {
+            log.error("Не удалось проверить колонку полнотекстового поиска: {}", e.getMessage());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public VacancySearchResponse search(String token, String query, String cursor, Integer limit) {
+        Long userTelegramId = authServiceClient.getCurrentUserProfile(token).getTelegramId();
+        readYourWrites.bindUser(userTelegramId);
+        int pageSize = limit == null ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
+
+        Float afterRank = null;
+        String afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            int separator = cursor.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+            }
+            afterRank = Float.parseFloat(cursor.substring(0, separator));
+            afterId = cursor.substring(separator + 1);
+        }
+
+        List<RankedVacancy> found = searchRepository.search(userTelegramId, query.trim(), afterRank, afterId, pageSize);
+
+        // Статусы, ещё не записанные из буфера, накладываем поверх найденного
+        Map<String, VacancyStatus> buffered = statusBuffer.pendingFor(userTelegramId);
+        List<VacancyResponse> items = found.stream()
+                .map(ranked -> {
+                    VacancyStatus pendingStatus = buffered.get(ranked.vacancy().getId());
+                    if (pendingStatus != null) {
+                        ranked.vacancy().setStatus(pendingStatus);
+                    }
+                    return new VacancyResponse(ranked.vacancy());
+                })
+                .toList();
+
+        String nextCursor = null;
+        if (found.size() == pageSize) {
+            RankedVacancy last = found.get(found.size() - 1);
+            nextCursor = last.rank() + ":" + last.vacancy().getId();
+        }
+        log.debug("Local search '{}' for user {}: {} results", query, userTelegramId, items.size());
+        return new VacancySearchResponse(items, nextCursor);
+    }
+}
@@ -0,0 +1,257 @@
+package com.mkisten.vacancybackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mkisten.vacancybackend.client.AuthServiceClient;
+import com.mkisten.vacancybackend.client.DependencyGuards;
+import com.mkisten.vacancybackend.dto.HHruVacancy;
+import com.mkisten.vacancybackend.dto.SubscriptionStatusResponse;
+import com.mkisten.vacancybackend.dto.TokenResponse;
+import com.mkisten.vacancybackend.dto.UserSettingsSnapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Режим приёма вакансий "percolator" (app.ingestion.mode=percolator).
+ * Вместо запроса к HH.ru на каждого пользователя лента свежих вакансий каждого региона
+ * читается один раз (постранично, от последней увиденной публикации), а каждая вакансия
+ * сопоставляется со всеми сохранёнными поисками локально через {@link PercolatorIndex}.
+ * Число запросов к HH.ru зависит от объёма рынка, а не от числа подписчиков.
+ *
+ * Прочитанная лента считается разобранной (водяной знак сдвигается, вакансии не разбираются
+ * повторно) только после того, как найденное передано конвейеру. Что конвейер не принял,
+ * остаётся в очереди пользователя и передаётся повторно в следующем цикле.
+ *
+ * Поиски со сложным синтаксисом HH.ru (OR, NOT, кавычки, скобки, маски) локально не
+ * воспроизводятся — такие пользователи по-прежнему обслуживаются VacancyAutoUpdater.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VacancyPercolatorService {
+
+    public static final String MODE = "percolator";
+
+    private final UserSettingsCache settingsCache;
+    private final HHruApiService hhruApiService;
+    private final IngestionPipeline ingestionPipeline;
+    private final AuthServiceClient authServiceClient;
+    private final ExcludeKeywordFilter excludeKeywordFilter;
+    private final CurrencyRateService currencyRateService;
+    private final SubscriptionGate subscriptionGate;
+    private final NotificationSchedule notificationSchedule;
+    private final HHruReferenceDataService referenceData;
+    private final DependencyGuards guards;
+
+    @Value("${app.ingestion.mode:per-user}")
+    private String mode;
+
+    @Value("${app.ingestion.initial-lookback-hours:24}")
+    private int initialLookbackHours;
+
+    // Перекрытие окон на случай расхождения часов и задержки индексации HH.ru
+    @Value("${app.ingestion.overlap-minutes:5}")
+    private int overlapMinutes;
+
+    // Больше стольких неотправленных вакансий на пользователя не копится — старые вытесняются
+    @Value("${app.ingestion.max-undelivered-per-user:1000}")
+    private int maxUndeliveredPerUser;
+
+    // Лента (регион HH.ru или ANY_AREA) -> момент публикации самой свежей прочитанной вакансии
+    private final Map<Integer, Instant> watermarks = new ConcurrentHashMap<>();
+
+    // Вакансии, уже разобранные в предыдущих циклах (повторно попадают из-за перекрытия окон).
+    // Ключ — лента и id: вакансия из ленты без региона не должна скрыть её же в ленте региона
+    private final Cache<String, Boolean> processedItems = Caffeine.newBuilder()
+            .expireAfterWrite(6, TimeUnit.HOURS)
+            .maximumSize(500_000)
+            .build();
+
+    // Совпадения, которые конвейер не принял (переполнен, auth-сервис недоступен); повторяются в следующем цикле
+    private final Map<Long, List<HHruVacancy>> undelivered = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return MODE.equalsIgnoreCase(mode);
+    }
+
+    /** Обслуживается ли поиск пользователя общей лентой */
+    public boolean supports(UserSettingsSnapshot settings) {
+        return isEnabled() && PercolatorIndex.parseSimpleQuery(settings.searchQuery()) != null;
+    }
+
+    @Scheduled(fixedDelayString = "${app.ingestion.feed-interval-ms:60000}")
+    public void poll() {
+        if (!isEnabled()) return;
+        if (!guards.hhru().isAvailable()) {
+            // Водяные знаки не сдвигаются — пропущенное окно будет прочитано, когда HH.ru восстановится
+            log.warn("Percolator: цикл пропущен, HH.ru недоступен (circuit breaker открыт)");
+            return;
+        }
+
+        List<UserSettingsSnapshot> subscribers = settingsCache.autoUpdateEnabled();
+        PercolatorIndex index = new PercolatorIndex();
+        Set<Integer> areas = new TreeSet<>();
+        Set<Long> notifyUsers = new HashSet<>();
+        Set<Long> subscribed = new HashSet<>();
+        for (UserSettingsSnapshot settings : subscribers) {
+            List<String> terms = PercolatorIndex.parseSimpleQuery(settings.searchQuery());
+            if (terms == null || subscriptionGate.isDormant(settings.telegramId())) continue;
+            PercolatorIndex.Subscription subscription = toSubscription(settings, terms.size());
+            index.add(subscription, terms);
+            subscribed.add(settings.telegramId());
+            if (subscription.areas().isEmpty()) {
+                // Как и поиск HH.ru без area, подписка без регионов получает вакансии всех регионов
+                areas.add(PercolatorIndex.ANY_AREA);
+            }
+            areas.addAll(subscription.areas());
+            if (notificationSchedule.sendsImmediately(settings)) {
+                notifyUsers.add(settings.telegramId());
+            }
+        }
+        // Отписавшимся и уснувшим отложенное больше не нужно
+        undelivered.keySet().retainAll(subscribed);
+        if (index.size() == 0) return;
+
+        Map<Long, List<HHruVacancy>> matches = new HashMap<>();
+        Map<Integer, Instant> readUpTo = new HashMap<>();
+        Set<String> readItems = new HashSet<>();
+        for (int area : areas) {
+            pollArea(area, index, matches, readUpTo, readItems);
+        }
+        log.info("Percolator: {} subscriptions, {} areas, new vacancies for {} users, retrying {} users",
+                index.size(), areas.size(), matches.size(), undelivered.size());
+
+        Set<Long> recipients = new HashSet<>(matches.keySet());
+        recipients.addAll(undelivered.keySet());
+        for (Long telegramId : recipients) {
+            List<HHruVacancy> items = withUndelivered(telegramId, matches.getOrDefault(telegramId, List.of()));
+            if (deliver(telegramId, items, notifyUsers.contains(telegramId))) {
+                undelivered.remove(telegramId);
+            } else {
+                undelivered.put(telegramId, items);
+            }
+        }
+
+        // Всё прочитанное либо принято конвейером, либо лежит в undelivered
+        readItems.forEach(key -> processedItems.put(key, Boolean.TRUE));
+        watermarks.putAll(readUpTo);
+    }
+
+    /** Отложенные вакансии пользователя вместе с новыми, без повторов, не больше max-undelivered-per-user */
+    private List<HHruVacancy> withUndelivered(Long telegramId, List<HHruVacancy> found) {
+        List<HHruVacancy> pending = undelivered.get(telegramId);
+        if (pending == null) return found;
+        Map<String, HHruVacancy> byId = new LinkedHashMap<>();
+        pending.forEach(item -> byId.put(item.id(), item));
+        found.forEach(item -> byId.put(item.id(), item));
+        List<HHruVacancy> items = new ArrayList<>(byId.values());
+        if (items.size() > maxUndeliveredPerUser) {
+            log.warn("Percolator: у пользователя {} скопилось {} неотправленных вакансий, старейшие отброшены",
+                    telegramId, items.size());
+            items = new ArrayList<>(items.subList(items.size() - maxUndeliveredPerUser, items.size()));
+        }
+        return items;
+    }
+
+    private void pollArea(int area, PercolatorIndex index, Map<Long, List<HHruVacancy>> matches,
+                          Map<Integer, Instant> readUpTo, Set<String> readItems) {
+        Instant watermark = watermarks.getOrDefault(area, Instant.now().minus(Duration.ofHours(initialLookbackHours)));
+        Instant dateFrom = watermark.minus(Duration.ofMinutes(overlapMinutes));
+        Instant newest = watermark;
+        Integer feedArea = area == PercolatorIndex.ANY_AREA ? null : area;
+        int fetched = 0;
+        try {
+            for (int page = 0; page < HHruApiService.FEED_MAX_PAGES; page++) {
+                HHruApiService.SearchPage feedPage = hhruApiService.fetchFeedPage(feedArea, dateFrom, page);
+                for (HHruVacancy item : feedPage.items()) {
+                    fetched++;
+                    if (item.publishedInstant().isAfter(newest)) {
+                        newest = item.publishedInstant();
+                    }
+                    String key = area + ":" + item.id();
+                    if (processedItems.getIfPresent(key) != null || !readItems.add(key)) continue;
+
+                    Integer salary = item.salaryTo() != null ? item.salaryTo() : item.salaryFrom();
+                    Double salaryRub = currencyRateService.toRubles(salary, item.salaryCurrency());
+                    for (Long telegramId : index.match(item, area, salaryRub)) {
+                        matches.computeIfAbsent(telegramId, id -> new ArrayList<>()).add(item);
+                    }
+                }
+                if (page + 1 >= feedPage.pages()) break;
+                if (page + 1 == HHruApiService.FEED_MAX_PAGES) {
+                    log.warn("Лента HH.ru региона {} глубже {} вакансий — уменьшите app.ingestion.feed-interval-ms",
+                            area, HHruApiService.FEED_MAX_PAGES * HHruApiService.FEED_PAGE_SIZE);
+                }
+            }
+            readUpTo.put(area, newest);
+            log.debug("Percolator: area {} read {} vacancies since {}", area, fetched, dateFrom);
+        } catch (Exception e) {
+            // Водяной знак не сдвигается — окно будет перечитано в следующем цикле
+            log.error("Ошибка чтения ленты HH.ru для региона {}: {}", area, e.getMessage());
+        }
+    }
+
+    /** false — вакансии не переданы конвейеру и должны быть повторены */
+    private boolean deliver(Long telegramId, List<HHruVacancy> items, boolean notify) {
+        try {
+            boolean unknownSubscription = subscriptionGate.check(telegramId) == SubscriptionGate.Decision.UNKNOWN;
+            String token = unknownSubscription || notify ? getToken(telegramId) : null;
+            if (unknownSubscription && token != null && !isSubscriptionActive(telegramId, token)) {
+                log.info("Подписка пользователя {} неактивна, вакансии из ленты не сохраняются", telegramId);
+                return true;
+            }
+
+            if (notify && token == null) {
+                log.warn("Токен для пользователя {} не получен, уведомление пропущено", telegramId);
+            }
+            // Отбор уже выполнен индексом подписок — сохранение и отправка стадиями конвейера
+            IngestionPipeline.Delivery delivery =
+                    new IngestionPipeline.Delivery(telegramId, token, null, notify && token != null, null);
+            if (!ingestionPipeline.submitFound(delivery, items)) {
+                log.warn("Percolator: конвейер переполнен, вакансии пользователя {} отложены до следующего цикла", telegramId);
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("Percolator: ошибка доставки вакансий пользователю {}, повтор в следующем цикле: {}",
+                    telegramId, e.getMessage());
+            return false;
+        }
+    }
+
+    private String getToken(Long telegramId) {
+        TokenResponse token = authServiceClient.getTokenByTelegramId(telegramId);
+        return token == null || token.getToken() == null || token.getToken().isBlank() ? null : token.getToken();
+    }
+
+    private boolean isSubscriptionActive(Long telegramId, String token) {
+        SubscriptionStatusResponse status = authServiceClient.getSubscriptionStatus(token);
+        if (status == null || status.getActive() == null) {
+            return true; // состояние неизвестно — не блокируем пользователя
+        }
+        subscriptionGate.record(telegramId, status.getActive(), status.getSubscriptionEndDate());
+        return subscriptionGate.check(telegramId) == SubscriptionGate.Decision.ACTIVE;
+    }
+
+    private PercolatorIndex.Subscription toSubscription(UserSettingsSnapshot settings, int termCount) {
+        // Те же справочники, что в HHruApiService.buildSearchUrl: гибрид фильтром не считается
+        Set<Integer> areas = referenceData.resolveAreas(settings.countries());
+        Set<String> scheduleIds = referenceData.resolveSchedules(settings.workTypes());
+        return new PercolatorIndex.Subscription(
+                settings.telegramId(),
+                termCount,
+                areas,
+                scheduleIds,
+                currencyRateService.toRubles(settings.minSalary(), settings.salaryCurrency()),
+                excludeKeywordFilter.matcherFor(settings.excludeKeywords()));
+    }
+}
@@ -0,0 +1,149 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.dto.VacancyCounterDelta;
+import com.mkisten.vacancybackend.entity.VacancyStatus;
+import com.mkisten.vacancybackend.repository.VacancyPartitionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Map;
+
+/**
+ * Срок хранения вакансий.
+ *  - Секции vacancies: заранее создаются на ближайшие месяцы, секции старше partition-months
+ *    отсоединяются и удаляются целиком (без построчного DELETE и распухания индексов).
+ *    Несекционированная vacancies (установка до секционирования) останавливает запуск:
+ *    её переводит migrate-vacancies-partitioned.sql.
+ *  - Просмотренные и скрытые вакансии удаляются раньше — порциями по batch-size,
+ *    каждая порция в своей короткой транзакции вместе с поправкой счётчиков.
+ */
+@Slf4j
+@Service
+public class VacancyRetentionService {
+
+    private final VacancyPartitionRepository partitionRepository;
+    private final VacancyCounterService counterService;
+    private final VacancySeenIndex seenIndex;
+    private final NearDuplicateIndex nearDuplicates;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.retention.partition-months:12}")
+    private int partitionMonths;
+
+    @Value("${app.retention.months-ahead:2}")
+    private int monthsAhead;
+
+    @Value("${app.retention.viewed-days:90}")
+    private int viewedDays;
+
+    @Value("${app.retention.hidden-days:90}")
+    private int hiddenDays;
+
+    @Value("${app.retention.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.retention.batch-pause-ms:50}")
+    private long batchPauseMs;
+
+    @Value("${app.retention.lock-timeout-ms:5000}")
+    private long lockTimeoutMs;
+
+    public VacancyRetentionService(VacancyPartitionRepository partitionRepository,
+                                   VacancyCounterService counterService,
+                                   VacancySeenIndex seenIndex,
+                                   NearDuplicateIndex nearDuplicates,
+                                   PlatformTransactionManager transactionManager) {
+        this.partitionRepository = partitionRepository;
+        this.counterService = counterService;
+        this.seenIndex = seenIndex;
+        this.nearDuplicates = nearDuplicates;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (!partitionRepository.isPartitioned()) {
+            // init.sql не пересоздаёт существующую таблицу: старая установка остаётся без секций,
+            // без vacancy_keys-уникальности и без новых столбцов — работать на ней нельзя
+            throw new IllegalStateException("Таблица vacancies не секционирована: выполните миграцию "
+                    + "migrate-vacancies-partitioned.sql перед запуском приложения");
+        }
+        try {
+            maintainPartitions();
+        } catch (Exception e) {
+            log.error("Не удалось подготовить секции vacancies: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${app.retention.cron:0 30 3 * * *}")
+    public void runRetention() {
+        try {
+            maintainPartitions();
+        } catch (Exception e) {
+            log.error("Ошибка обслуживания секций vacancies: {}", e.getMessage(), e);
+        }
+        purgeExpired(VacancyStatus.VIEWED, viewedDays);
+        purgeExpired(VacancyStatus.HIDDEN, hiddenDays);
+    }
+
+    void maintainPartitions() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            partitionRepository.createMonthlyPartition(current.plusMonths(i));
+        }
+
+        YearMonth oldestKept = current.minusMonths(partitionMonths - 1L);
+        boolean dropped = false;
+        for (YearMonth month : partitionRepository.findMonthlyPartitions()) {
+            if (!month.isBefore(oldestKept)) continue;
+            try {
+                transactionTemplate.executeWithoutResult(tx ->
+                        partitionRepository.detachAndDropPartition(month, lockTimeoutMs));
+                log.info("Удалена секция vacancies за {}", month);
+                dropped = true;
+            } catch (Exception e) {
+                log.warn("Не удалось удалить секцию vacancies за {}: {}", month, e.getMessage());
+            }
+        }
+        if (dropped) {
+            // Строки ушли вместе с секцией — счётчики пересчитываются сверкой
+            counterService.reconcile();
+            seenIndex.invalidateAll();
+            nearDuplicates.invalidateAll();
+        }
+    }
+
+    private void purgeExpired(VacancyStatus status, int days) {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(days);
+        long total = 0;
+        while (true) {
+            Map<Long, VacancyCounterDelta> deltas = transactionTemplate.execute(tx -> {
+                Map<Long, VacancyCounterDelta> batch = partitionRepository.deleteExpiredBatch(status, cutoff, batchSize);
+                batch.forEach(counterService::apply);
+                batch.keySet().forEach(seenIndex::invalidate);
+                batch.keySet().forEach(nearDuplicates::invalidate);
+                return batch;
+            });
+            long deleted = deltas == null ? 0 : deltas.values().stream().mapToLong(VacancyCounterDelta::getAffected).sum();
+            total += deleted;
+            if (deleted < batchSize) break;
+            try {
+                Thread.sleep(batchPauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Удалено {} вакансий в статусе {} старше {} дней", total, status, days);
+        }
+    }
+}
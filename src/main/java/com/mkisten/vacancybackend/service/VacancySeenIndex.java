@@ -0,0 +1,338 @@
+package com.mkisten.vacancybackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.mkisten.vacancybackend.repository.VacancyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Индекс уже сохранённых вакансий по пользователям (id -> отпечаток содержимого) — отсекает дубли
+ * и неизменившиеся вакансии до обращения к БД.
+ * Карта пользователя загружается из БД при первом обращении и вытесняется по LRU
+ * в пределах бюджета памяти app.seen-index.max-bytes.
+ * Присутствие id в индексе считается окончательным ("уже есть"), а отсутствие — нет:
+ * такие id перепроверяются в БД (вставка могла пройти на другом экземпляре приложения).
+ * Поэтому цикл, не принёсший ничего нового, в БД не ходит вовсе.
+ * Удаления в этом экземпляре индекс поддерживает сам; чужие удаления проявятся после истечения записи.
+ * Срок отсчитывается от загрузки карты из БД и не продлевается ни чтениями, ни дописыванием
+ * сохранённых id, поэтому карта регулярно опрашиваемого пользователя тоже перечитывается.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VacancySeenIndex {
+
+    private final VacancyRepository vacancyRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.seen-index.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${app.seen-index.expire-minutes:10}")
+    private long expireMinutes;
+
+    private Cache<Long, SeenIds> index;
+    private Counter resolvedInMemory;
+    private Counter checkedInDatabase;
+
+    @PostConstruct
+    void init() {
+        index = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long userId, SeenIds ids) -> ids.weightBytes())
+                .expireAfter(new ExpireAfterLoad(TimeUnit.MINUTES.toNanos(expireMinutes)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, index, "vacancy.seen_index");
+        Gauge.builder("vacancy.seen_index.bytes", this,
+                        s -> s.index.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                .description("Оценка памяти, занятой индексом просмотренных id")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        resolvedInMemory = Counter.builder("vacancy.seen_index.ids")
+                .tag("result", "memory")
+                .description("id, признанные дублями без обращения к БД")
+                .register(meterRegistry);
+        checkedInDatabase = Counter.builder("vacancy.seen_index.ids")
+                .tag("result", "database")
+                .description("id, перепроверенные в БД")
+                .register(meterRegistry);
+    }
+
+    /** Разбор пришедших вакансий: новые id и изменившиеся (id -> прежний отпечаток) */
+    public record Classification(Set<String> newIds, Map<String, Long> changed) {}
+
+    /**
+     * Сравнить пришедшие вакансии (id -> отпечаток содержимого) с сохранёнными у пользователя.
+     * Неизменившаяся вакансия, известная индексу, стоит одного сравнения отпечатков.
+     * Склеенные почти-дубли (markCollapsed) не попадают ни в новые, ни в изменившиеся.
+     */
+    public Classification classify(Long userTelegramId, Map<String, Long> hashesById) {
+        SeenIds seen = index.get(userTelegramId, this::load);
+        Set<String> newIds = new LinkedHashSet<>();
+        Map<String, Long> changed = new HashMap<>();
+        List<String> unknown = new ArrayList<>();
+        hashesById.forEach((id, hash) -> {
+            if (seen.isCollapsed(id)) return;
+            long stored = seen.get(id);
+            if (stored == SeenIds.ABSENT) {
+                unknown.add(id);
+            } else if (stored != hash) {
+                changed.put(id, stored);
+            }
+        });
+        resolvedInMemory.increment(hashesById.size() - unknown.size());
+        if (unknown.isEmpty()) {
+            return new Classification(newIds, changed);
+        }
+
+        checkedInDatabase.increment(unknown.size());
+        Map<String, Long> existing = vacancyRepository.findContentHashes(userTelegramId, unknown);
+        if (!existing.isEmpty()) {
+            seen.putAll(existing);
+            index.put(userTelegramId, seen); // пересчитать вес
+        }
+        for (String id : unknown) {
+            Long stored = existing.get(id);
+            if (stored == null) {
+                newIds.add(id);
+            } else if (stored != hashesById.get(id).longValue()) {
+                changed.put(id, stored);
+            }
+        }
+        return new Classification(newIds, changed);
+    }
+
+    /** Запомнить отпечатки сохранённых (вставленных или перезаписанных) вакансий — после фиксации транзакции */
+    public void markSaved(Long userTelegramId, Map<String, Long> hashesById) {
+        Map<String, Long> saved = Map.copyOf(hashesById);
+        TransactionCallbacks.afterCommit(() -> {
+            SeenIds seen = index.getIfPresent(userTelegramId);
+            if (seen != null) {
+                seen.putAll(saved);
+                index.put(userTelegramId, seen); // пересчитать вес
+            }
+        });
+    }
+
+    /**
+     * Запомнить id вакансий, склеенных с почти-дублями (NearDuplicateIndex): строки у них нет,
+     * поэтому отпечаток им не записывается — повторный приход отсекается отдельно
+     */
+    public void markCollapsed(Long userTelegramId, Collection<String> vacancyIds) {
+        List<String> ids = List.copyOf(vacancyIds);
+        TransactionCallbacks.afterCommit(() -> {
+            SeenIds seen = index.getIfPresent(userTelegramId);
+            if (seen != null) {
+                seen.addCollapsed(ids);
+                index.put(userTelegramId, seen); // пересчитать вес
+            }
+        });
+    }
+
+    /** Забыть удалённые id */
+    public void markDeleted(Long userTelegramId, Collection<String> vacancyIds) {
+        List<String> ids = List.copyOf(vacancyIds);
+        TransactionCallbacks.afterCommit(() -> {
+            SeenIds seen = index.getIfPresent(userTelegramId);
+            if (seen != null) {
+                seen.removeAll(ids);
+            }
+        });
+    }
+
+    /** Сбросить индекс пользователя (массовое удаление, очистка по сроку хранения) */
+    public void invalidate(Long userTelegramId) {
+        index.invalidate(userTelegramId);
+        TransactionCallbacks.afterCommit(() -> index.invalidate(userTelegramId));
+    }
+
+    /** Сбросить весь индекс (удалена целая секция таблицы) */
+    public void invalidateAll() {
+        index.invalidateAll();
+    }
+
+    private SeenIds load(Long userTelegramId) {
+        SeenIds seen = new SeenIds();
+        vacancyRepository.forEachContentHash(userTelegramId, seen::put);
+        log.debug("Loaded {} seen vacancy ids for user {}", seen.size(), userTelegramId);
+        return seen;
+    }
+
+    /** Срок жизни от создания записи: put() для пересчёта веса и чтения его не продлевают */
+    private record ExpireAfterLoad(long ttlNanos) implements Expiry<Long, SeenIds> {
+        @Override
+        public long expireAfterCreate(Long userId, SeenIds ids, long currentTime) {
+            return ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Long userId, SeenIds ids, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(Long userId, SeenIds ids, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * Компактная карта id -> отпечаток содержимого: числовые id HH.ru хранятся в открытой
+     * хеш-таблице на двух массивах long (около 32 байт на id), прочие — в обычном HashMap.
+     */
+    static final class SeenIds {
+        /** Результат get() для отсутствующего id; VacancyFingerprint такого значения не выдаёт */
+        static final long ABSENT = Long.MIN_VALUE;
+        private static final long EMPTY = 0L;
+
+        private long[] keys = new long[16];
+        private long[] hashes = new long[16];
+        private int size;
+        private boolean hasZero;
+        private long zeroHash;
+        private final Map<String, Long> other = new HashMap<>();
+        // id склеенных почти-дублей — строки в БД у них нет
+        private final Set<String> collapsed = new HashSet<>();
+
+        /** Отпечаток сохранённой вакансии (VacancyFingerprint.UNKNOWN, если не известен) или ABSENT */
+        synchronized long get(String id) {
+            long key = parse(id);
+            if (key < 0) return other.getOrDefault(id, ABSENT);
+            if (key == EMPTY) return hasZero ? zeroHash : ABSENT;
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == key) return hashes[i];
+                if (keys[i] == EMPTY) return ABSENT;
+            }
+        }
+
+        synchronized boolean isCollapsed(String id) {
+            return !collapsed.isEmpty() && collapsed.contains(id);
+        }
+
+        synchronized void addCollapsed(Collection<String> ids) {
+            collapsed.addAll(ids);
+        }
+
+        synchronized void putAll(Map<String, Long> hashesById) {
+            hashesById.forEach(this::put);
+        }
+
+        synchronized void put(String id, long hash) {
+            long key = parse(id);
+            if (key < 0) {
+                other.put(id, hash);
+            } else if (key == EMPTY) {
+                hasZero = true;
+                zeroHash = hash;
+            } else {
+                if ((size + 1) * 2 > keys.length) {
+                    rehash(keys.length * 2);
+                }
+                insert(key, hash);
+            }
+        }
+
+        synchronized void removeAll(Collection<String> ids) {
+            for (String id : ids) {
+                long key = parse(id);
+                if (key < 0) {
+                    other.remove(id);
+                } else if (key == EMPTY) {
+                    hasZero = false;
+                } else {
+                    remove(key);
+                }
+            }
+        }
+
+        synchronized int size() {
+            return size + other.size() + (hasZero ? 1 : 0);
+        }
+
+        synchronized int weightBytes() {
+            return 64 + keys.length * 2 * Long.BYTES + (other.size() + collapsed.size()) * 112;
+        }
+
+        private void insert(long key, long hash) {
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (keys[i] != EMPTY) {
+                if (keys[i] == key) {
+                    hashes[i] = hash;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            hashes[i] = hash;
+            size++;
+        }
+
+        // Удаление со сдвигом назад: цепочки открытой адресации остаются непрерывными
+        private void remove(long key) {
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (keys[i] != key) {
+                if (keys[i] == EMPTY) return;
+                i = (i + 1) & mask;
+            }
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (keys[j] == EMPTY) break;
+                int home = mix(keys[j]) & mask;
+                // Элемент в j можно перенести в i, только если его домашняя ячейка не лежит в (i, j]
+                boolean homeBetween = i <= j ? (home > i && home <= j) : (home > i || home <= j);
+                if (!homeBetween) {
+                    keys[i] = keys[j];
+                    hashes[i] = hashes[j];
+                    i = j;
+                }
+            }
+            keys[i] = EMPTY;
+            size--;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            long[] oldHashes = hashes;
+            keys = new long[capacity];
+            hashes = new long[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) insert(oldKeys[i], oldHashes[i]);
+            }
+        }
+
+        // -1 — id не является неотрицательным числом
+        private static long parse(String id) {
+            if (id == null || id.isEmpty() || id.length() > 18 || (id.length() > 1 && id.charAt(0) == '0')) return -1;
+            long value = 0;
+            for (int i = 0; i < id.length(); i++) {
+                char c = id.charAt(i);
+                if (c < '0' || c > '9') return -1;
+                value = value * 10 + (c - '0');
+            }
+            return value;
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
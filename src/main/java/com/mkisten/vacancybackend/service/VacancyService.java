@@ -1,7 +1,9 @@
 package com.mkisten.vacancybackend.service;
 
 import com.mkisten.vacancybackend.client.AuthServiceClient;
+import com.mkisten.vacancybackend.config.ReadYourWritesTracker;
 import com.mkisten.vacancybackend.dto.ProfileResponse;
+import com.mkisten.vacancybackend.dto.VacancyCounterDelta;
 import com.mkisten.vacancybackend.entity.Vacancy;
 import com.mkisten.vacancybackend.entity.VacancyStatus;
 import com.mkisten.vacancybackend.repository.VacancyRepository;
@@ -10,7 +12,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -21,9 +27,20 @@ public class VacancyService {
 
     private final VacancyRepository vacancyRepository;
     private final AuthServiceClient authServiceClient;
+    private final VacancyStatusBuffer statusBuffer;
+    private final VacancyCounterService counterService;
+    private final VacancyBulkDeleteService bulkDeleteService;
+    private final CurrencyRateService currencyRateService;
+    private final VacancySeenIndex seenIndex;
+    private final NearDuplicateIndex nearDuplicates;
+    private final SubscriptionGate subscriptionGate;
+    private final ReadYourWritesTracker readYourWrites;
 
     private Long getTelegramId(String token) {
         ProfileResponse profile = authServiceClient.getCurrentUserProfile(token);
+        // Профиль несёт состояние подписки — заодно будим спящее автообновление после продления
+        subscriptionGate.record(profile.getTelegramId(), profile.getIsActive(), profile.getSubscriptionEndDate());
+        readYourWrites.bindUser(profile.getTelegramId());
         return profile.getTelegramId();
     }
 
@@ -34,14 +51,62 @@ public class VacancyService {
      */
     @Transactional
     public List<Vacancy> saveVacancies(String token, List<Vacancy> newVacancies) {
-        Long userTelegramId = getTelegramId(token);
-        if (newVacancies.isEmpty()) {
-            return List.of();
+        return saveVacancies(getTelegramId(token), newVacancies);
+    }
+
+    /** То же для уже известного пользователя (общая лента percolator) — без запроса профиля */
+    @Transactional
+    public List<Vacancy> saveVacancies(Long userTelegramId, List<Vacancy> newVacancies) {
+        return ingestVacancies(userTelegramId, newVacancies).added();
+    }
+
+    /** Результат загрузки: добавленные вакансии и уже сохранённые, содержимое которых изменилось */
+    public record IngestResult(List<Vacancy> added, List<Vacancy> updated) {
+        static final IngestResult EMPTY = new IngestResult(List.of(), List.of());
+
+        /** Ничего не добавлено и не изменилось — уведомлять не о чем */
+        public boolean isEmpty() {
+            return added.isEmpty() && updated.isEmpty();
         }
+    }
 
-        Set<String> existingIds = vacancyRepository.findVacancyIdsByUser(userTelegramId);
-        List<Vacancy> vacanciesToSave = newVacancies.stream()
-                .filter(v -> !existingIds.contains(v.getId()))
+    /**
+     * Сохранить новые вакансии пользователя и перезаписать изменившиеся.
+     * Изменение определяется по отпечатку содержимого (VacancyFingerprint): неизменившиеся
+     * вакансии отсекаются индексом в памяти, изменившиеся обновляются условным UPDATE.
+     * В updated попадают только вакансии с известным прежним отпечатком — строки,
+     * сохранённые до появления отпечатков, при первой перезаписи не считаются изменёнными.
+     * Новые вакансии, почти совпадающие с уже сохранёнными или друг с другом (NearDuplicateIndex),
+     * не сохраняются и не рассылаются.
+     */
+    @Transactional
+    public IngestResult ingestVacancies(Long userTelegramId, List<Vacancy> vacancies) {
+        if (vacancies.isEmpty()) {
+            return IngestResult.EMPTY;
+        }
+        // Та же блокировка, что у потокового импорта: без неё параллельная вставка того же id
+        // упала бы на уникальности vacancy_keys и откатила всю транзакцию
+        vacancyRepository.lockUserForInsert(userTelegramId);
+        // Паузу проверяем под блокировкой: порции массового удаления берут её же
+        if (bulkDeleteService.isIngestionPaused(userTelegramId)) {
+            log.info("Идёт массовое удаление вакансий пользователя {} — сохранение пропущено", userTelegramId);
+            return IngestResult.EMPTY;
+        }
+
+        Map<String, Vacancy> byId = new LinkedHashMap<>();
+        Map<String, Long> hashesById = new HashMap<>();
+        for (Vacancy v : vacancies) {
+            if (v.getContentHash() == null) {
+                v.setContentHash(VacancyFingerprint.of(v));
+            }
+            if (byId.putIfAbsent(v.getId(), v) == null) {
+                hashesById.put(v.getId(), v.getContentHash());
+            }
+        }
+        VacancySeenIndex.Classification classification = seenIndex.classify(userTelegramId, hashesById);
+
+        List<Vacancy> candidates = classification.newIds().stream().map(byId::get).toList();
+        List<Vacancy> vacanciesToSave = nearDuplicates.collapse(userTelegramId, candidates).stream()
                 .peek(v -> {
                     v.setUserTelegramId(userTelegramId);
                     v.setStatus(VacancyStatus.NEW);
@@ -51,14 +116,40 @@ public class VacancyService {
                     }
                 })
                 .collect(Collectors.toList());
-
+        List<Vacancy> saved = List.of();
         if (!vacanciesToSave.isEmpty()) {
-            List<Vacancy> saved = vacancyRepository.saveAll(vacanciesToSave);
+            saved = vacancyRepository.saveAll(vacanciesToSave);
+            counterService.onInserted(userTelegramId, saved.size());
             log.info("Saved {} new vacancies for user {}", saved.size(), userTelegramId);
-            return saved;
         }
-        log.info("No new vacancies found for user {}", userTelegramId);
-        return List.of();
+
+        List<Vacancy> updated = List.of();
+        if (!classification.changed().isEmpty()) {
+            List<Vacancy> changed = classification.changed().keySet().stream().map(byId::get).toList();
+            int rewritten = vacancyRepository.updateContent(userTelegramId, changed);
+            updated = changed.stream()
+                    .filter(v -> classification.changed().get(v.getId()) != VacancyFingerprint.UNKNOWN)
+                    .toList();
+            log.info("Updated {} changed vacancies for user {}", rewritten, userTelegramId);
+        }
+
+        // Склеенные дубли запоминаются отдельно: следующий их приход решается в памяти
+        if (vacanciesToSave.size() < candidates.size()) {
+            Set<String> keptIds = vacanciesToSave.stream().map(Vacancy::getId).collect(Collectors.toSet());
+            seenIndex.markCollapsed(userTelegramId, candidates.stream()
+                    .map(Vacancy::getId)
+                    .filter(id -> !keptIds.contains(id))
+                    .toList());
+        }
+        if (saved.isEmpty() && classification.changed().isEmpty()) {
+            log.info("No new vacancies found for user {}", userTelegramId);
+            return IngestResult.EMPTY;
+        }
+        Map<String, Long> savedHashes = new HashMap<>();
+        saved.forEach(v -> savedHashes.put(v.getId(), v.getContentHash()));
+        classification.changed().keySet().forEach(id -> savedHashes.put(id, hashesById.get(id)));
+        seenIndex.markSaved(userTelegramId, savedHashes);
+        return new IngestResult(saved, updated);
     }
 
     /**
@@ -67,7 +158,8 @@ public class VacancyService {
     @Transactional
     public void markAsSentToTelegram(String token, String vacancyId) {
         Long userTelegramId = getTelegramId(token);
-        vacancyRepository.markSingleAsSentToTelegram(userTelegramId, vacancyId);
+        int sent = vacancyRepository.markAsSentToTelegram(userTelegramId, List.of(vacancyId));
+        counterService.onSent(userTelegramId, sent);
         log.debug("Marked vacancy {} as sent to telegram for user {}", vacancyId, userTelegramId);
     }
 
@@ -78,19 +170,20 @@ public class VacancyService {
     public void markMultipleAsSentToTelegram(String token, List<String> vacancyIds) {
         if (!vacancyIds.isEmpty()) {
             Long userTelegramId = getTelegramId(token);
-            vacancyRepository.markAsSentToTelegram(userTelegramId, vacancyIds);
+            int sent = vacancyRepository.markAsSentToTelegram(userTelegramId, vacancyIds);
+            counterService.onSent(userTelegramId, sent);
             log.info("Marked {} vacancies as sent to telegram for user {}", vacancyIds.size(), userTelegramId);
         }
     }
 
     /**
-     * Пометить вакансию как просмотренную
+     * Пометить вакансию как просмотренную.
+     * Запись в БД отложенная — через VacancyStatusBuffer, пачкой вместе с соседними отметками.
      */
-    @Transactional
     public void markAsViewed(String token, String vacancyId) {
         Long userTelegramId = getTelegramId(token);
-        vacancyRepository.updateStatus(userTelegramId, vacancyId, VacancyStatus.VIEWED);
-        log.debug("Marked vacancy {} as viewed for user {}", vacancyId, userTelegramId);
+        statusBuffer.enqueue(userTelegramId, vacancyId, VacancyStatus.VIEWED);
+        log.debug("Buffered viewed status of vacancy {} for user {}", vacancyId, userTelegramId);
     }
 
     /**
@@ -100,7 +193,9 @@ public class VacancyService {
     public void markMultipleAsViewed(String token, List<String> vacancyIds) {
         if (!vacancyIds.isEmpty()) {
             Long userTelegramId = getTelegramId(token);
-            vacancyRepository.updateMultipleStatus(userTelegramId, vacancyIds, VacancyStatus.VIEWED);
+            VacancyCounterDelta delta = vacancyRepository.updateMultipleStatus(
+                    userTelegramId, vacancyIds, VacancyStatus.VIEWED);
+            counterService.apply(userTelegramId, delta);
             log.info("Marked {} vacancies as viewed for user {}", vacancyIds.size(), userTelegramId);
         }
     }
@@ -110,11 +205,58 @@ public class VacancyService {
      */
     @Transactional(readOnly = true)
     public List<Vacancy> getUserVacancies(String token, VacancyStatus status) {
+        return getUserVacancies(token, status, null, null);
+    }
+
+    /**
+     * Получить вакансии пользователя с фильтром по зарплате.
+     * minSalary задаётся в валюте currency (по умолчанию рубли) и сравнивается в SQL
+     * с зарплатой вакансии, пересчитанной в рубли; currency дополнительно ограничивает валюту вакансии.
+     */
+    @Transactional(readOnly = true)
+    public List<Vacancy> getUserVacancies(String token, VacancyStatus status, Integer minSalary, String currency) {
         Long userTelegramId = getTelegramId(token);
+        boolean salaryFilter = minSalary != null || currency != null;
+        Double minSalaryRub = toRubles(minSalary, currency);
+        String currencyCode = currency != null ? currency.toUpperCase(Locale.ROOT) : null;
+
+        Map<String, VacancyStatus> buffered = statusBuffer.pendingFor(userTelegramId);
+        if (buffered.isEmpty()) {
+            if (salaryFilter) {
+                return vacancyRepository.findByUserAndSalary(userTelegramId, status, currencyCode, minSalaryRub);
+            }
+            if (status == null) {
+                return vacancyRepository.findByUserTelegramIdOrderByPublishedAtDesc(userTelegramId);
+            }
+            return vacancyRepository.findByUserTelegramIdAndStatusOrderByPublishedAtDesc(userTelegramId, status);
+        }
+
+        // Есть ещё не записанные статусы: накладываем их поверх БД и фильтруем уже в памяти.
+        // Транзакция read-only, поэтому изменение статуса у сущностей в БД не уйдёт
+        List<Vacancy> vacancies = salaryFilter
+                ? vacancyRepository.findByUserAndSalary(userTelegramId, null, currencyCode, minSalaryRub)
+                : vacancyRepository.findByUserTelegramIdOrderByPublishedAtDesc(userTelegramId);
+        vacancies.forEach(v -> {
+            VacancyStatus pendingStatus = buffered.get(v.getId());
+            if (pendingStatus != null) {
+                v.setStatus(pendingStatus);
+            }
+        });
         if (status == null) {
-            return vacancyRepository.findByUserTelegramIdOrderByPublishedAtDesc(userTelegramId);
+            return vacancies;
         }
-        return vacancyRepository.findByUserTelegramIdAndStatusOrderByPublishedAtDesc(userTelegramId, status);
+        return vacancies.stream().filter(v -> v.getStatus() == status).collect(Collectors.toList());
+    }
+
+    private Double toRubles(Integer minSalary, String currency) {
+        if (minSalary == null) {
+            return null;
+        }
+        if (!currencyRateService.isKnown(currency)) {
+            log.warn("Неизвестная валюта {} в фильтре зарплаты, порог считается в рублях", currency);
+            return minSalary.doubleValue();
+        }
+        return currencyRateService.toRubles(minSalary, currency);
     }
 
     /**
@@ -123,18 +265,27 @@ public class VacancyService {
     @Transactional
     public void deleteVacancy(String token, String vacancyId) {
         Long userTelegramId = getTelegramId(token);
-        vacancyRepository.deleteByUserAndId(userTelegramId, vacancyId);
+        counterService.apply(userTelegramId, vacancyRepository.deleteMultiple(userTelegramId, List.of(vacancyId)));
+        statusBuffer.discard(userTelegramId, List.of(vacancyId));
+        seenIndex.markDeleted(userTelegramId, List.of(vacancyId));
         log.debug("Deleted vacancy {} for user {}", vacancyId, userTelegramId);
     }
 
     /**
-     * Удалить все вакансии пользователя
+     * Удалить несколько вакансий пользователя
      */
     @Transactional
-    public void deleteAllVacancies(String token) {
+    public int deleteVacancies(String token, List<String> vacancyIds) {
+        if (vacancyIds.isEmpty()) {
+            return 0;
+        }
         Long userTelegramId = getTelegramId(token);
-        vacancyRepository.deleteAllByUserTelegramId(userTelegramId);
-        log.info("Deleted all vacancies for user {}", userTelegramId);
+        VacancyCounterDelta delta = vacancyRepository.deleteMultiple(userTelegramId, vacancyIds);
+        counterService.apply(userTelegramId, delta);
+        statusBuffer.discard(userTelegramId, vacancyIds);
+        seenIndex.markDeleted(userTelegramId, vacancyIds);
+        log.info("Deleted {} vacancies for user {}", delta.getAffected(), userTelegramId);
+        return (int) delta.getAffected();
     }
 
     /**
@@ -143,6 +294,25 @@ public class VacancyService {
     @Transactional(readOnly = true)
     public Long getNewVacanciesCount(String token) {
         Long userTelegramId = getTelegramId(token);
-        return vacancyRepository.countNewVacancies(userTelegramId);
+        long count = counterService.getNewCount(userTelegramId);
+
+        // Поправка на ещё не записанные смены статуса
+        Map<String, VacancyStatus> buffered = statusBuffer.pendingFor(userTelegramId);
+        if (!buffered.isEmpty()) {
+            Map<Boolean, List<String>> byTarget = buffered.entrySet().stream()
+                    .collect(Collectors.partitioningBy(e -> e.getValue() == VacancyStatus.NEW,
+                            Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+            List<String> leavingNew = byTarget.get(false);
+            List<String> enteringNew = byTarget.get(true);
+            if (!leavingNew.isEmpty()) {
+                count -= vacancyRepository.countByUserTelegramIdAndStatusAndIdIn(
+                        userTelegramId, VacancyStatus.NEW, leavingNew);
+            }
+            if (!enteringNew.isEmpty()) {
+                count += enteringNew.size() - vacancyRepository.countByUserTelegramIdAndStatusAndIdIn(
+                        userTelegramId, VacancyStatus.NEW, enteringNew);
+            }
+        }
+        return count;
     }
 }
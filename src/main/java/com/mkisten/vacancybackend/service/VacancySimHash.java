@@ -0,0 +1,77 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.entity.Vacancy;
+
+/**
+ * 64-битная SimHash-подпись вакансии для поиска почти-дублей (одна вакансия, перевыложенная
+ * под новым id или в нескольких городах). Признаки — слова и пары соседних слов нормализованных
+ * названия (вес 3) и работодателя (вес 2); город не учитывается. Только эти поля есть у вакансии
+ * в каждом пути (выдача HH.ru, импорт, сохранённая строка), поэтому подписи из разных путей сравнимы.
+ * Похожие тексты дают подписи, отличающиеся в немногих битах.
+ */
+public final class VacancySimHash {
+
+    /** Подписи нет (пустой текст) — такие вакансии не склеиваются */
+    public static final long NONE = 0L;
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int EMPLOYER_WEIGHT = 2;
+
+    private VacancySimHash() {
+    }
+
+    public static long of(Vacancy v) {
+        return of(v.getTitle(), v.getEmployer());
+    }
+
+    public static long of(String title, String employer) {
+        int[] votes = new int[64];
+        boolean any = addFeatures(votes, title, TITLE_WEIGHT);
+        any |= addFeatures(votes, employer, EMPLOYER_WEIGHT);
+        if (!any) return NONE;
+
+        long signature = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (votes[bit] > 0) signature |= 1L << bit;
+        }
+        return signature == NONE ? 1 : signature;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static boolean addFeatures(int[] votes, String text, int weight) {
+        if (text == null || text.isBlank()) return false;
+        String normalized = KeywordMatcher.normalize(text);
+        if (normalized.isEmpty()) return false;
+        String previous = null;
+        for (String word : normalized.split(" ")) {
+            vote(votes, hash(word), weight);
+            if (previous != null) {
+                vote(votes, hash(previous + ' ' + word), weight);
+            }
+            previous = word;
+        }
+        return true;
+    }
+
+    private static void vote(int[] votes, long featureHash, int weight) {
+        for (int bit = 0; bit < 64; bit++) {
+            votes[bit] += ((featureHash >>> bit) & 1) != 0 ? weight : -weight;
+        }
+    }
+
+    // FNV-1a с финальным перемешиванием — соседние слова не должны давать близкие хеши
+    private static long hash(String feature) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < feature.length(); i++) {
+            h = (h ^ feature.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
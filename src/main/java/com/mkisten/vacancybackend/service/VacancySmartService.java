@@ -1,7 +1,7 @@
 package com.mkisten.vacancybackend.service;
 
 import com.mkisten.vacancybackend.dto.SearchRequest;
-import com.mkisten.vacancybackend.entity.UserSettings;
+import com.mkisten.vacancybackend.dto.UserSettingsSnapshot;
 import com.mkisten.vacancybackend.entity.Vacancy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,41 +16,50 @@ import java.util.List;
 public class VacancySmartService {
     private final UserSettingsService userSettingsService;
     private final HHruApiService hhruApiService;
-    private final TelegramNotificationService telegramService;
     private final VacancyService vacancyService;
+    private final NotificationSchedule notificationSchedule;
+    private final IngestionPipeline ingestionPipeline;
 
     /**
      * Выполняет поиск вакансий с подмешиванием user-настроек,
      * сохраняет новые, и отправляет только неотправленные в Telegram.
      */
     public List<Vacancy> searchWithUserSettings(SearchRequest request, String token, Long userTelegramId) {
-        UserSettings settings = userSettingsService.getSettings(token);
+        UserSettingsSnapshot settings = userSettingsService.getSettingsSnapshot(token);
 
         // Подмешивание недостающих настроек из UserSettings
         if (!StringUtils.hasText(request.getQuery()))
-            request.setQuery(settings.getSearchQuery());
+            request.setQuery(settings.searchQuery());
         if (request.getDays() == null)
-            request.setDays(settings.getDays());
+            request.setDays(settings.days());
         if (request.getExcludeKeywords() == null || request.getExcludeKeywords().isEmpty())
-            request.setExcludeKeywords(settings.getExcludeKeywords());
+            request.setExcludeKeywords(settings.excludeKeywords());
         if (request.getWorkTypes() == null || request.getWorkTypes().isEmpty())
-            request.setWorkTypes(settings.getWorkTypes());
+            request.setWorkTypes(settings.workTypes());
         if (request.getCountries() == null || request.getCountries().isEmpty())
-            request.setCountries(settings.getCountries());
+            request.setCountries(settings.countries());
+        if (request.getMinSalary() == null)
+            request.setMinSalary(settings.minSalary());
+        if (!StringUtils.hasText(request.getSalaryCurrency()))
+            request.setSalaryCurrency(settings.salaryCurrency());
         if (request.getTelegramNotify() == null)
-            request.setTelegramNotify(settings.getTelegramNotify());
+            request.setTelegramNotify(settings.telegramNotify());
 
         log.info("Smart search for user {} with query: {}", userTelegramId, request.getQuery());
 
-        // Поиск вакансий через hhruApiService
-        List<Vacancy> foundVacancies = hhruApiService.searchVacancies(request, token);
+        // Поиск вакансий через hhruApiService (одинаковые параллельные запросы объединяются)
+        List<Vacancy> foundVacancies = hhruApiService.searchVacancies(request, userTelegramId);
 
-        // Сохраняем только новые вакансии (проверяется уникальность по (id+userTelegramId))
-        vacancyService.saveVacancies(token, foundVacancies);
+        // Сохраняем новые вакансии (уникальность по (id+userTelegramId)) и перезаписываем изменившиеся
+        VacancyService.IngestResult result = vacancyService.ingestVacancies(userTelegramId, foundVacancies);
 
-        // Отправить только неотправленные вакансии в Telegram
-        if (Boolean.TRUE.equals(settings.getTelegramNotify())) {
-            telegramService.sendAllUnsentVacanciesToTelegram(token, userTelegramId);
+        // Отправка в Telegram — стадией notify конвейера, ответ её не ждёт;
+        // в режиме подборки вакансии отправит TelegramDigestScheduler
+        if (!result.isEmpty() && notificationSchedule.sendsImmediately(settings)) {
+            IngestionPipeline.Delivery delivery = new IngestionPipeline.Delivery(userTelegramId, token, null, true, null);
+            if (!ingestionPipeline.submitNotify(delivery, result)) {
+                log.warn("Очередь уведомлений переполнена — вакансии пользователя {} уйдут со следующей отправкой", userTelegramId);
+            }
         }
 
         // Возвращаем все найденные вакансии
@@ -0,0 +1,230 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.config.ReadYourWritesTracker;
+import com.mkisten.vacancybackend.entity.VacancyStatus;
+import com.mkisten.vacancybackend.repository.VacancyRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind буфер смены статусов вакансий (mark-viewed при прокрутке ленты).
+ * Переходы копятся в памяти по пользователям; повторная отметка той же вакансии перезаписывает
+ * предыдущую. Сброс в БД — по таймеру или при достижении порога (в отдельном потоке, HTTP-запрос
+ * его не ждёт), одним updateMultipleStatus на пользователя и статус; отметка покидает буфер
+ * только после фиксации записи.
+ * Неудавшаяся запись пользователя повторяется с растущей паузой, после max-attempts попыток
+ * его отметки отбрасываются. Буфер ограничен max-pending отметками: сверх него отметка
+ * пишется в БД сразу, в потоке вызова.
+ * При остановке приложения буфер сбрасывается полностью.
+ * Чтения в VacancyService накладывают буферизованные статусы поверх данных из БД.
+ */
+@Slf4j
+@Component
+public class VacancyStatusBuffer {
+
+    private final VacancyRepository vacancyRepository;
+    private final VacancyCounterService counterService;
+    private final ReadYourWritesTracker readYourWrites;
+    private final TransactionTemplate transactionTemplate;
+
+    // telegramId -> (vacancyId -> новый статус). Внутренние карты меняются только внутри compute()
+    private final ConcurrentHashMap<Long, Map<String, VacancyStatus>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // telegramId -> неудачные попытки записи подряд; меняется только потоком сброса под flushLock
+    private final Map<Long, Failure> failures = new HashMap<>();
+    private ExecutorService flushExecutor;
+
+    @Value("${app.status-buffer.flush-threshold:500}")
+    private int flushThreshold;
+
+    @Value("${app.status-buffer.max-pending:50000}")
+    private int maxPending;
+
+    @Value("${app.status-buffer.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.status-buffer.max-backoff-ms:60000}")
+    private long maxBackoffMs;
+
+    @Value("${app.status-buffer.flush-interval-ms:300}")
+    private long flushIntervalMs;
+
+    private record Failure(int attempts, long retryAtMs) {}
+
+    public VacancyStatusBuffer(VacancyRepository vacancyRepository, VacancyCounterService counterService,
+                               ReadYourWritesTracker readYourWrites, PlatformTransactionManager transactionManager) {
+        this.vacancyRepository = vacancyRepository;
+        this.counterService = counterService;
+        this.readYourWrites = readYourWrites;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void init() {
+        flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "status-buffer-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void enqueue(Long userTelegramId, String vacancyId, VacancyStatus status) {
+        if (pendingCount.get() >= maxPending && !pendingFor(userTelegramId).containsKey(vacancyId)) {
+            // Буфер полон (например, БД недоступна дольше обычного) — не растим его, пишем сразу
+            writeNow(userTelegramId, vacancyId, status);
+            return;
+        }
+        pending.compute(userTelegramId, (id, statuses) -> {
+            Map<String, VacancyStatus> target = statuses != null ? statuses : new LinkedHashMap<>();
+            if (target.put(vacancyId, status) == null) {
+                pendingCount.incrementAndGet();
+            }
+            return target;
+        });
+        if (pendingCount.get() >= flushThreshold && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    private void writeNow(Long userTelegramId, String vacancyId, VacancyStatus status) {
+        transactionTemplate.executeWithoutResult(tx -> counterService.apply(userTelegramId,
+                vacancyRepository.updateMultipleStatus(userTelegramId, List.of(vacancyId), status)));
+        readYourWrites.markWritten(userTelegramId);
+        // Более ранняя отметка той же вакансии, если успела попасть в буфер, уже не нужна
+        removeFlushed(userTelegramId, Map.of(vacancyId, status));
+    }
+
+    /** Снимок ещё не записанных статусов пользователя (vacancyId -> статус) */
+    public Map<String, VacancyStatus> pendingFor(Long userTelegramId) {
+        Map<String, VacancyStatus> snapshot = new HashMap<>();
+        pending.computeIfPresent(userTelegramId, (id, statuses) -> {
+            snapshot.putAll(statuses);
+            return statuses;
+        });
+        return snapshot;
+    }
+
+    /** Забыть буферизованные статусы удалённых вакансий */
+    public void discard(Long userTelegramId, Collection<String> vacancyIds) {
+        pending.computeIfPresent(userTelegramId, (id, statuses) -> {
+            for (String vacancyId : vacancyIds) {
+                if (statuses.remove(vacancyId) != null) {
+                    pendingCount.decrementAndGet();
+                }
+            }
+            return statuses.isEmpty() ? null : statuses;
+        });
+    }
+
+    public void discardAll(Long userTelegramId) {
+        Map<String, VacancyStatus> removed = pending.remove(userTelegramId);
+        if (removed != null) {
+            pendingCount.addAndGet(-removed.size());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.status-buffer.flush-interval-ms:300}")
+    public void flush() {
+        // Сброс по порогу и по таймеру не должны писать одни и те же отметки параллельно
+        if (!flushLock.tryLock()) return;
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flushExecutor.shutdownNow();
+        log.info("Flushing {} buffered vacancy status changes before shutdown", pendingCount.get());
+        flushLock.lock();
+        try {
+            failures.clear(); // последняя попытка — для всех, без учёта пауз
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Отметки остаются в pending (и видны чтениям) до фиксации транзакции; при ошибке — остаются
+    // до повторной попытки
+    private void flushPending() {
+        long now = System.currentTimeMillis();
+        failures.keySet().retainAll(pending.keySet());
+        for (Long userTelegramId : pending.keySet()) {
+            Failure failure = failures.get(userTelegramId);
+            if (failure != null && failure.retryAtMs() > now) continue;
+            Map<String, VacancyStatus> drained = pendingFor(userTelegramId);
+            if (drained.isEmpty()) continue;
+
+            Map<VacancyStatus, List<String>> byStatus = new EnumMap<>(VacancyStatus.class);
+            drained.forEach((vacancyId, status) ->
+                    byStatus.computeIfAbsent(status, s -> new ArrayList<>()).add(vacancyId));
+            try {
+                transactionTemplate.executeWithoutResult(tx -> byStatus.forEach((status, ids) ->
+                        counterService.apply(userTelegramId,
+                                vacancyRepository.updateMultipleStatus(userTelegramId, ids, status))));
+                log.debug("Flushed {} buffered status changes for user {}", drained.size(), userTelegramId);
+            } catch (Exception e) {
+                recordFailure(userTelegramId, failure, drained, e, now);
+                continue;
+            }
+            failures.remove(userTelegramId);
+            // До снятия отметок из буфера: иначе чтение с отстающей реплики вернуло бы старый статус
+            readYourWrites.markWritten(userTelegramId);
+            removeFlushed(userTelegramId, drained);
+        }
+    }
+
+    private void recordFailure(Long userTelegramId, Failure previous, Map<String, VacancyStatus> drained,
+                               Exception e, long now) {
+        int attempts = previous != null ? previous.attempts() + 1 : 1;
+        if (attempts >= maxAttempts) {
+            failures.remove(userTelegramId);
+            removeFlushed(userTelegramId, drained);
+            log.error("Статусы {} вакансий пользователя {} отброшены после {} неудачных попыток записи: {}",
+                    drained.size(), userTelegramId, attempts, e.getMessage());
+            return;
+        }
+        long backoffMs = Math.min(maxBackoffMs, flushIntervalMs << Math.min(attempts, 20));
+        failures.put(userTelegramId, new Failure(attempts, now + backoffMs));
+        if (attempts == 1) {
+            log.error("Не удалось записать статусы вакансий пользователя {}: {}", userTelegramId, e.getMessage());
+        } else {
+            log.warn("Повторная ошибка записи статусов пользователя {} (попытка {}), следующая через {} мс: {}",
+                    userTelegramId, attempts, backoffMs, e.getMessage());
+        }
+    }
+
+    // Убрать записанные отметки, не затирая более свежие, пришедшие во время записи
+    private void removeFlushed(Long userTelegramId, Map<String, VacancyStatus> flushed) {
+        pending.computeIfPresent(userTelegramId, (id, statuses) -> {
+            flushed.forEach((vacancyId, status) -> {
+                if (statuses.remove(vacancyId, status)) {
+                    pendingCount.decrementAndGet();
+                }
+            });
+            return statuses.isEmpty() ? null : statuses;
+        });
+    }
+}
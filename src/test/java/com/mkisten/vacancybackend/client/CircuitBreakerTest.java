@@ -0,0 +1,88 @@
+package com.mkisten.vacancybackend.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    // Окно 10 вызовов, решение не раньше 4 вызовов, порог 50%, открыт 1000 мс, 2 пробных вызова
+    private final CircuitBreaker breaker = new CircuitBreaker(10, 4, 50.0, 1000, 2);
+
+    @Test
+    void staysClosedUntilMinimumCalls() {
+        assertThat(breaker.onFailure(0)).isFalse();
+        assertThat(breaker.onFailure(0)).isFalse();
+        assertThat(breaker.onFailure(0)).isFalse();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquirePermission(0)).isTrue();
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onFailure(0);
+
+        assertThat(breaker.onFailure(100)).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission(500)).isFalse();
+        assertThat(breaker.isRejecting(500)).isTrue();
+    }
+
+    @Test
+    void oldOutcomesLeaveTheWindow() {
+        CircuitBreaker small = new CircuitBreaker(4, 4, 50.0, 1000, 1);
+        small.onFailure(0);
+        small.onFailure(0);
+        small.onFailure(0);
+        for (int i = 0; i < 4; i++) small.onSuccess();
+
+        // За всё время ошибок 4 из 8, но в окне из последних 4 вызовов — одна
+        assertThat(small.onFailure(0)).isFalse();
+        assertThat(small.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void halfOpenAdmitsLimitedProbesAndClosesAfterThemSucceed() {
+        open();
+
+        assertThat(breaker.tryAcquirePermission(1000)).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission(1000)).isTrue();
+        assertThat(breaker.tryAcquirePermission(1000)).isFalse();
+        assertThat(breaker.isRejecting(1000)).isTrue();
+
+        assertThat(breaker.onSuccess()).isFalse();
+        assertThat(breaker.onSuccess()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void failedProbeReopens() {
+        open();
+        breaker.tryAcquirePermission(1000);
+
+        assertThat(breaker.onFailure(1200)).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission(2100)).isFalse();
+        assertThat(breaker.tryAcquirePermission(2200)).isTrue();
+    }
+
+    @Test
+    void probeNotExecutedReturnsItsSlot() {
+        open();
+        breaker.tryAcquirePermission(1000);
+        breaker.tryAcquirePermission(1000);
+
+        breaker.onNotExecuted();
+
+        assertThat(breaker.tryAcquirePermission(1000)).isTrue();
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) breaker.onFailure(0);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+}
@@ -0,0 +1,109 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.dto.UserSettingsSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptivePollSchedulerTest {
+
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final AdaptivePollScheduler scheduler = new AdaptivePollScheduler(new SimpleMeterRegistry());
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(scheduler, "minIntervalMinutes", 1);
+        ReflectionTestUtils.setField(scheduler, "maxIntervalMinutes", 60);
+        ReflectionTestUtils.setField(scheduler, "backoffMultiplier", 2.0);
+    }
+
+    @Test
+    void unknownUserIsDueImmediately() {
+        assertThat(scheduler.isDue(settings("java", 10), T0)).isTrue();
+    }
+
+    @Test
+    void emptyPollsBackOffExponentiallyUpToMax() {
+        UserSettingsSnapshot settings = settings("java", 10);
+        Instant now = T0;
+        // После первого пустого опроса 20 минут, дальше 40, затем упор в максимум 60
+        for (long expected : new long[]{20, 40, 60, 60}) {
+            scheduler.recordResult(settings, 0, now);
+            assertThat(scheduler.isDue(settings, now.plus(minutes(expected - 1)))).isFalse();
+            assertThat(scheduler.isDue(settings, now.plus(minutes(expected)))).isTrue();
+            now = now.plus(minutes(expected));
+        }
+    }
+
+    @Test
+    void newVacanciesResetDelayToUserInterval() {
+        UserSettingsSnapshot settings = settings("java", 10);
+        scheduler.recordResult(settings, 0, T0);
+        scheduler.recordResult(settings, 0, T0.plus(minutes(20)));
+
+        Instant productive = T0.plus(minutes(60));
+        scheduler.recordResult(settings, 3, productive);
+
+        assertThat(scheduler.isDue(settings, productive.plus(minutes(9)))).isFalse();
+        assertThat(scheduler.isDue(settings, productive.plus(minutes(10)))).isTrue();
+    }
+
+    @Test
+    void changedSearchResetsHistory() {
+        scheduler.recordResult(settings("java", 10), 0, T0);
+        scheduler.recordResult(settings("java", 10), 0, T0.plus(minutes(20)));
+
+        assertThat(scheduler.isDue(settings("kotlin", 10), T0.plus(minutes(21)))).isTrue();
+    }
+
+    @Test
+    void raisedUserIntervalAppliesToExistingBackoff() {
+        scheduler.recordResult(settings("java", 5), 0, T0);  // следующий опрос через 10 минут
+
+        assertThat(scheduler.isDue(settings("java", 5), T0.plus(minutes(10)))).isTrue();
+        assertThat(scheduler.isDue(settings("java", 30), T0.plus(minutes(10)))).isFalse();
+        assertThat(scheduler.isDue(settings("java", 30), T0.plus(minutes(30)))).isTrue();
+    }
+
+    @Test
+    void intervalBelowGlobalMinimumIsRaised() {
+        ReflectionTestUtils.setField(scheduler, "minIntervalMinutes", 5);
+        UserSettingsSnapshot settings = settings("java", 1);
+        scheduler.recordResult(settings, 2, T0);
+
+        assertThat(scheduler.isDue(settings, T0.plus(minutes(4)))).isFalse();
+        assertThat(scheduler.isDue(settings, T0.plus(minutes(5)))).isTrue();
+    }
+
+    @Test
+    void retainOnlyForgetsDisabledUsers() {
+        UserSettingsSnapshot kept = settings("java", 10);
+        UserSettingsSnapshot dropped = new UserSettingsSnapshot(2L, "java", 1, null, null, null,
+                Set.of(), Set.of(), false, null, null, null, 10);
+        scheduler.recordResult(kept, 0, T0);
+        scheduler.recordResult(dropped, 0, T0);
+
+        scheduler.retainOnly(List.of(kept));
+
+        assertThat(scheduler.isDue(kept, T0.plus(minutes(1)))).isFalse();
+        assertThat(scheduler.isDue(dropped, T0.plus(minutes(1)))).isTrue();
+    }
+
+    private static UserSettingsSnapshot settings(String query, Integer autoUpdateInterval) {
+        return new UserSettingsSnapshot(1L, query, 1, null, null, null, Set.of(), Set.of(),
+                false, null, null, null, autoUpdateInterval);
+    }
+
+    private static Duration minutes(long minutes) {
+        return Duration.ofMinutes(minutes);
+    }
+}
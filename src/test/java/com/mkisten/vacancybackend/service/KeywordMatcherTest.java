@@ -0,0 +1,59 @@
+package com.mkisten.vacancybackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeywordMatcherTest {
+
+    @Test
+    void normalizesCaseYoAndSeparators() {
+        assertThat(KeywordMatcher.normalize("  Ёлка -- Senior/C++ ")).isEqualTo("елка senior c++");
+        assertThat(KeywordMatcher.normalize(null)).isEmpty();
+    }
+
+    @Test
+    void blankKeywordListCompilesToEmpty() {
+        assertThat(KeywordMatcher.compile(null).isEmpty()).isTrue();
+        assertThat(KeywordMatcher.compile(" , ;\n").isEmpty()).isTrue();
+        assertThat(KeywordMatcher.EMPTY.matches("что угодно")).isFalse();
+    }
+
+    @Test
+    void matchesFromWordStartOnly() {
+        KeywordMatcher matcher = KeywordMatcher.compile("стажер, ява");
+
+        assertThat(matcher.matches(KeywordMatcher.normalize("Стажёра ищем"))).isTrue();
+        assertThat(matcher.matches(KeywordMatcher.normalize("Разработчик на джава"))).isFalse();
+        assertThat(matcher.matches(KeywordMatcher.normalize("остров ява"))).isTrue();
+    }
+
+    @Test
+    void matchesAnyOfManyKeywordsInOnePass() {
+        KeywordMatcher matcher = KeywordMatcher.compile("1с; php\nbitrix,c#");
+
+        assertThat(matcher.matches(KeywordMatcher.normalize("Программист 1С:Предприятие"))).isTrue();
+        assertThat(matcher.matches(KeywordMatcher.normalize("Senior C# developer"))).isTrue();
+        assertThat(matcher.matches(KeywordMatcher.normalize("Java developer"))).isFalse();
+    }
+
+    @Test
+    void findsKeywordThroughSuffixLinks() {
+        // Слова пересекаются: "he" и "hers" находятся по суффиксным ссылкам из ветки "she",
+        // но засчитываются только с начала слова текста
+        KeywordMatcher matcher = KeywordMatcher.compile("she, he, hers");
+
+        assertThat(matcher.matches("us hers")).isTrue();
+        assertThat(matcher.matches("ushers")).isFalse();
+        assertThat(matcher.matches("shes")).isTrue();
+    }
+
+    @Test
+    void multiWordKeywordMatchesAcrossSeparators() {
+        KeywordMatcher matcher = KeywordMatcher.compile("без опыта");
+
+        assertThat(matcher.matches(KeywordMatcher.normalize("Работа без  опыта!"))).isTrue();
+        assertThat(matcher.matches(KeywordMatcher.normalize("Без опыта работы"))).isTrue();
+        assertThat(matcher.matches(KeywordMatcher.normalize("безопытный"))).isFalse();
+    }
+}
@@ -0,0 +1,134 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.entity.Vacancy;
+import com.mkisten.vacancybackend.repository.VacancyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class NearDuplicateIndexTest {
+
+    @Test
+    void simHashIgnoresCaseAndPunctuation() {
+        assertThat(VacancySimHash.of("Java-разработчик (Senior)", "ООО «Ёлка»"))
+                .isEqualTo(VacancySimHash.of("java разработчик senior", "ооо елка"));
+    }
+
+    @Test
+    void simHashOfEmptyTextIsNone() {
+        assertThat(VacancySimHash.of(null, "  ")).isEqualTo(VacancySimHash.NONE);
+        assertThat(VacancySimHash.of("--", null)).isEqualTo(VacancySimHash.NONE);
+        assertThat(VacancySimHash.of("Java", null)).isNotEqualTo(VacancySimHash.NONE);
+    }
+
+    @Test
+    void similarTextsAreCloserThanUnrelatedOnes() {
+        long original = VacancySimHash.of("Senior Java developer в команду платежей", "Tinkoff");
+        long reposted = VacancySimHash.of("Senior Java developer в команду платежей (remote)", "Tinkoff");
+        long unrelated = VacancySimHash.of("Бухгалтер на первичную документацию", "ООО Ромашка");
+
+        assertThat(VacancySimHash.distance(original, reposted))
+                .isLessThan(VacancySimHash.distance(original, unrelated));
+        assertThat(VacancySimHash.distance(original, unrelated)).isGreaterThan(10);
+    }
+
+    @Test
+    void bandingFindsEverySignatureWithinThreeBits() {
+        Random random = new Random(7);
+        for (int round = 0; round < 1_000; round++) {
+            long signature = random.nextLong();
+            NearDuplicateIndex.Signatures signatures = new NearDuplicateIndex.Signatures();
+            signatures.add(signature);
+
+            long near = signature;
+            int flips = random.nextInt(4);
+            for (int i = 0; i < flips; i++) {
+                near ^= 1L << random.nextInt(64);
+            }
+            assertThat(signatures.hasNear(near, 3)).as("подпись на расстоянии %d", flips).isTrue();
+        }
+    }
+
+    @Test
+    void signaturesOutsideEveryBandAreNotCandidates() {
+        long signature = 0x0123_4567_89AB_CDEFL;
+        NearDuplicateIndex.Signatures signatures = new NearDuplicateIndex.Signatures();
+        signatures.add(signature);
+
+        // По биту в каждой 16-битной полосе: расстояние 4, но ни одна полоса не совпадает
+        long everyBandChanged = signature ^ (1L | 1L << 16 | 1L << 32 | 1L << 48);
+        assertThat(signatures.hasNear(everyBandChanged, 4)).isFalse();
+
+        // Совпадающая полоса есть, но расстояние больше порога
+        long farInOtherBands = signature ^ (0xFFL << 16);
+        assertThat(signatures.hasNear(farInOtherBands, 3)).isFalse();
+        assertThat(signatures.hasNear(farInOtherBands, 8)).isTrue();
+    }
+
+    @Test
+    void addingTheSameSignatureTwiceKeepsOneCopy() {
+        NearDuplicateIndex.Signatures signatures = new NearDuplicateIndex.Signatures();
+        signatures.add(42L);
+        signatures.add(42L);
+        signatures.add(43L);
+
+        assertThat(signatures.hasNear(42L, 0)).isTrue();
+        assertThat(signatures.hasNear(43L, 0)).isTrue();
+        assertThat(signatures.hasNear(44L, 0)).isFalse();
+    }
+
+    @Test
+    void collapsesAgainstStoredAndWithinBatch() {
+        VacancyRepository repository = mock(VacancyRepository.class);
+        long stored = VacancySimHash.of("Senior Java developer", "Tinkoff");
+        doAnswer(call -> {
+            call.<LongConsumer>getArgument(1).accept(stored);
+            return null;
+        }).when(repository).forEachSimHash(eq(1L), any(LongConsumer.class));
+        NearDuplicateIndex index = index(repository, 3);
+
+        Vacancy repost = vacancy("2", "Senior Java developer", "Tinkoff");
+        Vacancy fresh = vacancy("3", "Бухгалтер", "Ромашка");
+        Vacancy freshAgain = vacancy("4", "Бухгалтер", "Ромашка");
+        Vacancy untitled = vacancy("5", null, null);
+
+        assertThat(index.collapse(1L, List.of(repost, fresh, freshAgain, untitled)))
+                .extracting(Vacancy::getId)
+                .containsExactly("3", "5");
+        assertThat(fresh.getSimhash()).isEqualTo(VacancySimHash.of("Бухгалтер", "Ромашка"));
+    }
+
+    @Test
+    void rejectsDistanceThatBandingCannotGuarantee() {
+        assertThatThrownBy(() -> index(mock(VacancyRepository.class), 4))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static NearDuplicateIndex index(VacancyRepository repository, int maxDistance) {
+        NearDuplicateIndex index = new NearDuplicateIndex(repository, new SimpleMeterRegistry(),
+                mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "maxDistance", maxDistance);
+        ReflectionTestUtils.setField(index, "maxUsers", 100L);
+        ReflectionTestUtils.setField(index, "expireMinutes", 10L);
+        index.init();
+        return index;
+    }
+
+    private static Vacancy vacancy(String id, String title, String employer) {
+        Vacancy vacancy = new Vacancy();
+        vacancy.setId(id);
+        vacancy.setTitle(title);
+        vacancy.setEmployer(employer);
+        return vacancy;
+    }
+}
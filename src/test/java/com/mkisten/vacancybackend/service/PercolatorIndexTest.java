@@ -0,0 +1,107 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.dto.HHruVacancy;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PercolatorIndexTest {
+
+    private static final int MOSCOW = 1;
+    private static final int SPB = 2;
+
+    @Test
+    void parsesSimpleQueriesIntoNormalizedTerms() {
+        assertThat(PercolatorIndex.parseSimpleQuery("Java  Разработчик, java")).containsExactly("java", "разработчик");
+        assertThat(PercolatorIndex.parseSimpleQuery("C# .NET")).containsExactly("c#", "net");
+        assertThat(PercolatorIndex.parseSimpleQuery(null)).isEmpty();
+        assertThat(PercolatorIndex.parseSimpleQuery("   ")).isEmpty();
+    }
+
+    @Test
+    void rejectsHhQuerySyntax() {
+        assertThat(PercolatorIndex.parseSimpleQuery("java OR kotlin")).isNull();
+        assertThat(PercolatorIndex.parseSimpleQuery("java not senior")).isNull();
+        assertThat(PercolatorIndex.parseSimpleQuery("\"java developer\"")).isNull();
+        assertThat(PercolatorIndex.parseSimpleQuery("(java)")).isNull();
+        assertThat(PercolatorIndex.parseSimpleQuery("progr*")).isNull();
+    }
+
+    @Test
+    void rejectsQueriesLongerThanMaxTerms() {
+        assertThat(PercolatorIndex.parseSimpleQuery(words(PercolatorIndex.MAX_TERMS))).hasSize(PercolatorIndex.MAX_TERMS);
+        assertThat(PercolatorIndex.parseSimpleQuery(words(PercolatorIndex.MAX_TERMS + 1))).isNull();
+    }
+
+    @Test
+    void matchesWhenEveryTermPrefixesATitleWord() {
+        PercolatorIndex index = new PercolatorIndex();
+        add(index, 1L, Set.of(), Set.of(), null, "", List.of("java", "разраб"));
+        add(index, 2L, Set.of(), Set.of(), null, "", List.of("python"));
+
+        assertThat(index.match(vacancy("Java-разработчик", "fullDay"), PercolatorIndex.ANY_AREA, null))
+                .containsExactly(1L);
+        // Слово запроса — начало слова названия, поэтому java находит и JavaScript
+        assertThat(index.match(vacancy("Разработчик JavaScript", "fullDay"), PercolatorIndex.ANY_AREA, null))
+                .containsExactly(1L);
+        assertThat(index.match(vacancy("Java архитектор", "fullDay"), PercolatorIndex.ANY_AREA, null))
+                .isEmpty();
+    }
+
+    @Test
+    void emptyQuerySubscribesToEverythingThatPassesFilters() {
+        PercolatorIndex index = new PercolatorIndex();
+        add(index, 1L, Set.of(), Set.of("remote"), null, "", List.of());
+
+        assertThat(index.match(vacancy("Что угодно", "remote"), PercolatorIndex.ANY_AREA, null)).containsExactly(1L);
+        assertThat(index.match(vacancy("Что угодно", "fullDay"), PercolatorIndex.ANY_AREA, null)).isEmpty();
+    }
+
+    @Test
+    void eachSubscriptionReadsOnlyItsOwnFeeds() {
+        PercolatorIndex index = new PercolatorIndex();
+        add(index, 1L, Set.of(MOSCOW), Set.of(), null, "", List.of("java"));
+        add(index, 2L, Set.of(), Set.of(), null, "", List.of("java"));
+        HHruVacancy item = vacancy("Java developer", "fullDay");
+
+        assertThat(index.match(item, MOSCOW, null)).containsExactly(1L);
+        assertThat(index.match(item, SPB, null)).isEmpty();
+        assertThat(index.match(item, PercolatorIndex.ANY_AREA, null)).containsExactly(2L);
+    }
+
+    @Test
+    void appliesSalaryThresholdAndExcludeKeywords() {
+        PercolatorIndex index = new PercolatorIndex();
+        add(index, 1L, Set.of(), Set.of(), 200_000.0, "стажер", List.of("java"));
+
+        assertThat(index.match(vacancy("Java developer", "fullDay"), PercolatorIndex.ANY_AREA, 150_000.0)).isEmpty();
+        assertThat(index.match(vacancy("Java developer", "fullDay"), PercolatorIndex.ANY_AREA, 250_000.0))
+                .containsExactly(1L);
+        // Вакансия без зарплаты порогом не отсекается
+        assertThat(index.match(vacancy("Java developer", "fullDay"), PercolatorIndex.ANY_AREA, null))
+                .containsExactly(1L);
+        assertThat(index.match(vacancy("Java стажер", "fullDay"), PercolatorIndex.ANY_AREA, 250_000.0)).isEmpty();
+    }
+
+    private static void add(PercolatorIndex index, Long telegramId, Set<Integer> areas, Set<String> schedules,
+                            Double minSalaryRub, String exclude, List<String> terms) {
+        index.add(new PercolatorIndex.Subscription(telegramId, terms.size(), areas, schedules, minSalaryRub,
+                KeywordMatcher.compile(exclude)), terms);
+    }
+
+    private static String words(int count) {
+        StringBuilder query = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            query.append("w").append(i).append(' ');
+        }
+        return query.toString();
+    }
+
+    private static HHruVacancy vacancy(String title, String scheduleId) {
+        return new HHruVacancy("1", title, null, null, null, scheduleId, null, null, null, null, null,
+                null, null, null, KeywordMatcher.normalize(title), 0L, 0L);
+    }
+}
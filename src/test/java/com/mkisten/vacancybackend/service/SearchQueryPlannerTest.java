@@ -0,0 +1,133 @@
+package com.mkisten.vacancybackend.service;
+
+import com.mkisten.vacancybackend.dto.HHruVacancy;
+import com.mkisten.vacancybackend.dto.SearchRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class SearchQueryPlannerTest {
+
+    private final HHruApiService hhruApiService = mock(HHruApiService.class);
+    private final SearchQueryPlanner planner = new SearchQueryPlanner(hhruApiService);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(planner, "enabled", true);
+        ReflectionTestUtils.setField(planner, "maxQueries", 10);
+        ReflectionTestUtils.setField(planner, "maxUrlLength", 2000);
+        ReflectionTestUtils.setField(planner, "maxResults", 500);
+        when(hhruApiService.buildSearchUrl(any(), anyString(), anyInt()))
+                .thenAnswer(call -> "https://api.hh.ru/vacancies?text=" + call.getArgument(1) + "&page=" + call.getArgument(2));
+    }
+
+    @Test
+    void mergesCompatibleSimpleQueriesIntoOneJob() {
+        Map<Long, SearchRequest> requests = new LinkedHashMap<>();
+        requests.put(1L, request("java", 1));
+        requests.put(2L, request("python", 1));
+        requests.put(3L, request("Java", 1));
+        requests.put(4L, request("golang", 3));        // другие days — несовместим
+        requests.put(5L, request("java OR kotlin", 1)); // синтаксис HH.ru — отдельно
+
+        List<SearchQueryPlanner.SearchJob> jobs = planner.plan(requests);
+
+        assertThat(jobs).extracting(SearchQueryPlanner.SearchJob::users)
+                .containsExactlyInAnyOrder(List.of(5L), List.of(1L, 3L, 2L), List.of(4L));
+    }
+
+    @Test
+    void splitsGroupsByQueryCountAndUrlLength() {
+        ReflectionTestUtils.setField(planner, "maxQueries", 2);
+        Map<Long, SearchRequest> requests = new LinkedHashMap<>();
+        for (long id = 1; id <= 5; id++) {
+            requests.put(id, request("q" + id, 1));
+        }
+        assertThat(planner.plan(requests)).extracting(SearchQueryPlanner.SearchJob::users)
+                .containsExactly(List.of(1L, 2L), List.of(3L, 4L), List.of(5L));
+
+        ReflectionTestUtils.setField(planner, "maxQueries", 10);
+        // URL с двумя запросами уже длиннее лимита
+        ReflectionTestUtils.setField(planner, "maxUrlLength", "https://api.hh.ru/vacancies?text=(q1)&page=0".length() + 5);
+        assertThat(planner.plan(requests)).hasSize(5);
+    }
+
+    @Test
+    void demultiplexesMergedResultsByTitle() {
+        HHruVacancy javaDev = vacancy("1", "Java разработчик");
+        HHruVacancy pythonDev = vacancy("2", "Python developer");
+        HHruVacancy both = vacancy("3", "Java / Python инженер");
+        when(hhruApiService.fetchPage(anyString()))
+                .thenReturn(new HHruApiService.SearchPage(List.of(javaDev, pythonDev, both), 1, 3));
+        Map<Long, SearchRequest> requests = new LinkedHashMap<>();
+        requests.put(1L, request("java", 1));
+        requests.put(2L, request("python", 1));
+        requests.put(3L, request("java", 1));
+        requests.put(4L, request("rust", 1));
+
+        Map<Long, List<HHruVacancy>> found = planner.plan(requests).get(0).run();
+
+        verify(hhruApiService, atLeastOnce()).buildSearchUrl(any(), eq("(java) OR (python) OR (rust)"), eq(0));
+        verify(hhruApiService, times(1)).fetchPage(anyString());
+        assertThat(found.get(1L)).containsExactly(javaDev, both);
+        assertThat(found.get(3L)).isSameAs(found.get(1L));
+        assertThat(found.get(2L)).containsExactly(pythonDev, both);
+        assertThat(found.get(4L)).isEmpty();
+    }
+
+    @Test
+    void tooBroadMergedSearchFallsBackToSmallerBatches() {
+        when(hhruApiService.fetchPage(anyString()))
+                .thenReturn(new HHruApiService.SearchPage(List.of(), 10, 1000));
+        when(hhruApiService.searchItems(any())).thenAnswer(call -> {
+            SearchRequest single = call.getArgument(0);
+            return List.of(vacancy(single.getQuery(), single.getQuery()));
+        });
+        Map<Long, SearchRequest> requests = new LinkedHashMap<>();
+        requests.put(1L, request("java", 1));
+        requests.put(2L, request("python", 1));
+
+        Map<Long, List<HHruVacancy>> found = planner.plan(requests).get(0).run();
+
+        assertThat(found.get(1L)).extracting(HHruVacancy::id).containsExactly("java");
+        assertThat(found.get(2L)).extracting(HHruVacancy::id).containsExactly("python");
+    }
+
+    @Test
+    void failedMergedSearchLeavesUsersOutOfResult() {
+        when(hhruApiService.fetchPage(anyString())).thenThrow(new IllegalStateException("HH.ru down"));
+        Map<Long, SearchRequest> requests = new LinkedHashMap<>();
+        requests.put(1L, request("java", 1));
+        requests.put(2L, request("python", 1));
+
+        assertThat(planner.plan(requests).get(0).run()).isEmpty();
+    }
+
+    @Test
+    void disabledPlannerKeepsOneJobPerUser() {
+        ReflectionTestUtils.setField(planner, "enabled", false);
+        Map<Long, SearchRequest> requests = new LinkedHashMap<>();
+        requests.put(1L, request("java", 1));
+        requests.put(2L, request("python", 1));
+
+        assertThat(planner.plan(requests)).extracting(SearchQueryPlanner.SearchJob::users)
+                .containsExactly(List.of(1L), List.of(2L));
+    }
+
+    private static SearchRequest request(String query, int days) {
+        SearchRequest request = new SearchRequest();
+        request.setQuery(query);
+        request.setDays(days);
+        return request;
+    }
+
+    private static HHruVacancy vacancy(String id, String title) {
+        return new HHruVacancy(id, title, null, null, null, null, null, null, null, null, null,
+                null, null, null, KeywordMatcher.normalize(title), 0L, 0L);
+    }
+}
@@ -0,0 +1,43 @@
+package com.mkisten.vacancybackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    @Test
+    void startsFullAndRejectsWhenEmpty() {
+        SearchAdmissionService.TokenBucket bucket = new SearchAdmissionService.TokenBucket(3, 60, 0);
+
+        assertThat(bucket.tryConsume(0)).isZero();
+        assertThat(bucket.tryConsume(0)).isZero();
+        assertThat(bucket.tryConsume(0)).isZero();
+        // 60 в минуту — токен раз в секунду
+        assertThat(bucket.tryConsume(0)).isEqualTo(1000);
+    }
+
+    @Test
+    void refillsProportionallyToElapsedTime() {
+        SearchAdmissionService.TokenBucket bucket = new SearchAdmissionService.TokenBucket(2, 60, 0);
+        bucket.tryConsume(0);
+        bucket.tryConsume(0);
+
+        assertThat(bucket.tryConsume(400)).isEqualTo(600);
+        assertThat(bucket.tryConsume(1000)).isZero();
+        assertThat(bucket.tryConsume(1000)).isEqualTo(1000);
+    }
+
+    @Test
+    void refillIsCappedByCapacity() {
+        SearchAdmissionService.TokenBucket bucket = new SearchAdmissionService.TokenBucket(2, 60, 0);
+        bucket.tryConsume(0);
+        bucket.tryConsume(0);
+
+        // Час простоя не копит больше capacity токенов
+        long later = 3_600_000;
+        assertThat(bucket.tryConsume(later)).isZero();
+        assertThat(bucket.tryConsume(later)).isZero();
+        assertThat(bucket.tryConsume(later)).isPositive();
+    }
+}
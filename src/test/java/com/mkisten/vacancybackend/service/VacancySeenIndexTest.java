@@ -0,0 +1,90 @@
+package com.mkisten.vacancybackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VacancySeenIndexTest {
+
+    @Test
+    void storesNumericAndOtherIds() {
+        VacancySeenIndex.SeenIds ids = new VacancySeenIndex.SeenIds();
+        ids.put("123", 7L);
+        ids.put("0", 8L);
+        ids.put("0123", 9L);  // ведущий ноль — не число HH.ru, хранится как строка
+        ids.put("abc", 10L);
+
+        assertThat(ids.get("123")).isEqualTo(7L);
+        assertThat(ids.get("0")).isEqualTo(8L);
+        assertThat(ids.get("0123")).isEqualTo(9L);
+        assertThat(ids.get("abc")).isEqualTo(10L);
+        assertThat(ids.get("124")).isEqualTo(VacancySeenIndex.SeenIds.ABSENT);
+        assertThat(ids.size()).isEqualTo(4);
+
+        ids.put("123", 11L);
+        assertThat(ids.get("123")).isEqualTo(11L);
+        assertThat(ids.size()).isEqualTo(4);
+
+        ids.removeAll(List.of("123", "0", "0123", "abc", "999"));
+        assertThat(ids.size()).isZero();
+        assertThat(ids.get("0")).isEqualTo(VacancySeenIndex.SeenIds.ABSENT);
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        VacancySeenIndex.SeenIds ids = new VacancySeenIndex.SeenIds();
+        int before = ids.weightBytes();
+        for (int i = 1; i <= 10_000; i++) {
+            ids.put(String.valueOf(i * 7919L), i);
+        }
+
+        assertThat(ids.size()).isEqualTo(10_000);
+        assertThat(ids.weightBytes()).isGreaterThan(before);
+        for (int i = 1; i <= 10_000; i++) {
+            assertThat(ids.get(String.valueOf(i * 7919L))).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void backwardShiftDeleteKeepsProbeChainsReachable() {
+        // Узкий диапазон ключей в маленькой таблице: длинные цепочки, перенос через конец массива
+        VacancySeenIndex.SeenIds ids = new VacancySeenIndex.SeenIds();
+        Map<String, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int step = 0; step < 50_000; step++) {
+            String id = String.valueOf(1 + random.nextInt(40));
+            if (random.nextInt(3) == 0) {
+                ids.removeAll(List.of(id));
+                expected.remove(id);
+            } else {
+                long hash = random.nextLong(1, Long.MAX_VALUE);
+                ids.put(id, hash);
+                expected.put(id, hash);
+            }
+            if (step % 97 == 0) {
+                for (int key = 1; key <= 40; key++) {
+                    String probe = String.valueOf(key);
+                    assertThat(ids.get(probe))
+                            .as("id %s на шаге %d", probe, step)
+                            .isEqualTo(expected.getOrDefault(probe, VacancySeenIndex.SeenIds.ABSENT));
+                }
+                assertThat(ids.size()).isEqualTo(expected.size());
+            }
+        }
+    }
+
+    @Test
+    void tracksCollapsedIdsSeparately() {
+        VacancySeenIndex.SeenIds ids = new VacancySeenIndex.SeenIds();
+        ids.addCollapsed(List.of("555"));
+
+        assertThat(ids.isCollapsed("555")).isTrue();
+        assertThat(ids.isCollapsed("556")).isFalse();
+        assertThat(ids.get("555")).isEqualTo(VacancySeenIndex.SeenIds.ABSENT);
+    }
+}